@@ -0,0 +1,122 @@
+package com.learning.ftp.common.benchmarks;
+
+import com.learning.ftp.common.benchmarks.entity.Employee;
+import com.learning.ftp.common.benchmarks.entity.Phone;
+import com.learning.ftp.common.crud.configuration.FindFunctionContributor;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import javax.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataBuilder;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.dialect.H2Dialect;
+
+/**
+ * An in-memory H2 database of managers, their members and the phones of the members, shaped like
+ * the data of the crud integration tests but large enough to measure. Hibernate is bootstrapped
+ * without Spring, so a benchmark only pays for the persistence layer.
+ */
+public final class BenchmarkDatabase implements AutoCloseable {
+  private static final int FLUSH_SIZE = 500;
+
+  private final SessionFactory sessionFactory;
+
+  private BenchmarkDatabase(SessionFactory sessionFactory) {
+    this.sessionFactory = sessionFactory;
+  }
+
+  /** An empty database, enough to build criteria queries. */
+  public static BenchmarkDatabase create(String name) {
+    return create(name, 0, 0, 0);
+  }
+
+  public static BenchmarkDatabase create(
+      String name, int managers, int membersPerManager, int phonesPerMember) {
+    Map<String, Object> settings = new HashMap<>();
+    settings.put(AvailableSettings.URL, "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+    settings.put(AvailableSettings.DRIVER, "org.h2.Driver");
+    settings.put(AvailableSettings.USER, "sa");
+    settings.put(AvailableSettings.PASS, "");
+    settings.put(AvailableSettings.DIALECT, H2Dialect.class.getName());
+    settings.put(AvailableSettings.HBM2DDL_AUTO, "create-drop");
+    settings.put(AvailableSettings.STATEMENT_BATCH_SIZE, "100");
+    settings.put(AvailableSettings.ORDER_INSERTS, "true");
+    StandardServiceRegistry registry =
+        new StandardServiceRegistryBuilder().applySettings(settings).build();
+    MetadataBuilder metadataBuilder =
+        new MetadataSources(registry)
+            .addAnnotatedClass(Employee.class)
+            .addAnnotatedClass(Phone.class)
+            .getMetadataBuilder();
+    new FindFunctionContributor().contribute(metadataBuilder);
+    BenchmarkDatabase database =
+        new BenchmarkDatabase(metadataBuilder.build().buildSessionFactory());
+    database.seed(managers, membersPerManager, phonesPerMember);
+    return database;
+  }
+
+  public EntityManager createEntityManager() {
+    return sessionFactory.createEntityManager();
+  }
+
+  /** An employee which is not persisted, with every field but the lazy ones set. */
+  public static Employee newEmployee(int index) {
+    Employee employee = new Employee();
+    employee.setId(new UUID(0, index));
+    employee.setFirstName("First " + index);
+    employee.setLastName("Last " + index % 100);
+    employee.setSalary((double) (index % 50) * 10);
+    employee.setStart(Instant.ofEpochSecond(1_600_000_000L + index * 3600L));
+    return employee;
+  }
+
+  private void seed(int managers, int membersPerManager, int phonesPerMember) {
+    EntityManager em = createEntityManager();
+    try {
+      em.getTransaction().begin();
+      int index = 0;
+      int pending = 0;
+      for (int m = 0; m < managers; ++m) {
+        Employee manager = newEmployee(index++);
+        em.persist(manager);
+        for (int e = 0; e < membersPerManager; ++e) {
+          Employee member = newEmployee(index++);
+          member.setManager(manager);
+          em.persist(member);
+          List<Phone> phones = new ArrayList<>();
+          for (int p = 0; p < phonesPerMember; ++p) {
+            Phone phone = new Phone();
+            phone.setId(new UUID(1, (long) index * phonesPerMember + p));
+            phone.setType(p % 2 == 0 ? "mobile" : "home");
+            phone.setNumber(String.format("09%08d", index * 10 + p));
+            phone.setOwner(member);
+            em.persist(phone);
+            phones.add(phone);
+          }
+          pending += phones.size() + 1;
+          if (pending >= FLUSH_SIZE) {
+            em.flush();
+            em.clear();
+            manager = em.getReference(Employee.class, manager.getId());
+            pending = 0;
+          }
+        }
+      }
+      em.getTransaction().commit();
+    } finally {
+      em.close();
+    }
+  }
+
+  @Override
+  public void close() {
+    sessionFactory.close();
+  }
+}
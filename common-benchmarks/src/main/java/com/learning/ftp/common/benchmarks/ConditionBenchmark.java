@@ -0,0 +1,87 @@
+package com.learning.ftp.common.benchmarks;
+
+import com.learning.ftp.common.benchmarks.entity.Employee;
+import com.learning.ftp.common.crud.condition.Condition;
+import com.learning.ftp.common.crud.condition.Conditions;
+import com.learning.ftp.common.crud.finding.QueryContext;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Translate conditions of different shapes to criteria predicates. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConditionBenchmark {
+  @Param({"equal", "between", "in", "composite", "join"})
+  private String shape;
+
+  private BenchmarkDatabase database;
+  private EntityManager em;
+  private Condition condition;
+
+  @Setup
+  public void setUp() {
+    database = BenchmarkDatabase.create("condition");
+    em = database.createEntityManager();
+    condition = createCondition(shape);
+  }
+
+  @TearDown
+  public void tearDown() {
+    em.close();
+    database.close();
+  }
+
+  @Benchmark
+  public Predicate toPredicate() {
+    CriteriaBuilder cb = em.getCriteriaBuilder();
+    CriteriaQuery<Employee> query = cb.createQuery(Employee.class);
+    Root<Employee> root = query.from(Employee.class);
+    QueryContext qc =
+        new QueryContext(Employee.class, root, cb, query, new HashMap<>(), new HashMap<>());
+    return condition.toPredicate(qc);
+  }
+
+  private static Condition createCondition(String shape) {
+    switch (shape) {
+      case "equal":
+        return Condition.field(Employee.Fields.lastName).equal("Last 7");
+      case "between":
+        return Condition.field(Employee.Fields.salary).between(100, 300);
+      case "in":
+        return Condition.field(Employee.Fields.firstName)
+            .in(List.of("First 1", "First 2", "First 3", "First 4", "First 5"));
+      case "composite":
+        return Conditions.and(
+            Condition.field(Employee.Fields.salary).greaterThan(100),
+            Conditions.or(
+                Condition.field(Employee.Fields.lastName).like("Last 1"),
+                Condition.field(Employee.Fields.firstName).isNull()));
+      case "join":
+        return Condition.field("manager.lastName").equal("Last 0");
+      default:
+        throw new IllegalArgumentException(shape);
+    }
+  }
+}
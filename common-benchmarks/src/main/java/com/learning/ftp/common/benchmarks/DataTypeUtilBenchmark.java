@@ -0,0 +1,81 @@
+package com.learning.ftp.common.benchmarks;
+
+import com.learning.ftp.common.crud.util.DataTypeUtil;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import javax.persistence.FetchType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Convert the string values of a request to the types of the entity fields. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataTypeUtilBenchmark {
+  @Param({"Long", "int", "Double", "UUID", "Instant", "LocalDate", "Timestamp", "enum"})
+  private String type;
+
+  private Object value;
+  private Class valueType;
+
+  @Setup
+  public void setUp() {
+    switch (type) {
+      case "Long":
+        valueType = Long.class;
+        value = "1234567";
+        break;
+      case "int":
+        valueType = int.class;
+        value = "42";
+        break;
+      case "Double":
+        valueType = Double.class;
+        value = "3.14";
+        break;
+      case "UUID":
+        valueType = UUID.class;
+        value = new UUID(1, 2).toString();
+        break;
+      case "Instant":
+        valueType = Instant.class;
+        value = "2022-06-01T10:15:30Z";
+        break;
+      case "LocalDate":
+        valueType = LocalDate.class;
+        value = "2022-06-01";
+        break;
+      case "Timestamp":
+        // the day format is only tried after the JDBC escape format fails
+        valueType = Timestamp.class;
+        value = "01/06/2022";
+        break;
+      case "enum":
+        valueType = FetchType.class;
+        value = "LAZY";
+        break;
+      default:
+        throw new IllegalArgumentException(type);
+    }
+  }
+
+  @Benchmark
+  public Object convertData() {
+    return DataTypeUtil.convertData(value, valueType);
+  }
+}
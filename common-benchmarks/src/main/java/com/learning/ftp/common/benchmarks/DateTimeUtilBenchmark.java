@@ -0,0 +1,67 @@
+package com.learning.ftp.common.benchmarks;
+
+import com.learning.ftp.common.model.Holiday;
+import com.learning.ftp.common.util.DateTimeUtil;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** The working day math over a list of holidays, one per month of the covered years. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateTimeUtilBenchmark {
+  @Param({"5", "60"})
+  private int days;
+
+  @Param({"12", "120"})
+  private int holidayCount;
+
+  private ZonedDateTime date;
+  private List<Holiday> holidays;
+
+  @Setup
+  public void setUp() {
+    date = ZonedDateTime.of(2022, 6, 3, 10, 0, 0, 0, DateTimeUtil.ZONE_ID_VN);
+    holidays = new ArrayList<>();
+    ZonedDateTime start = date.withDayOfMonth(10).withHour(0);
+    for (int i = 0; i < holidayCount; ++i) {
+      ZonedDateTime holiday = start.plusMonths(i);
+      holidays.add(
+          new Holiday(
+              holiday.toInstant().toEpochMilli(),
+              holiday.plusDays(1).minusNanos(1).toInstant().toEpochMilli()));
+    }
+  }
+
+  @Benchmark
+  public ZonedDateTime addDaysSkippingWeekends() {
+    return DateTimeUtil.addDaysSkippingWeekends(date, days, holidays);
+  }
+
+  @Benchmark
+  public ZonedDateTime getNextWorkingDay() {
+    // the date is a Friday, the Saturday after it moves to the Monday
+    return DateTimeUtil.getNextWorkingDay(date.plusDays(1), holidays);
+  }
+
+  @Benchmark
+  public boolean isWorkingDay() {
+    return DateTimeUtil.isWorkingDay(date.plusDays(days), holidays);
+  }
+}
@@ -0,0 +1,102 @@
+package com.learning.ftp.common.benchmarks;
+
+import com.learning.ftp.common.benchmarks.entity.Employee;
+import com.learning.ftp.common.crud.util.EntityMetadata;
+import com.learning.ftp.common.crud.util.EntityUtils;
+import com.learning.ftp.common.crud.util.PropertyAccessor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The reflection helpers of {@link EntityUtils}, with plain reflection as the baseline of the
+ * generated accessors they are built on.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityUtilsBenchmark {
+  private Employee source;
+  private Employee target;
+  private Field salaryField;
+  private Method salaryGetter;
+  private PropertyAccessor salaryAccessor;
+  private PropertyAccessor salaryProperty;
+
+  @Setup
+  public void setUp() throws Exception {
+    source = BenchmarkDatabase.newEmployee(1);
+    source.setManager(BenchmarkDatabase.newEmployee(0));
+    target = BenchmarkDatabase.newEmployee(2);
+    salaryField = Employee.class.getDeclaredField(Employee.Fields.salary);
+    salaryField.setAccessible(true);
+    salaryGetter = Employee.class.getMethod("getSalary");
+    EntityMetadata metadata = EntityMetadata.of(Employee.class);
+    salaryAccessor = metadata.getFieldAccessor(Employee.Fields.salary);
+    salaryProperty = metadata.getProperties().get(Employee.Fields.salary);
+  }
+
+  @Benchmark
+  public Object getId() {
+    return EntityUtils.getId(source);
+  }
+
+  @Benchmark
+  public Object getFieldValue() {
+    return EntityUtils.getFieldValue(source, Employee.Fields.salary);
+  }
+
+  @Benchmark
+  public Employee setFieldValue() {
+    EntityUtils.setFieldValue(target, Employee.Fields.lastName, "Last 2");
+    return target;
+  }
+
+  @Benchmark
+  public Field getPathField() {
+    return EntityUtils.getField(Employee.class, "manager.phones");
+  }
+
+  @Benchmark
+  public Object merge() {
+    return EntityUtils.merge(source, target, Employee.Fields.id);
+  }
+
+  @Benchmark
+  public Object fillNullForLazyFields() {
+    return EntityUtils.fillNullForLazyFields(target);
+  }
+
+  @Benchmark
+  public Object reflectionFieldGet() throws Exception {
+    return salaryField.get(source);
+  }
+
+  @Benchmark
+  public Object reflectionGetterInvoke() throws Exception {
+    return salaryGetter.invoke(source);
+  }
+
+  @Benchmark
+  public Object accessorFieldGet() {
+    return salaryAccessor.get(source);
+  }
+
+  @Benchmark
+  public Object accessorPropertyGet() {
+    return salaryProperty.get(source);
+  }
+}
@@ -0,0 +1,88 @@
+package com.learning.ftp.common.benchmarks;
+
+import com.learning.ftp.common.benchmarks.entity.Employee;
+import com.learning.ftp.common.crud.condition.Condition;
+import com.learning.ftp.common.crud.finding.FindPageEntityHandler;
+import com.learning.ftp.common.crud.finding.Sort;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Find a page of members over 100 managers with 99 members of 2 phones each. The persistence
+ * context is cleared before every page, so each one is read and assembled from the database.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FindPageBenchmark {
+  private static final int PAGE_SIZE = 20;
+
+  @Param({"0", "100"})
+  private int page;
+
+  @Param({"offset", "windowCount", "cursor"})
+  private String mode;
+
+  @Param({"", "phones"})
+  private String fields;
+
+  private BenchmarkDatabase database;
+  private EntityManager em;
+  private String cursor;
+
+  @Setup
+  public void setUp() {
+    database = BenchmarkDatabase.create("findPage", 100, 99, 2);
+    em = database.createEntityManager();
+    if ("cursor".equals(mode)) {
+      // walk to the page once, the benchmark only reads the page after the cursor
+      for (int i = 0; i < page; ++i) {
+        cursor = createHandler().withCursor(cursor).executeCursor().getNextCursor();
+      }
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    em.close();
+    database.close();
+  }
+
+  @Benchmark
+  public List<Employee> findPage() {
+    em.clear();
+    FindPageEntityHandler<Employee> handler = createHandler();
+    switch (mode) {
+      case "windowCount":
+        return handler.withPageable(page, PAGE_SIZE).withWindowCount().execute().getContent();
+      case "cursor":
+        return handler.withCursor(cursor).executeCursor().getContent();
+      default:
+        return handler.withPageable(page, PAGE_SIZE).execute().getContent();
+    }
+  }
+
+  private FindPageEntityHandler<Employee> createHandler() {
+    return new FindPageEntityHandler<Employee>(
+            Employee.class, fields.isEmpty() ? new String[] {} : fields.split(","), () -> em)
+        .withCondition(Condition.field(Employee.Fields.manager).isNotNull())
+        .withPageable(0, PAGE_SIZE)
+        .sortBy(Sort.desc(Employee.Fields.salary));
+  }
+}
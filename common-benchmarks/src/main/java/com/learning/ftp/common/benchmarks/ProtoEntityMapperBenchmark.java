@@ -0,0 +1,58 @@
+package com.learning.ftp.common.benchmarks;
+
+import com.learning.ftp.common.grpc.parser.ProtoEntityMapper;
+import com.learning.proto.common.Status;
+import java.util.concurrent.TimeUnit;
+import lombok.Getter;
+import lombok.Setter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Map a proto message to a POJO and back, both go through JSON. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProtoEntityMapperBenchmark {
+  private Status message;
+  private StatusDto dto;
+
+  @Setup
+  public void setUp() {
+    message =
+        Status.newBuilder()
+            .setCode(404)
+            .setMessageCode("EMPLOYEE_NOT_FOUND")
+            .setMessage("The employee is not found")
+            .build();
+    dto = ProtoEntityMapper.toEntity(message, StatusDto.class);
+  }
+
+  @Benchmark
+  public StatusDto toEntity() {
+    return ProtoEntityMapper.toEntity(message, StatusDto.class);
+  }
+
+  @Benchmark
+  public Status.Builder toProto() {
+    return ProtoEntityMapper.toProto(dto, Status.newBuilder());
+  }
+
+  @Getter
+  @Setter
+  public static class StatusDto {
+    private int code;
+    private String messageCode;
+    private String message;
+  }
+}
@@ -0,0 +1,102 @@
+package com.learning.ftp.common.benchmarks;
+
+import com.learning.ftp.common.cache.CompressionCodec;
+import com.learning.ftp.common.cache.ProtobufCodec;
+import com.learning.proto.common.Status;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.redisson.client.codec.Codec;
+import org.redisson.codec.MarshallingCodec;
+
+/**
+ * Encode and decode a cached proto message with the Redisson default codec and the codecs of the
+ * cache. The encoded size is reported next to the times as the {@code bytes} counter.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedisCodecBenchmark {
+  @Param({"marshalling", "protobuf", "protobuf+deflate"})
+  private String codecName;
+
+  @Param({"small", "large"})
+  private String payload;
+
+  private Codec codec;
+  private Status message;
+  private byte[] encoded;
+
+  @Setup
+  public void setUp() throws IOException {
+    switch (codecName) {
+      case "marshalling":
+        codec = new MarshallingCodec();
+        break;
+      case "protobuf":
+        codec = new ProtobufCodec();
+        break;
+      default:
+        codec = new CompressionCodec(new ProtobufCodec(), 1024);
+    }
+    var text = new StringBuilder("The employee is not found");
+    if ("large".equals(payload)) {
+      for (int i = 0; text.length() < 16 * 1024; ++i) {
+        text.append(", employee ").append(i).append(" of department ").append(i % 10);
+      }
+    }
+    message =
+        Status.newBuilder()
+            .setCode(404)
+            .setMessageCode("EMPLOYEE_NOT_FOUND")
+            .setMessage(text.toString())
+            .build();
+    ByteBuf buf = codec.getValueEncoder().encode(message);
+    encoded = ByteBufUtil.getBytes(buf);
+    buf.release();
+  }
+
+  @Benchmark
+  public int encode(EncodedSize size) throws IOException {
+    ByteBuf buf = codec.getValueEncoder().encode(message);
+    int bytes = buf.readableBytes();
+    buf.release();
+    size.bytes = bytes;
+    return bytes;
+  }
+
+  @Benchmark
+  public Object decode() throws IOException {
+    return codec.getValueDecoder().decode(Unpooled.wrappedBuffer(encoded), null);
+  }
+
+  /** The size of the encoded value, which is the same for every call. */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class EncodedSize {
+    public long bytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      bytes = 0;
+    }
+  }
+}
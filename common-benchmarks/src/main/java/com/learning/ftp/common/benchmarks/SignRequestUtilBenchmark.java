@@ -0,0 +1,52 @@
+package com.learning.ftp.common.benchmarks;
+
+import com.learning.ftp.common.util.SignRequestUtil;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Sign the item lines of a request, as every signed call between the services does. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SignRequestUtilBenchmark {
+  private static final String DATE = "20220601T101530Z";
+  private static final String SERVICE = "employee";
+
+  private String secretKey;
+  private String[] lines;
+
+  @Setup
+  public void setUp() throws Exception {
+    secretKey = SignRequestUtil.genAccessSecretKeyPair()[1];
+    lines =
+        new String[] {
+          "POST",
+          "/api/v1/employees",
+          "page=0&size=20",
+          "content-type:application/json",
+          SignRequestUtil.toHexSHA256Hash("{\"firstName\":\"First 1\",\"salary\":32}")
+        };
+  }
+
+  @Benchmark
+  public String sign() {
+    return SignRequestUtil.sign(secretKey, DATE, SERVICE, lines);
+  }
+
+  @Benchmark
+  public String hashBody() {
+    return SignRequestUtil.toHexSHA256Hash("{\"firstName\":\"First 1\",\"salary\":32}");
+  }
+}
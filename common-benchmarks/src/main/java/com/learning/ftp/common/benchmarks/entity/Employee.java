@@ -0,0 +1,42 @@
+package com.learning.ftp.common.benchmarks.entity;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.FieldNameConstants;
+
+@Entity
+@Getter
+@Setter
+@FieldNameConstants
+public class Employee {
+
+  @Id
+  private UUID id;
+
+  private String firstName;
+
+  private String lastName;
+
+  private Double salary;
+
+  private Instant start;
+
+  @OneToMany(fetch = FetchType.LAZY, mappedBy = "owner")
+  private List<Phone> phones;
+
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "MANAGER_ID")
+  private Employee manager;
+
+  @OneToMany(fetch = FetchType.LAZY, mappedBy = "manager")
+  private List<Employee> employees;
+}
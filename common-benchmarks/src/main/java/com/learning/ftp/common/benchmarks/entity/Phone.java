@@ -0,0 +1,28 @@
+package com.learning.ftp.common.benchmarks.entity;
+
+import java.util.UUID;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.FieldNameConstants;
+
+@Entity
+@Getter
+@Setter
+@FieldNameConstants
+public class Phone {
+
+  @Id
+  private UUID id;
+
+  private String type;
+
+  private String number;
+
+  @ManyToOne
+  @JoinColumn(name = "OWNER_ID")
+  private Employee owner;
+}
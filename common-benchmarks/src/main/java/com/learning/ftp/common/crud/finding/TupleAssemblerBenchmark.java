@@ -0,0 +1,88 @@
+package com.learning.ftp.common.crud.finding;
+
+import com.learning.ftp.common.benchmarks.BenchmarkDatabase;
+import com.learning.ftp.common.benchmarks.entity.Employee;
+import com.learning.ftp.common.benchmarks.entity.Phone;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+import javax.persistence.Tuple;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Assemble a joined result of 10000 rows into its root entities. It lives in the finding package
+ * because the assembler is internal to the handlers; the rows are built in memory so only the
+ * assembling is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TupleAssemblerBenchmark {
+  private static final String ROOT = "_root";
+  private static final int ROWS = 10_000;
+  private static final int PHONES = 5;
+  private static final List<String> ALIASES = List.of(ROOT, "_employees", "_phones");
+
+  /** The phones of 2000 employees, or the phones of the 20 members of 100 managers. */
+  @Param({"phones", "employees.phones"})
+  private String path;
+
+  private TupleAssembler<Employee> assembler;
+  private List<Tuple> tuples;
+
+  @Setup(Level.Trial)
+  public void setUpAssembler() {
+    String[] fields =
+        "phones".equals(path) ? new String[] {"phones"} : new String[] {"employees", path};
+    assembler =
+        new TupleAssembler<>(
+            ROOT,
+            fields,
+            Map.of("phones", "_phones", "employees", "_employees", "employees.phones", "_phones"),
+            UnaryOperator.identity());
+  }
+
+  // the assembler fills the entities, a fresh result keeps every invocation the same work
+  @Setup(Level.Invocation)
+  public void setUpRows() {
+    tuples = new ArrayList<>(ROWS);
+    int owners = ROWS / PHONES;
+    int membersPerManager = "phones".equals(path) ? owners : 20;
+    Employee manager = null;
+    for (int o = 0; o < owners; ++o) {
+      if (o % membersPerManager == 0) {
+        manager = BenchmarkDatabase.newEmployee(ROWS + o);
+      }
+      Employee owner = BenchmarkDatabase.newEmployee(o);
+      for (int p = 0; p < PHONES; ++p) {
+        Phone phone = new Phone();
+        phone.setId(new UUID(1, (long) o * PHONES + p));
+        phone.setOwner(owner);
+        Object root = "phones".equals(path) ? owner : manager;
+        tuples.add(new ArrayTuple(ALIASES, new Object[] {root, owner, phone}));
+      }
+    }
+  }
+
+  @Benchmark
+  public List<Employee> assemble() {
+    return assembler.assemble(tuples);
+  }
+}
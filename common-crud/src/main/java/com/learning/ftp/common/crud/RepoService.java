@@ -1,11 +1,17 @@
 package com.learning.ftp.common.crud;
 
+import com.learning.ftp.common.crud.bulk.BulkStatements;
+import com.learning.ftp.common.crud.bulk.BulkWriteResult;
+import com.learning.ftp.common.crud.bulk.BulkWriter;
 import com.learning.ftp.common.crud.condition.Condition;
 import com.learning.ftp.common.crud.finding.FindAllEntityHandler;
 import com.learning.ftp.common.crud.finding.FindContext;
 import com.learning.ftp.common.crud.finding.FindOneEntityHandler;
 import com.learning.ftp.common.crud.finding.FindPageEntityHandler;
+import com.learning.ftp.common.crud.telemetry.QueryTelemetry;
+import com.learning.ftp.common.crud.telemetry.QueryTelemetry.Kind;
 import com.learning.ftp.common.crud.util.EntityUtils;
+import com.learning.ftp.common.exception.FtpServiceException;
 import java.lang.reflect.ParameterizedType;
 import java.math.BigInteger;
 import java.util.Collection;
@@ -43,9 +49,17 @@ import com.learning.ftp.common.util.UUIDUtils;
 public class RepoService implements FindContext {
   private final Map<String, PagingAndSortingRepository> repositories;
   private final EntityManager entityManager;
+  private final BulkWriter bulkWriter;
+  private final BulkStatements bulkStatements;
 
-  RepoService(Optional<List<PagingAndSortingRepository>> repos, EntityManager entityManager) {
+  RepoService(
+      Optional<List<PagingAndSortingRepository>> repos,
+      EntityManager entityManager,
+      BulkWriter bulkWriter,
+      BulkStatements bulkStatements) {
     this.entityManager = entityManager;
+    this.bulkWriter = bulkWriter;
+    this.bulkStatements = bulkStatements;
     this.repositories =
         repos.stream()
             .flatMap(List::stream)
@@ -70,7 +84,7 @@ public class RepoService implements FindContext {
       mapDataTypes[0].forEach(
           (key, value) -> nativeQuery.unwrap(NativeQuery.class).addScalar(key, value));
     }
-    return nativeQuery.getResultList();
+    return QueryTelemetry.list(Kind.NATIVE, query, nativeQuery::getResultList);
   }
 
   public <T> Page<T> executeQueryWithPaging(
@@ -104,12 +118,17 @@ public class RepoService implements FindContext {
     if (mapDataTypes.length > 0) {
       mapDataTypes[0].forEach(nativeQuery::addScalar);
     }
+    nativeQuery.setFirstResult(page * size).setMaxResults(size);
     return PageableExecutionUtils.getPage(
-        nativeQuery.setFirstResult(page * size).setMaxResults(size).getResultList(),
+        QueryTelemetry.list(Kind.NATIVE, query, nativeQuery::getResultList),
         PageRequest.of(page, size),
-        () ->
-            ((BigInteger) getEntityManager().createNativeQuery(countQuery).getSingleResult())
-                .longValue());
+        () -> {
+          Query countNativeQuery = getEntityManager().createNativeQuery(countQuery);
+          return ((BigInteger)
+                  QueryTelemetry.single(
+                      Kind.NATIVE, countNativeQuery, countNativeQuery::getSingleResult))
+              .longValue();
+        });
   }
 
   public <T> Page<T> executeParameterizedQueryWithPaging(
@@ -131,10 +150,15 @@ public class RepoService implements FindContext {
     if (mapDataTypes.length > 0) {
       mapDataTypes[0].forEach(nativeQuery.unwrap(NativeQuery.class)::addScalar);
     }
+    nativeQuery.setFirstResult(page * size).setMaxResults(size);
     return PageableExecutionUtils.getPage(
-        nativeQuery.setFirstResult(page * size).setMaxResults(size).getResultList(),
+        QueryTelemetry.list(Kind.NATIVE, query, nativeQuery::getResultList),
         PageRequest.of(page, size),
-        () -> ((BigInteger) countNativeQuery.getSingleResult()).longValue());
+        () ->
+            ((BigInteger)
+                    QueryTelemetry.single(
+                        Kind.NATIVE, countNativeQuery, countNativeQuery::getSingleResult))
+                .longValue());
   }
 
   public <T> T findById(Class<T> entityType, Object id, String... fields) {
@@ -189,10 +213,56 @@ public class RepoService implements FindContext {
     deleteById(entity.getClass(), EntityUtils.getId(entity));
   }
 
-  public <T> void deleteBy(Class<T> entityClazz, String fieldName, Object value) {
-    List<T> entities =
-        findAll(entityClazz).withCondition(Condition.field(fieldName).equal(value)).execute();
+  public <T> int deleteBy(Class<T> entityClazz, String fieldName, Object value) {
+    return deleteBy(entityClazz, Condition.field(fieldName).equal(value));
+  }
+
+  /**
+   * Delete the entities matching the condition with one statement and return their count. The
+   * entities of a class cascading its removal are loaded and deleted one by one instead, so the
+   * cascades apply.
+   *
+   * @see BulkStatements
+   */
+  public <T> int deleteBy(Class<T> entityClazz, Condition condition) {
+    if (bulkStatements.isRemoveCascaded(entityClazz)) {
+      return deleteLoaded(entityClazz, condition);
+    }
+    return bulkStatements.delete(entityClazz, condition);
+  }
+
+  /** Like {@link #deleteBy(Class, Condition)} with a statement per chunk of matching rows. */
+  public <T> int deleteBy(Class<T> entityClazz, Condition condition, int chunkSize) {
+    if (bulkStatements.isRemoveCascaded(entityClazz)) {
+      return deleteLoaded(entityClazz, condition);
+    }
+    return bulkStatements.delete(entityClazz, condition, chunkSize);
+  }
+
+  public <T> int deleteAllByIds(Class<T> entityClazz, Collection<?> ids) {
+    return deleteAllByIds(entityClazz, ids, BulkStatements.DEFAULT_CHUNK_SIZE);
+  }
+
+  /** Delete the entities of the ids with a statement per chunk of ids, return their count. */
+  public <T> int deleteAllByIds(Class<T> entityClazz, Collection<?> ids, int chunkSize) {
+    if (ids == null || ids.isEmpty()) {
+      return 0;
+    }
+    if (bulkStatements.isRemoveCascaded(entityClazz)) {
+      return deleteLoaded(
+          entityClazz, Condition.field(EntityUtils.getIdFieldName(entityClazz)).in(ids));
+    }
+    return bulkStatements.deleteByIds(entityClazz, ids, chunkSize);
+  }
+
+  private <T> int deleteLoaded(Class<T> entityClazz, Condition condition) {
+    if (condition == null) {
+      throw new FtpServiceException(
+          String.format("A delete of %s needs a condition", entityClazz.getSimpleName()));
+    }
+    List<T> entities = findAll(entityClazz).withCondition(condition).execute();
     deleteAll(entities);
+    return entities.size();
   }
 
   public <T> void deleteAll(List<T> entities) {
@@ -231,6 +301,46 @@ public class RepoService implements FindContext {
     return (List<T>) getAppropriateRepository(entities.get(0)).saveAll(entities);
   }
 
+  /**
+   * Set the fields of the entities matching the condition with one statement, without loading
+   * them, and return their count. A versioned entity has its version incremented and a {@link
+   * BaseEntity} its updated time set, its updated by is only set when assigned.
+   *
+   * @see BulkStatements#update
+   */
+  public <T> int updateWhere(
+      Class<T> entityClazz, Condition condition, Map<String, Object> assignments) {
+    return bulkStatements.update(entityClazz, condition, assignments);
+  }
+
+  /**
+   * Insert the entities in JDBC batches of the default size, without the select {@link
+   * #insert(List)} makes per entity with an assigned id.
+   *
+   * @see BulkWriter
+   */
+  public BulkWriteResult bulkInsert(Collection<?> entities) {
+    return bulkWriter.insert(entities, BulkWriter.DEFAULT_BATCH_SIZE);
+  }
+
+  public BulkWriteResult bulkInsert(Collection<?> entities, int batchSize) {
+    return bulkWriter.insert(entities, batchSize);
+  }
+
+  /**
+   * Update the detached entities in JDBC batches of the default size, without reading them first
+   * like {@link #update(List)} does.
+   *
+   * @see BulkWriter
+   */
+  public BulkWriteResult bulkUpdate(Collection<?> entities) {
+    return bulkWriter.update(entities, BulkWriter.DEFAULT_BATCH_SIZE);
+  }
+
+  public BulkWriteResult bulkUpdate(Collection<?> entities, int batchSize) {
+    return bulkWriter.update(entities, batchSize);
+  }
+
   @Override
   public EntityManager getEntityManager() {
     return entityManager;
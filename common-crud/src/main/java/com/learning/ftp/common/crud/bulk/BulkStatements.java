@@ -0,0 +1,268 @@
+package com.learning.ftp.common.crud.bulk;
+
+import com.learning.ftp.common.crud.BaseEntity;
+import com.learning.ftp.common.crud.condition.Condition;
+import com.learning.ftp.common.crud.finding.QueryContext;
+import com.learning.ftp.common.crud.telemetry.QueryTelemetry;
+import com.learning.ftp.common.crud.telemetry.QueryTelemetry.Kind;
+import com.learning.ftp.common.crud.util.DataTypeUtil;
+import com.learning.ftp.common.crud.util.EntityUtils;
+import com.learning.ftp.common.crud.util.TransactionHelper;
+import com.learning.ftp.common.exception.FtpServiceException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.persistence.criteria.CommonAbstractCriteria;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaDelete;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+import org.hibernate.engine.spi.CascadingActions;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Delete or update the rows matching a {@link Condition} with one criteria statement, without
+ * loading the entities. The condition is compiled like for a find, a condition joining another
+ * entity is applied to the ids of a subquery since a bulk statement cannot join.
+ *
+ * <p>The statements bypass the persistence context: the entity listeners and the cascades do not
+ * apply and the entities loaded already are not updated. The collection tables of the entity, e.g.
+ * of a many-to-many it owns, are cleaned by Hibernate.
+ *
+ * <p>A chunked delete deletes up to the chunk size of rows per statement, each one in its own
+ * transaction unless the caller has one, so a huge range does not hold its locks at once.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+@Component
+public class BulkStatements {
+  public static final int DEFAULT_CHUNK_SIZE = 1000;
+  private static final String UPDATED_TIME = "updatedTime";
+  private static final Logger LOG = LoggerFactory.getLogger(BulkStatements.class);
+  private final EntityManager em;
+  private final TransactionHelper transactionHelper;
+
+  BulkStatements(EntityManager em, TransactionHelper transactionHelper) {
+    this.em = em;
+    this.transactionHelper = transactionHelper;
+  }
+
+  /** Delete the rows matching the condition in one statement, return their count. */
+  public int delete(Class<?> entityClass, Condition condition) {
+    requireCondition(entityClass, condition);
+    int rows = transactionHelper.doInTransaction(() -> executeDelete(entityClass, condition));
+    LOG.info("Bulk delete of {} {} rows", entityClass.getSimpleName(), rows);
+    return rows;
+  }
+
+  /**
+   * Delete the rows matching the condition in statements of up to {@code chunkSize} rows, each
+   * chunk of ids is selected first.
+   */
+  public int delete(Class<?> entityClass, Condition condition, int chunkSize) {
+    requireCondition(entityClass, condition);
+    int size = chunkSize > 0 ? chunkSize : DEFAULT_CHUNK_SIZE;
+    int rows = 0;
+    int chunkRows;
+    do {
+      chunkRows =
+          transactionHelper.doInTransaction(
+              () -> {
+                List<Object> ids = findIds(entityClass, condition, size);
+                return ids.isEmpty() ? 0 : executeDelete(entityClass, idIn(entityClass, ids));
+              });
+      rows += chunkRows;
+    } while (chunkRows >= size);
+    LOG.info("Bulk delete of {} {} rows", entityClass.getSimpleName(), rows);
+    return rows;
+  }
+
+  /**
+   * Set the fields of the rows matching the condition in one statement, return their count. The
+   * values are converted to the field types like the values of a condition, a {@code null} clears
+   * the field. The version of a versioned entity is incremented and the updated time of a {@link
+   * BaseEntity} set to the database time, so the entities loaded already fail their next update.
+   * The updated by of a {@link BaseEntity} is left unchanged, its auditor is not applied, so a
+   * caller tracking the modifier sets it in the assignments.
+   */
+  public int update(Class<?> entityClass, Condition condition, Map<String, Object> assignments) {
+    requireCondition(entityClass, condition);
+    if (assignments == null || assignments.isEmpty()) {
+      throw new FtpServiceException(
+          String.format("An update of %s needs a field to set", entityClass.getSimpleName()));
+    }
+    int rows =
+        transactionHelper.doInTransaction(
+            () -> executeUpdate(entityClass, condition, assignments));
+    LOG.info("Bulk update of {} {} rows", entityClass.getSimpleName(), rows);
+    return rows;
+  }
+
+  /** Delete the rows of the ids in statements of up to {@code chunkSize} ids. */
+  public int deleteByIds(Class<?> entityClass, Collection<?> ids, int chunkSize) {
+    if (ids == null || ids.isEmpty()) {
+      return 0;
+    }
+    int size = chunkSize > 0 ? chunkSize : DEFAULT_CHUNK_SIZE;
+    List<?> values = new ArrayList<>(ids);
+    int rows = 0;
+    for (int i = 0; i < values.size(); i += size) {
+      List<?> chunk = values.subList(i, Math.min(values.size(), i + size));
+      rows +=
+          transactionHelper.doInTransaction(
+              () -> executeDelete(entityClass, idIn(entityClass, chunk)));
+    }
+    LOG.info("Bulk delete of {} {} rows", entityClass.getSimpleName(), rows);
+    return rows;
+  }
+
+  /**
+   * Whether removing an entity of the class cascades to other entities, which a bulk statement
+   * would skip.
+   */
+  public boolean isRemoveCascaded(Class<?> entityClass) {
+    return Arrays.stream(getPersister(entityClass).getPropertyCascadeStyles())
+        .anyMatch(style -> style.doCascade(CascadingActions.DELETE) || style.hasOrphanDelete());
+  }
+
+  private int executeDelete(Class<?> entityClass, Condition condition) {
+    CriteriaDelete delete = em.getCriteriaBuilder().createCriteriaDelete(entityClass);
+    Root root = delete.from(entityClass);
+    QueryContext qc = restrict(entityClass, delete, root, condition, delete::where);
+    Query query = qc.bindParameters(em.createQuery(delete));
+    return QueryTelemetry.update(Kind.CRITERIA, query, query::executeUpdate);
+  }
+
+  private int executeUpdate(
+      Class<?> entityClass, Condition condition, Map<String, Object> assignments) {
+    CriteriaBuilder cb = em.getCriteriaBuilder();
+    CriteriaUpdate update = cb.createCriteriaUpdate(entityClass);
+    Root root = update.from(entityClass);
+    QueryContext qc = restrict(entityClass, update, root, condition, update::where);
+    EntityPersister persister = getPersister(entityClass);
+    String versionField =
+        persister.isVersioned()
+            ? persister.getPropertyNames()[persister.getVersionProperty()]
+            : null;
+    assignments.forEach(
+        (field, value) -> {
+          if (field.equals(versionField)) {
+            throw new FtpServiceException(
+                String.format(
+                    "The version of %s is set by the update", entityClass.getSimpleName()));
+          }
+          Object converted = toFieldValue(entityClass, field, value);
+          update.set(
+              root.get(field),
+              converted == null
+                  ? cb.nullLiteral(root.get(field).getJavaType())
+                  : qc.addParameter(converted.getClass(), converted));
+        });
+    if (versionField != null) {
+      Path version = root.get(versionField);
+      update.set(
+          version,
+          Number.class.isAssignableFrom(version.getJavaType())
+              ? cb.sum(version, (Number) DataTypeUtil.convertData(1, version.getJavaType()))
+              : cb.currentTimestamp());
+    }
+    if (BaseEntity.class.isAssignableFrom(entityClass) && !assignments.containsKey(UPDATED_TIME)) {
+      update.set(root.get(UPDATED_TIME), cb.currentTimestamp());
+    }
+    Query query = qc.bindParameters(em.createQuery(update));
+    return QueryTelemetry.update(Kind.CRITERIA, query, query::executeUpdate);
+  }
+
+  /**
+   * Restrict the statement to the rows matching the condition, return the context binding its
+   * parameters. A condition joining another entity is applied to the ids of a subquery.
+   */
+  private QueryContext restrict(
+      Class<?> entityClass,
+      CommonAbstractCriteria statement,
+      Root root,
+      Condition condition,
+      Consumer<Predicate> where) {
+    CriteriaBuilder cb = em.getCriteriaBuilder();
+    if (!isJoining(entityClass, condition)) {
+      QueryContext qc =
+          new QueryContext(entityClass, root, cb, null, Collections.emptyMap(), null);
+      where.accept(condition.toPredicate(qc));
+      return qc;
+    }
+    String idFieldName = EntityUtils.getIdFieldName(entityClass);
+    Subquery subquery = statement.subquery(Object.class);
+    Root subRoot = subquery.from(entityClass);
+    QueryContext qc =
+        new QueryContext(entityClass, subRoot, cb, null, Collections.emptyMap(), null);
+    subquery.select(subRoot.get(idFieldName)).where(condition.toPredicate(qc));
+    where.accept(root.get(idFieldName).in(subquery));
+    return qc;
+  }
+
+  /**
+   * Whether the condition joins another entity, the root of a bulk statement refuses any join. The
+   * condition is compiled on the root of a query, which is discarded, to see the joins it adds.
+   */
+  private boolean isJoining(Class<?> entityClass, Condition condition) {
+    CriteriaBuilder cb = em.getCriteriaBuilder();
+    Root root = cb.createQuery().from(entityClass);
+    condition.toPredicate(
+        new QueryContext(entityClass, root, cb, null, Collections.emptyMap(), null));
+    return !root.getJoins().isEmpty();
+  }
+
+  // converted like the values of a condition, an entity is assigned as is
+  private static Object toFieldValue(Class<?> entityClass, String field, Object value) {
+    if (value == null || EntityUtils.isEntity(value)) {
+      return value;
+    }
+    return DataTypeUtil.convertData(value, EntityUtils.getFieldType(entityClass, field));
+  }
+
+  private EntityPersister getPersister(Class<?> entityClass) {
+    return em.getEntityManagerFactory()
+        .unwrap(SessionFactoryImplementor.class)
+        .getMetamodel()
+        .entityPersister(entityClass);
+  }
+
+  private List<Object> findIds(Class<?> entityClass, Condition condition, int limit) {
+    CriteriaBuilder cb = em.getCriteriaBuilder();
+    CriteriaQuery<Object> query = cb.createQuery();
+    Root root = query.from(entityClass);
+    QueryContext qc =
+        new QueryContext(entityClass, root, cb, query, Collections.emptyMap(), null);
+    query
+        .select(root.get(EntityUtils.getIdFieldName(entityClass)))
+        .where(condition.toPredicate(qc))
+        .distinct(true);
+    Query idsQuery = qc.bindParameters(em.createQuery(query)).setMaxResults(limit);
+    return QueryTelemetry.list(Kind.CRITERIA, idsQuery, idsQuery::getResultList);
+  }
+
+  private static Condition idIn(Class<?> entityClass, List<?> ids) {
+    return Condition.field(EntityUtils.getIdFieldName(entityClass)).in(ids);
+  }
+
+  // a missing condition, e.g. an equal to null, must not delete the whole table
+  private static void requireCondition(Class<?> entityClass, Condition condition) {
+    if (condition == null) {
+      throw new FtpServiceException(
+          String.format("A bulk statement on %s needs a condition", entityClass.getSimpleName()));
+    }
+  }
+}
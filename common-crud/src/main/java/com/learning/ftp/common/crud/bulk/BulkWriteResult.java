@@ -0,0 +1,41 @@
+package com.learning.ftp.common.crud.bulk;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+
+/** The rows a bulk write sent per entity class and the time it took. */
+public class BulkWriteResult {
+  private final Map<Class<?>, Integer> rowsByType;
+  private final int rows;
+  private final Duration elapsed;
+
+  BulkWriteResult(Map<Class<?>, Integer> rowsByType, Duration elapsed) {
+    this.rowsByType = Collections.unmodifiableMap(rowsByType);
+    this.rows = rowsByType.values().stream().mapToInt(Integer::intValue).sum();
+    this.elapsed = elapsed;
+  }
+
+  public int getRows() {
+    return rows;
+  }
+
+  public Map<Class<?>, Integer> getRowsByType() {
+    return rowsByType;
+  }
+
+  public Duration getElapsed() {
+    return elapsed;
+  }
+
+  public double getRowsPerSecond() {
+    long nanos = elapsed.toNanos();
+    return nanos == 0 ? 0 : rows * 1e9 / nanos;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "%d rows in %d ms, %.0f rows/s", rows, elapsed.toMillis(), getRowsPerSecond());
+  }
+}
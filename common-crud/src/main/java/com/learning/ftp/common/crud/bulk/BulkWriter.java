@@ -0,0 +1,111 @@
+package com.learning.ftp.common.crud.bulk;
+
+import com.learning.ftp.common.crud.util.EntityUtils;
+import com.learning.ftp.common.crud.util.TransactionHelper;
+import com.learning.ftp.common.exception.FtpServiceException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import javax.persistence.EntityManager;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Write many entities in JDBC batches. The entities are grouped by class, the classes are written
+ * in the order they first appear in the list, they are not sorted by their relations: list a
+ * parent before its children so it is inserted first. Each class is written in chunks of the batch
+ * size, a chunk is flushed as one JDBC batch and the persistence context is cleared after it, so
+ * the memory stays flat.
+ *
+ * <p>An insert persists the entities without the select of {@code save} for an assigned id, an
+ * update reattaches them without reading them first and writes all their columns, checking their
+ * version. An entity with an identity id cannot be inserted in batches, Hibernate sends it alone.
+ *
+ * <p>It joins the transaction of the caller or runs in its own one. The pending changes of the
+ * caller are flushed first and its entities are detached, like the written ones are.
+ */
+@Component
+public class BulkWriter {
+  public static final int DEFAULT_BATCH_SIZE = 500;
+  private static final Logger LOG = LoggerFactory.getLogger(BulkWriter.class);
+  private final EntityManager em;
+  private final TransactionHelper transactionHelper;
+
+  BulkWriter(EntityManager em, TransactionHelper transactionHelper) {
+    this.em = em;
+    this.transactionHelper = transactionHelper;
+  }
+
+  public BulkWriteResult insert(Collection<?> entities, int batchSize) {
+    return write("insert", entities, batchSize, Session::persist);
+  }
+
+  public BulkWriteResult update(Collection<?> entities, int batchSize) {
+    return write("update", entities, batchSize, Session::update);
+  }
+
+  private BulkWriteResult write(
+      String operation,
+      Collection<?> entities,
+      int batchSize,
+      BiConsumer<Session, Object> writeEntity) {
+    int size = batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+    Map<Class<?>, List<Object>> entitiesByType = groupByType(entities);
+    long start = System.nanoTime();
+    Map<Class<?>, Integer> rowsByType = new LinkedHashMap<>();
+    if (!entitiesByType.isEmpty()) {
+      transactionHelper.doInTransaction(
+          () -> {
+            Session session = em.unwrap(Session.class);
+            Integer previousBatchSize = session.getJdbcBatchSize();
+            session.flush();
+            session.clear();
+            session.setJdbcBatchSize(size);
+            try {
+              entitiesByType.forEach(
+                  (type, typeEntities) -> {
+                    for (int i = 0; i < typeEntities.size(); ++i) {
+                      writeEntity.accept(session, typeEntities.get(i));
+                      if ((i + 1) % size == 0 || i == typeEntities.size() - 1) {
+                        session.flush();
+                        session.clear();
+                      }
+                    }
+                    rowsByType.put(type, typeEntities.size());
+                  });
+            } finally {
+              session.setJdbcBatchSize(previousBatchSize);
+            }
+          });
+    }
+    BulkWriteResult result =
+        new BulkWriteResult(rowsByType, Duration.ofNanos(System.nanoTime() - start));
+    LOG.info("Bulk {} of {}", operation, result);
+    return result;
+  }
+
+  private static Map<Class<?>, List<Object>> groupByType(Collection<?> entities) {
+    Map<Class<?>, List<Object>> entitiesByType = new LinkedHashMap<>();
+    if (entities == null) {
+      return entitiesByType;
+    }
+    for (Object entity : entities) {
+      if (!EntityUtils.isEntity(entity)) {
+        throw new FtpServiceException(
+            String.format(
+                "%s is not an entity", entity == null ? null : entity.getClass().getSimpleName()));
+      }
+      entitiesByType
+          .computeIfAbsent(Hibernate.getClass(entity), type -> new ArrayList<>())
+          .add(entity);
+    }
+    return entitiesByType;
+  }
+}
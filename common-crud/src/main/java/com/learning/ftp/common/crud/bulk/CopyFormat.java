@@ -0,0 +1,22 @@
+package com.learning.ftp.common.crud.bulk;
+
+/** The format of the data a {@link CopyLoad} sends to {@code COPY FROM STDIN}. */
+public enum CopyFormat {
+  /** Text in quoted CSV, it accepts any column type Postgres can parse from text. */
+  CSV("csv"),
+  /**
+   * The binary format of Postgres, faster to parse but limited to the common column types: bool,
+   * the integer, float and numeric types, text, uuid, json, bytea, date, time and timestamps.
+   */
+  BINARY("binary");
+
+  private final String option;
+
+  CopyFormat(String option) {
+    this.option = option;
+  }
+
+  String getOption() {
+    return option;
+  }
+}
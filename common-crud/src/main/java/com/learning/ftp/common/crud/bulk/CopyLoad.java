@@ -0,0 +1,198 @@
+package com.learning.ftp.common.crud.bulk;
+
+import com.learning.ftp.common.crud.util.TransactionHelper;
+import com.learning.ftp.common.exception.FtpServiceException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A load of the entities of one class with {@code COPY FROM STDIN}, created by {@link CopyLoader}.
+ * The entities are encoded as they are read, so a stream of any size is loaded in constant memory,
+ * and never enter the persistence context: the entity listeners and the cascades do not apply,
+ * only the columns of the table of the class are written.
+ *
+ * <p>With an upsert, the entities are copied into a temporary table like the table of the class
+ * and inserted from there, a row whose conflict columns exist already is updated and its version
+ * incremented. The conflict columns must be unique in the load.
+ */
+public class CopyLoad<T> {
+  private static final Logger LOG = LoggerFactory.getLogger(CopyLoad.class);
+  private final Class<T> type;
+  private final EntityManager em;
+  private final TransactionHelper transactionHelper;
+  private CopyFormat format = CopyFormat.CSV;
+  private boolean isUpsert;
+  private List<String> conflictColumns;
+
+  CopyLoad(Class<T> type, EntityManager em, TransactionHelper transactionHelper) {
+    this.type = type;
+    this.em = em;
+    this.transactionHelper = transactionHelper;
+  }
+
+  public CopyLoad<T> withFormat(CopyFormat format) {
+    this.format = format;
+    return this;
+  }
+
+  /** Update the rows with the id of a loaded entity instead of failing on them. */
+  public CopyLoad<T> withUpsert() {
+    this.isUpsert = true;
+    this.conflictColumns = null;
+    return this;
+  }
+
+  /** Update the rows with the values of the columns, e.g. a unique key, of a loaded entity. */
+  public CopyLoad<T> withUpsert(String... conflictColumns) {
+    this.isUpsert = true;
+    this.conflictColumns = List.of(conflictColumns);
+    return this;
+  }
+
+  /** The stream is read to its end, it is closed by the caller. */
+  public BulkWriteResult execute(Stream<T> entities) {
+    return execute((Iterable<T>) entities::iterator);
+  }
+
+  /** Load the entities in the transaction of the caller or in a new one. */
+  public BulkWriteResult execute(Iterable<T> entities) {
+    long start = System.nanoTime();
+    long rows =
+        transactionHelper.doInTransaction(
+            () -> {
+              SessionImplementor session = em.unwrap(SessionImplementor.class);
+              return session.doReturningWork(connection -> load(connection, session, entities));
+            });
+    BulkWriteResult result =
+        new BulkWriteResult(
+            Map.of(type, Math.toIntExact(rows)), Duration.ofNanos(System.nanoTime() - start));
+    LOG.info("Copy of {} {}", type.getSimpleName(), result);
+    return result;
+  }
+
+  /**
+   * Write the data {@link #execute} would copy to the output, e.g. into a file for {@code psql
+   * \copy}. The column types are read from the database of the current tenant.
+   */
+  public void writeTo(OutputStream out, Iterable<T> entities) {
+    transactionHelper.doInTransaction(
+        () -> {
+          SessionImplementor session = em.unwrap(SessionImplementor.class);
+          session.doWork(
+              connection -> {
+                try {
+                  write(new CopyTable(session, type), connection, session, out, entities);
+                } catch (IOException e) {
+                  throw new FtpServiceException("Fail to write the copy data", e);
+                }
+              });
+        });
+  }
+
+  private long load(Connection connection, SessionImplementor session, Iterable<T> entities)
+      throws SQLException {
+    if (!connection.isWrapperFor(PGConnection.class)) {
+      throw new FtpServiceException("COPY needs a PostgreSQL connection");
+    }
+    CopyTable table = new CopyTable(session, type);
+    String target = isUpsert ? createStagingTable(connection, table) : table.getName();
+    String sql =
+        String.format(
+            "COPY %s (%s) FROM STDIN WITH (FORMAT %s)",
+            target, String.join(", ", table.getColumns()), format.getOption());
+    PGCopyOutputStream out = new PGCopyOutputStream(connection.unwrap(PGConnection.class), sql);
+    long rows;
+    try {
+      write(table, connection, session, out, entities);
+      out.close();
+      rows = out.getHandledRowCount();
+    } catch (IOException e) {
+      cancel(out);
+      throw new FtpServiceException("Fail to copy " + type.getSimpleName(), e);
+    } catch (SQLException | RuntimeException e) {
+      cancel(out);
+      throw e;
+    }
+    return isUpsert ? upsert(connection, table, target) : rows;
+  }
+
+  private static void cancel(PGCopyOutputStream out) throws SQLException {
+    if (out.isActive()) {
+      out.cancelCopy();
+    }
+  }
+
+  private void write(
+      CopyTable table,
+      Connection connection,
+      SessionImplementor session,
+      OutputStream out,
+      Iterable<T> entities)
+      throws SQLException, IOException {
+    CopyRowWriter writer =
+        CopyRowWriter.of(format, table.getColumns(), table.readColumnTypes(connection), out);
+    for (T entity : entities) {
+      writer.writeRow(table.getValues(entity, session));
+    }
+    writer.finish();
+  }
+
+  // dropped first in case the transaction loaded the class already, and with it in any case
+  private static String createStagingTable(Connection connection, CopyTable table)
+      throws SQLException {
+    String name = table.getName();
+    // qualified, so a table of the same name in the search path is never dropped or written
+    String staging =
+        "pg_temp.copy_" + name.substring(name.lastIndexOf('.') + 1).replaceAll("\\W", "");
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("DROP TABLE IF EXISTS " + staging);
+      statement.execute(
+          String.format(
+              "CREATE TEMP TABLE %s (LIKE %s INCLUDING DEFAULTS) ON COMMIT DROP", staging, name));
+    }
+    return staging;
+  }
+
+  private long upsert(Connection connection, CopyTable table, String staging) throws SQLException {
+    List<String> conflicts = conflictColumns != null ? conflictColumns : table.getIdColumns();
+    String versionColumn = table.getVersionColumn();
+    String updates =
+        table.getColumns().stream()
+            .filter(column -> !conflicts.contains(column))
+            .map(
+                column ->
+                    column.equals(versionColumn)
+                        ? String.format("%s = target.%s + 1", column, column)
+                        : String.format("%s = EXCLUDED.%s", column, column))
+            .collect(Collectors.joining(", "));
+    String columns = String.join(", ", table.getColumns());
+    String sql =
+        String.format(
+            "INSERT INTO %s AS target (%s) SELECT %s FROM %s ON CONFLICT (%s) DO %s",
+            table.getName(),
+            columns,
+            columns,
+            staging,
+            String.join(", ", conflicts),
+            updates.isEmpty() ? "NOTHING" : "UPDATE SET " + updates);
+    try (Statement statement = connection.createStatement()) {
+      long rows = statement.executeLargeUpdate(sql);
+      statement.execute("DROP TABLE " + staging);
+      return rows;
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package com.learning.ftp.common.crud.bulk;
+
+import com.learning.ftp.common.crud.util.TransactionHelper;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import org.springframework.stereotype.Component;
+
+/**
+ * Load entities into Postgres with {@code COPY FROM STDIN}, for imports and migrations too large
+ * for the batched inserts of {@link BulkWriter}. The columns and values come from the Hibernate
+ * mapping of the entity class, e.g.
+ *
+ * <pre>{@code
+ * copyLoader.copy(Employee.class).withFormat(CopyFormat.BINARY).withUpsert().execute(employees);
+ * }</pre>
+ */
+@Component
+public class CopyLoader {
+  private final EntityManager em;
+  private final TransactionHelper transactionHelper;
+
+  CopyLoader(EntityManager em, TransactionHelper transactionHelper) {
+    this.em = em;
+    this.transactionHelper = transactionHelper;
+  }
+
+  public <T> CopyLoad<T> copy(Class<T> type) {
+    return new CopyLoad<>(type, em, transactionHelper);
+  }
+
+  /** Insert the entities in CSV. */
+  public <T> BulkWriteResult load(Class<T> type, Stream<T> entities) {
+    return copy(type).execute(entities);
+  }
+}
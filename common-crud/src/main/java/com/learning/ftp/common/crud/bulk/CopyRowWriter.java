@@ -0,0 +1,316 @@
+package com.learning.ftp.common.crud.bulk;
+
+import com.learning.ftp.common.exception.FtpServiceException;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Encode the rows of a {@link CopyTable} in a {@link CopyFormat}, the column types of the table
+ * decide how a value is written.
+ */
+abstract class CopyRowWriter {
+  protected final String[] columns;
+  protected final String[] types;
+
+  CopyRowWriter(List<String> columns, String[] types) {
+    this.columns = columns.toArray(String[]::new);
+    this.types = types;
+  }
+
+  static CopyRowWriter of(
+      CopyFormat format, List<String> columns, String[] types, OutputStream out)
+      throws IOException {
+    return format == CopyFormat.BINARY
+        ? new Binary(columns, types, out)
+        : new Csv(columns, types, out);
+  }
+
+  abstract void writeRow(Object[] values) throws IOException;
+
+  /** Write the end of the data and flush it, the output stays open. */
+  abstract void finish() throws IOException;
+
+  /** The values written to a timestamp keep their zone, a plain timestamp column drops it. */
+  private static class Csv extends CopyRowWriter {
+    private static final DateTimeFormatter TIMESTAMP =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSSxxx");
+    private final Writer writer;
+
+    private Csv(List<String> columns, String[] types, OutputStream out) {
+      super(columns, types);
+      this.writer =
+          new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    @Override
+    void writeRow(Object[] values) throws IOException {
+      for (int i = 0; i < values.length; ++i) {
+        if (i > 0) {
+          writer.write(',');
+        }
+        // an unquoted empty value is null, a quoted one is an empty string
+        if (values[i] != null) {
+          writer.write('"');
+          writer.write(toText(values[i], types[i]).replace("\"", "\"\""));
+          writer.write('"');
+        }
+      }
+      writer.write('\n');
+    }
+
+    @Override
+    void finish() throws IOException {
+      writer.flush();
+    }
+
+    private static String toText(Object value, String type) {
+      if (value instanceof ZonedDateTime) {
+        return TIMESTAMP.format((ZonedDateTime) value);
+      }
+      if (value instanceof OffsetDateTime) {
+        return TIMESTAMP.format((OffsetDateTime) value);
+      }
+      if (value instanceof Instant) {
+        return TIMESTAMP.format(((Instant) value).atOffset(ZoneOffset.UTC));
+      }
+      if (value instanceof Boolean) {
+        return (Boolean) value ? "t" : "f";
+      }
+      if (value instanceof byte[]) {
+        byte[] bytes = (byte[]) value;
+        if ("uuid".equals(type) && bytes.length == 16) {
+          return toUuid(bytes).toString();
+        }
+        StringBuilder hex = new StringBuilder(2 + bytes.length * 2).append("\\x");
+        for (byte b : bytes) {
+          hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+          hex.append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+      }
+      if (value instanceof BigDecimal) {
+        return ((BigDecimal) value).toPlainString();
+      }
+      return String.valueOf(value);
+    }
+  }
+
+  /**
+   * The binary format of Postgres: a header, per row the field count and each field as its length
+   * and bytes, a trailer. The values are converted to the column type, e.g. an Integer is written
+   * as 8 bytes to an int8 column.
+   */
+  private static class Binary extends CopyRowWriter {
+    private static final byte[] SIGNATURE =
+        "PGCOPY\n\377\r\n\0".getBytes(StandardCharsets.ISO_8859_1);
+    private static final LocalDateTime POSTGRES_EPOCH = LocalDateTime.of(2000, 1, 1, 0, 0);
+    private static final long POSTGRES_EPOCH_DAY = POSTGRES_EPOCH.toLocalDate().toEpochDay();
+    private static final BigInteger TEN_THOUSAND = BigInteger.valueOf(10_000);
+    private final DataOutputStream out;
+
+    private Binary(List<String> columns, String[] types, OutputStream out) throws IOException {
+      super(columns, types);
+      this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+      this.out.write(SIGNATURE);
+      this.out.writeInt(0);
+      this.out.writeInt(0);
+    }
+
+    @Override
+    void writeRow(Object[] values) throws IOException {
+      out.writeShort(values.length);
+      for (int i = 0; i < values.length; ++i) {
+        if (values[i] == null) {
+          out.writeInt(-1);
+        } else {
+          writeField(values[i], i);
+        }
+      }
+    }
+
+    @Override
+    void finish() throws IOException {
+      out.writeShort(-1);
+      out.flush();
+    }
+
+    private void writeField(Object value, int column) throws IOException {
+      String type = types[column] == null ? "" : types[column];
+      switch (type) {
+        case "bool":
+          out.writeInt(1);
+          out.writeBoolean(
+              value instanceof Boolean ? (Boolean) value : ((Number) value).intValue() != 0);
+          break;
+        case "int2":
+          out.writeInt(2);
+          out.writeShort(((Number) value).shortValue());
+          break;
+        case "int4":
+        case "serial":
+          out.writeInt(4);
+          out.writeInt(((Number) value).intValue());
+          break;
+        case "int8":
+        case "bigserial":
+          out.writeInt(8);
+          out.writeLong(((Number) value).longValue());
+          break;
+        case "float4":
+          out.writeInt(4);
+          out.writeFloat(((Number) value).floatValue());
+          break;
+        case "float8":
+          out.writeInt(8);
+          out.writeDouble(((Number) value).doubleValue());
+          break;
+        case "numeric":
+          writeNumeric(
+              value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(value.toString()));
+          break;
+        case "text":
+        case "varchar":
+        case "bpchar":
+        case "json":
+          writeBytes(String.valueOf(value).getBytes(StandardCharsets.UTF_8), -1);
+          break;
+        case "jsonb":
+          writeBytes(String.valueOf(value).getBytes(StandardCharsets.UTF_8), 1);
+          break;
+        case "uuid":
+          UUID uuid =
+              value instanceof UUID
+                  ? (UUID) value
+                  : value instanceof byte[]
+                      ? toUuid((byte[]) value)
+                      : UUID.fromString(value.toString());
+          out.writeInt(16);
+          out.writeLong(uuid.getMostSignificantBits());
+          out.writeLong(uuid.getLeastSignificantBits());
+          break;
+        case "bytea":
+          writeBytes((byte[]) value, -1);
+          break;
+        case "date":
+          out.writeInt(4);
+          out.writeInt((int) (toLocalDate(value).toEpochDay() - POSTGRES_EPOCH_DAY));
+          break;
+        case "time":
+          out.writeInt(8);
+          out.writeLong(((LocalTime) value).toNanoOfDay() / 1000);
+          break;
+        case "timestamp":
+          out.writeInt(8);
+          out.writeLong(ChronoUnit.MICROS.between(POSTGRES_EPOCH, toLocalDateTime(value)));
+          break;
+        case "timestamptz":
+          out.writeInt(8);
+          Instant epoch = POSTGRES_EPOCH.toInstant(ZoneOffset.UTC);
+          out.writeLong(ChronoUnit.MICROS.between(epoch, toInstant(value)));
+          break;
+        default:
+          throw new FtpServiceException(
+              String.format(
+                  "Cannot copy column %s of type %s in binary, use CSV", columns[column], type));
+      }
+    }
+
+    // the prefix is the version byte of jsonb, none when negative
+    private void writeBytes(byte[] bytes, int prefix) throws IOException {
+      out.writeInt(bytes.length + (prefix >= 0 ? 1 : 0));
+      if (prefix >= 0) {
+        out.writeByte(prefix);
+      }
+      out.write(bytes);
+    }
+
+    // base 10000 digits from the most significant, the weight is the power of the first one
+    private void writeNumeric(BigDecimal value) throws IOException {
+      int scale = Math.max(value.scale(), 0);
+      BigInteger unscaled = value.setScale(scale).unscaledValue().abs();
+      int padding = (4 - scale % 4) % 4;
+      unscaled = unscaled.multiply(BigInteger.TEN.pow(padding));
+      int fractionDigits = (scale + padding) / 4;
+      List<Short> digits = new ArrayList<>();
+      while (unscaled.signum() > 0) {
+        BigInteger[] divided = unscaled.divideAndRemainder(TEN_THOUSAND);
+        digits.add(0, divided[1].shortValue());
+        unscaled = divided[0];
+      }
+      int weight = digits.size() - 1 - fractionDigits;
+      while (!digits.isEmpty() && digits.get(digits.size() - 1) == 0) {
+        digits.remove(digits.size() - 1);
+      }
+      out.writeInt(8 + digits.size() * 2);
+      out.writeShort(digits.size());
+      out.writeShort(digits.isEmpty() ? 0 : weight);
+      out.writeShort(value.signum() < 0 ? 0x4000 : 0);
+      out.writeShort(scale);
+      for (short digit : digits) {
+        out.writeShort(digit);
+      }
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+      if (value instanceof ZonedDateTime) {
+        return ((ZonedDateTime) value).toLocalDate();
+      }
+      return value instanceof LocalDateTime
+          ? ((LocalDateTime) value).toLocalDate()
+          : (LocalDate) value;
+    }
+
+    // a timestamp column keeps the wall clock the value was bound with
+    private static LocalDateTime toLocalDateTime(Object value) {
+      if (value instanceof ZonedDateTime) {
+        return ((ZonedDateTime) value).toLocalDateTime();
+      }
+      if (value instanceof OffsetDateTime) {
+        return ((OffsetDateTime) value).toLocalDateTime();
+      }
+      if (value instanceof Instant) {
+        return LocalDateTime.ofInstant((Instant) value, ZoneOffset.UTC);
+      }
+      return (LocalDateTime) value;
+    }
+
+    private static Instant toInstant(Object value) {
+      if (value instanceof ZonedDateTime) {
+        return ((ZonedDateTime) value).toInstant();
+      }
+      if (value instanceof OffsetDateTime) {
+        return ((OffsetDateTime) value).toInstant();
+      }
+      if (value instanceof LocalDateTime) {
+        return ((LocalDateTime) value).toInstant(ZoneOffset.UTC);
+      }
+      return (Instant) value;
+    }
+  }
+
+  private static UUID toUuid(byte[] bytes) {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    return new UUID(buffer.getLong(), buffer.getLong());
+  }
+}
@@ -0,0 +1,213 @@
+package com.learning.ftp.common.crud.bulk;
+
+import com.learning.ftp.common.exception.FtpServiceException;
+import java.io.Serializable;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.hibernate.Hibernate;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.id.PostInsertIdentifierGenerator;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.SingleTableEntityPersister;
+import org.hibernate.type.Type;
+
+/**
+ * The table and insertable columns of an entity class read from its Hibernate persister, with the
+ * JDBC values of an entity for them. The values are those Hibernate would bind to an insert, so
+ * the converters, enums, time zone and foreign keys of the mapping apply: the types bind them to a
+ * statement which only captures them.
+ */
+class CopyTable {
+  private final AbstractEntityPersister persister;
+  private final String name;
+  private final List<String> columns = new ArrayList<>();
+  private final boolean isIdGenerated;
+  private final int[] properties;
+  private final String discriminatorColumn;
+  private final Object[] row;
+  private final PreparedStatement capture;
+
+  CopyTable(SessionImplementor session, Class<?> type) {
+    this.persister =
+        (AbstractEntityPersister) session.getFactory().getMetamodel().entityPersister(type);
+    if (persister.getTableSpan() > 1) {
+      throw new FtpServiceException(
+          String.format("%s is mapped to several tables", type.getSimpleName()));
+    }
+    this.name = persister.getTableName();
+    // an identity id is left to the database
+    this.isIdGenerated =
+        persister.getIdentifierGenerator() instanceof PostInsertIdentifierGenerator;
+    if (!isIdGenerated) {
+      Collections.addAll(columns, persister.getIdentifierColumnNames());
+    }
+    boolean[] insertability = persister.getPropertyInsertability();
+    List<Integer> insertable = new ArrayList<>();
+    for (int i = 0; i < insertability.length; ++i) {
+      if (insertability[i] && persister.getPropertyColumnSpan(i) > 0) {
+        insertable.add(i);
+        Collections.addAll(columns, persister.getPropertyColumnNames(i));
+      }
+    }
+    this.properties = insertable.stream().mapToInt(Integer::intValue).toArray();
+    this.discriminatorColumn =
+        persister instanceof SingleTableEntityPersister
+            ? persister.getDiscriminatorColumnName()
+            : null;
+    if (discriminatorColumn != null) {
+      columns.add(discriminatorColumn);
+    }
+    this.row = new Object[columns.size()];
+    this.capture =
+        (PreparedStatement)
+            Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[] {PreparedStatement.class},
+                (proxy, method, args) -> {
+                  if (method.getName().startsWith("set")
+                      && args != null
+                      && args.length >= 2
+                      && args[0] instanceof Integer) {
+                    int index = (Integer) args[0] - 1;
+                    row[index] = method.getName().equals("setNull") ? null : toValue(args);
+                  }
+                  return defaultValue(method.getReturnType());
+                });
+  }
+
+  String getName() {
+    return name;
+  }
+
+  List<String> getColumns() {
+    return columns;
+  }
+
+  /** The id columns of the table, e.g. the conflict target of an upsert. */
+  List<String> getIdColumns() {
+    return List.of(persister.getIdentifierColumnNames());
+  }
+
+  /** The version column, {@code null} when the entity is not versioned. */
+  String getVersionColumn() {
+    return persister.isVersioned()
+        ? persister.getPropertyColumnNames(persister.getVersionProperty())[0]
+        : null;
+  }
+
+  /**
+   * The column values of the entity, valid until the next call. A missing id is generated and
+   * set on the entity, a missing version is seeded.
+   */
+  Object[] getValues(Object entity, SessionImplementor session) throws SQLException {
+    if (entity == null || persister.getMappedClass() != Hibernate.getClass(entity)) {
+      throw new FtpServiceException(
+          String.format("%s is not a %s", entity, persister.getMappedClass().getSimpleName()));
+    }
+    int index = 1;
+    if (!isIdGenerated) {
+      Serializable id = persister.getIdentifier(entity, session);
+      if (id == null) {
+        id = persister.getIdentifierGenerator().generate(session, entity);
+        persister.setIdentifier(entity, id, session);
+      }
+      persister.getIdentifierType().nullSafeSet(capture, id, index, session);
+      index += persister.getIdentifierColumnNames().length;
+    }
+    Object[] values = persister.getPropertyValues(entity);
+    Type[] types = persister.getPropertyTypes();
+    for (int property : properties) {
+      Object value = values[property];
+      if (value == null && persister.isVersioned() && property == persister.getVersionProperty()) {
+        // the entity is saved with it, so an entity referring to it is not taken as transient
+        value = persister.getVersionType().seed(session);
+        persister.setPropertyValue(entity, property, value);
+      }
+      types[property].nullSafeSet(capture, value, index, session);
+      index += persister.getPropertyColumnSpan(property);
+    }
+    if (discriminatorColumn != null) {
+      row[index - 1] = persister.getDiscriminatorValue();
+    }
+    return row;
+  }
+
+  /**
+   * The database type names of the columns, lower case, e.g. {@code int8} or {@code timestamptz}
+   * on Postgres; a column the metadata does not list has none.
+   */
+  String[] readColumnTypes(Connection connection) throws SQLException {
+    String table = unquote(name);
+    String schema = connection.getSchema();
+    int dot = table.lastIndexOf('.');
+    if (dot >= 0) {
+      schema = table.substring(0, dot);
+      table = table.substring(dot + 1);
+    }
+    Map<String, String> types = new HashMap<>();
+    DatabaseMetaData metaData = connection.getMetaData();
+    for (String tableName : List.of(table, table.toLowerCase(), table.toUpperCase())) {
+      try (ResultSet rs = metaData.getColumns(null, schema, tableName, null)) {
+        while (rs.next()) {
+          types.put(rs.getString("COLUMN_NAME").toLowerCase(), rs.getString("TYPE_NAME"));
+        }
+      }
+      if (!types.isEmpty()) {
+        break;
+      }
+    }
+    return columns.stream()
+        .map(column -> types.get(unquote(column).toLowerCase()))
+        .map(type -> type == null ? null : type.toLowerCase())
+        .toArray(String[]::new);
+  }
+
+  private static String unquote(String identifier) {
+    return identifier.replaceAll("[\"`\\[\\]]", "");
+  }
+
+  private static Object defaultValue(Class<?> returnType) {
+    if (returnType == boolean.class) {
+      return false;
+    }
+    if (returnType == int.class) {
+      return 0;
+    }
+    if (returnType == long.class) {
+      return 0L;
+    }
+    return null;
+  }
+
+  // the time values keep the zone they were bound for, a calendar or the default one
+  private static Object toValue(Object[] args) {
+    Object value = args[1];
+    ZoneId zone =
+        args.length > 2 && args[2] instanceof Calendar
+            ? ((Calendar) args[2]).getTimeZone().toZoneId()
+            : ZoneId.systemDefault();
+    if (value instanceof Timestamp) {
+      return ((Timestamp) value).toInstant().atZone(zone);
+    }
+    if (value instanceof java.sql.Date) {
+      return Instant.ofEpochMilli(((java.sql.Date) value).getTime()).atZone(zone).toLocalDate();
+    }
+    if (value instanceof java.sql.Time) {
+      return ((java.sql.Time) value).toLocalTime();
+    }
+    return value;
+  }
+}
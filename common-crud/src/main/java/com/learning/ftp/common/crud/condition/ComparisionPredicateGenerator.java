@@ -5,163 +5,109 @@ import com.learning.ftp.common.crud.util.DataTypeUtil;
 import com.learning.ftp.common.crud.util.EntityPathUtil;
 import com.learning.ftp.common.crud.util.EntityUtils;
 
-import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.ParameterExpression;
 import javax.persistence.criteria.Predicate;
 
+@SuppressWarnings({"rawtypes", "unchecked"})
 public class ComparisionPredicateGenerator {
+  private static final Set<String> COMPARABLE_TYPES =
+      Set.of("Timestamp", "Integer", "int", "Long", "long", "Double", "double");
+
   public static Predicate genGreaterThan(
       QueryContext qc, String fieldName, Object value, Object... moreVal) {
-    Class fieldType = EntityUtils.getFieldType(qc.getEntityClass(), fieldName);
-    return genPredicate(qc, "gt", fieldType, fieldName, value, moreVal);
+    return genPredicate(qc, "gt", fieldName, value, moreVal);
   }
 
   public static Predicate genGreaterThanOrEqual(
       QueryContext qc, String fieldName, Object value, Object... moreVal) {
-    Class fieldType = EntityUtils.getFieldType(qc.getEntityClass(), fieldName);
-    return genPredicate(qc, "gte", fieldType, fieldName, value, moreVal);
+    return genPredicate(qc, "gte", fieldName, value, moreVal);
   }
 
   public static Predicate genLessThan(
       QueryContext qc, String fieldName, Object value, Object... moreVal) {
-    Class fieldType = EntityUtils.getFieldType(qc.getEntityClass(), fieldName);
-    return genPredicate(qc, "lt", fieldType, fieldName, value, moreVal);
+    return genPredicate(qc, "lt", fieldName, value, moreVal);
   }
 
   public static Predicate genLessThanOrEqual(
       QueryContext qc, String fieldName, Object value, Object... moreVal) {
-    Class fieldType = EntityUtils.getFieldType(qc.getEntityClass(), fieldName);
-    return genPredicate(qc, "lte", fieldType, fieldName, value, moreVal);
+    return genPredicate(qc, "lte", fieldName, value, moreVal);
   }
 
   public static Predicate genBetween(
       QueryContext qc, String fieldName, Object value, Object... moreVal) {
-    Class fieldType = EntityUtils.getFieldType(qc.getEntityClass(), fieldName);
-    return genPredicate(qc, "bt", fieldType, fieldName, value, moreVal);
-  }
-
-  private static Predicate genPredicate(
-      QueryContext qc,
-      String op,
-      Class fieldType,
-      String fieldName,
-      Object value,
-      Object... moreVal) {
-    switch (fieldType.getSimpleName()) {
-      case "Timestamp":
-        return genPredicateTimestamp(qc, fieldType, op, fieldName, value, moreVal);
-      case "Integer":
-      case "int":
-        return genPredicateInteger(qc, fieldType, op, fieldName, value, moreVal);
-      case "Long":
-      case "long":
-        return genPredicateLong(qc, fieldType, op, fieldName, value, moreVal);
-      case "Double":
-      case "double":
-        return genPredicateDouble(qc, fieldType, op, fieldName, value, moreVal);
-    }
-    return null;
+    return genPredicate(qc, "bt", fieldName, value, moreVal);
   }
 
-  private static Predicate genPredicateTimestamp(
+  /**
+   * Compare the field to the values converted to the given type.
+   *
+   * @deprecated the values are converted to the field type by {@link #genGreaterThan} and the
+   *     other comparisons, use them instead.
+   */
+  @Deprecated
+  public static Predicate genPredicateDouble(
       QueryContext qc,
       Class fieldType,
       String op,
       String fieldName,
       Object value,
       Object... moreVal) {
-    Expression<Timestamp> fieldTypeExp = EntityPathUtil.getFieldPath(qc, fieldName);
-    Timestamp timeValue = DataTypeUtil.convertData(value, fieldType);
-    Timestamp timMoreVal =
-        moreVal.length > 0 ? (Timestamp) DataTypeUtil.convertData(moreVal[0], fieldType) : null;
-    switch (op) {
-      case "gt":
-        return qc.getCriteriaBuilder().greaterThan(fieldTypeExp, timeValue);
-      case "gte":
-        return qc.getCriteriaBuilder().greaterThanOrEqualTo(fieldTypeExp, timeValue);
-      case "lt":
-        return qc.getCriteriaBuilder().lessThan(fieldTypeExp, timeValue);
-      case "lte":
-        return qc.getCriteriaBuilder().lessThanOrEqualTo(fieldTypeExp, timeValue);
-      case "bt":
-        return qc.getCriteriaBuilder().between(fieldTypeExp, timeValue, timMoreVal);
+    List<ParameterExpression> params = new ArrayList<>();
+    params.add(qc.addParameter(fieldType, DataTypeUtil.convertData(value, fieldType)));
+    if (moreVal.length > 0) {
+      params.add(qc.addParameter(fieldType, DataTypeUtil.convertData(moreVal[0], fieldType)));
     }
-    return null;
+    return genPredicate(qc, op, fieldName, params);
   }
 
-  private static Predicate genPredicateInteger(
-      QueryContext qc,
-      Class fieldType,
-      String op,
-      String fieldName,
-      Object value,
-      Object... moreVal) {
-    Expression<Integer> fieldTypeExp = EntityPathUtil.getFieldPath(qc, fieldName);
-    Integer timeValue = DataTypeUtil.convertData(value, fieldType);
-    Integer timMoreVal =
-        moreVal.length > 0 ? DataTypeUtil.convertData(moreVal[0], fieldType) : null;
-    switch (op) {
-      case "gt":
-        return qc.getCriteriaBuilder().greaterThan(fieldTypeExp, timeValue);
-      case "gte":
-        return qc.getCriteriaBuilder().greaterThanOrEqualTo(fieldTypeExp, timeValue);
-      case "lt":
-        return qc.getCriteriaBuilder().lessThan(fieldTypeExp, timeValue);
-      case "lte":
-        return qc.getCriteriaBuilder().lessThanOrEqualTo(fieldTypeExp, timeValue);
-      case "bt":
-        return qc.getCriteriaBuilder().between(fieldTypeExp, timeValue, timMoreVal);
-    }
-    return null;
+  private static Predicate genPredicate(
+      QueryContext qc, String op, String fieldName, Object value, Object... moreVal) {
+    Class fieldType = EntityUtils.getFieldType(qc.getEntityClass(), fieldName);
+    List<ParameterExpression> params =
+        convertValues(fieldType, value, moreVal).stream()
+            .map(v -> qc.addParameter(v == null ? fieldType : v.getClass(), v))
+            .collect(Collectors.toList());
+    return genPredicate(qc, op, fieldName, params);
   }
 
-  private static Predicate genPredicateLong(
-      QueryContext qc,
-      Class fieldType,
-      String op,
-      String fieldName,
-      Object value,
-      Object... moreVal) {
-    Expression<Long> fieldTypeExp = EntityPathUtil.getFieldPath(qc, fieldName);
-    Long longValue = DataTypeUtil.convertData(value, fieldType);
-    Long longMoreVal = moreVal.length > 0 ? DataTypeUtil.convertData(moreVal[0], fieldType) : null;
-    switch (op) {
-      case "gt":
-        return qc.getCriteriaBuilder().greaterThan(fieldTypeExp, longValue);
-      case "gte":
-        return qc.getCriteriaBuilder().greaterThanOrEqualTo(fieldTypeExp, longValue);
-      case "lt":
-        return qc.getCriteriaBuilder().lessThan(fieldTypeExp, longValue);
-      case "lte":
-        return qc.getCriteriaBuilder().lessThanOrEqualTo(fieldTypeExp, longValue);
-      case "bt":
-        return qc.getCriteriaBuilder().between(fieldTypeExp, longValue, longMoreVal);
+  /** Convert the compared values to the field type, none when the type is not comparable. */
+  static List<Object> convertValues(Class fieldType, Object value, Object... moreVal) {
+    if (!COMPARABLE_TYPES.contains(fieldType.getSimpleName())) {
+      return Collections.emptyList();
     }
-    return null;
+    List<Object> values = new ArrayList<>();
+    values.add(DataTypeUtil.convertData(value, fieldType));
+    if (moreVal.length > 0) {
+      values.add(DataTypeUtil.convertData(moreVal[0], fieldType));
+    }
+    return values;
   }
 
-  public static Predicate genPredicateDouble(
-      QueryContext qc,
-      Class fieldType,
-      String op,
-      String fieldName,
-      Object value,
-      Object... moreVal) {
-    Expression<Double> fieldTypeExp = EntityPathUtil.getFieldPath(qc, fieldName);
-    Double doubleValue = DataTypeUtil.convertData(value, fieldType);
-    Double doubleMoreVal =
-        moreVal.length > 0 ? DataTypeUtil.convertData(moreVal[0], fieldType) : null;
+  static Predicate genPredicate(
+      QueryContext qc, String op, String fieldName, List<ParameterExpression> params) {
+    if (params.isEmpty()) {
+      return null;
+    }
+    CriteriaBuilder cb = qc.getCriteriaBuilder();
+    Expression fieldExp = EntityPathUtil.getFieldPath(qc, fieldName);
     switch (op) {
       case "gt":
-        return qc.getCriteriaBuilder().greaterThan(fieldTypeExp, doubleValue);
+        return cb.greaterThan(fieldExp, params.get(0));
       case "gte":
-        return qc.getCriteriaBuilder().greaterThanOrEqualTo(fieldTypeExp, doubleValue);
+        return cb.greaterThanOrEqualTo(fieldExp, params.get(0));
       case "lt":
-        return qc.getCriteriaBuilder().lessThan(fieldTypeExp, doubleValue);
+        return cb.lessThan(fieldExp, params.get(0));
       case "lte":
-        return qc.getCriteriaBuilder().lessThanOrEqualTo(fieldTypeExp, doubleValue);
+        return cb.lessThanOrEqualTo(fieldExp, params.get(0));
       case "bt":
-        return qc.getCriteriaBuilder().between(fieldTypeExp, doubleValue, doubleMoreVal);
+        return cb.between(fieldExp, params.get(0), params.get(1));
     }
     return null;
   }
@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.stream.Collectors;
 import javax.persistence.criteria.Predicate;
 
 class CompositeCondition extends Condition {
@@ -22,4 +23,24 @@ class CompositeCondition extends Condition {
         conditions.stream().filter(Objects::nonNull).map(c -> c.toPredicate(qc)).toArray(size -> new Predicate[size]);
     return isAnd ? qc.getCriteriaBuilder().and(predicates) : qc.getCriteriaBuilder().or(predicates);
   }
+
+  @Override
+  public String getShape() {
+    List<String> shapes =
+        conditions.stream()
+            .filter(Objects::nonNull)
+            .map(Condition::getShape)
+            .collect(Collectors.toList());
+    if (shapes.contains(null)) {
+      return null;
+    }
+    return String.format("%s(%s)", isAnd ? "and" : "or", String.join(",", shapes));
+  }
+
+  @Override
+  public void collectParameterValues(Class entityClass, List<Object> values) {
+    conditions.stream()
+        .filter(Objects::nonNull)
+        .forEach(c -> c.collectParameterValues(entityClass, values));
+  }
 }
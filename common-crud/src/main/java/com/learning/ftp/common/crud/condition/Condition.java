@@ -7,21 +7,35 @@ import lombok.Getter;
 import lombok.Setter;
 import org.apache.commons.lang3.StringUtils;
 
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.ParameterExpression;
 import javax.persistence.criteria.Predicate;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static com.learning.ftp.common.crud.util.EntityPathUtil.getFieldPath;
 import static com.learning.ftp.common.crud.util.EntityPathUtil.getJsonFieldPath;
 import static com.learning.ftp.common.crud.util.EntityPathUtil.isJsonField;
 
+/**
+ * A filter on an entity field. The values are always bound as query parameters, resolved by the
+ * {@code parameterResolver} against the queried entity class, so the rendered query text only
+ * depends on the {@link #getShape() shape} of the condition.
+ */
 @SuppressWarnings("unchecked")
 @Getter
 @Setter
 public class Condition {
+  private static final int MAX_IN_PARAMETERS = 1000;
   private String fieldName;
   private Object value;
   private Object value2;
+  private String operation;
+  private ParameterResolver parameterResolver = entityClass -> Collections.emptyList();
   private PredicateGenerator predicateGenerator;
 
   protected Condition() {}
@@ -35,118 +49,166 @@ public class Condition {
   }
 
   public Predicate toPredicate(QueryContext queryContext) {
-    return predicateGenerator.gen(queryContext);
+    List<ParameterExpression> parameters =
+        parameterResolver.resolve(queryContext.getEntityClass()).stream()
+            .map(v -> queryContext.addParameter(getParameterType(v), v))
+            .collect(Collectors.toList());
+    return predicateGenerator.gen(queryContext, parameters);
+  }
+
+  /**
+   * Describe the query text rendered by this condition, whatever its values are. It is {@code null}
+   * when the condition cannot tell, e.g. for subclasses overriding {@link #toPredicate}.
+   */
+  public String getShape() {
+    return operation == null ? null : String.format("%s:%s", fieldName, operation);
+  }
+
+  /** Collect the parameter values in the order {@link #toPredicate} binds them. */
+  public void collectParameterValues(Class entityClass, List<Object> values) {
+    values.addAll(parameterResolver.resolve(entityClass));
+  }
+
+  private static Class getParameterType(Object value) {
+    if (value == null) {
+      return Object.class;
+    }
+    return value instanceof Collection ? Collection.class : value.getClass();
+  }
+
+  private Condition with(
+      String operation, ParameterResolver resolver, PredicateGenerator generator) {
+    this.operation = operation;
+    this.parameterResolver = resolver;
+    this.predicateGenerator = generator;
+    return this;
   }
 
   public Condition like(String value) {
     if (value == null) {
       return null;
     }
-    this.predicateGenerator =
-        (queryContext) ->
-            queryContext
-                .getCriteriaBuilder()
-                .like(
-                    queryContext.getCriteriaBuilder().lower(getFieldPath(queryContext, fieldName)),
-                    String.format("%%%s%%", value.toLowerCase().replaceAll("%", "\\%")));
-    return this;
+    this.value = value;
+    return with(
+        "like",
+        entityClass ->
+            Collections.singletonList(
+                String.format("%%%s%%", value.toLowerCase().replaceAll("%", "\\%"))),
+        (qc, params) ->
+            qc.getCriteriaBuilder()
+                .like(qc.getCriteriaBuilder().lower(getFieldPath(qc, fieldName)), params.get(0)));
   }
 
   public Condition equal(Object value) {
     if (value == null) {
       return null;
     }
-    this.predicateGenerator = (queryContext) -> createEqualPredicate(queryContext, value);
-    return this;
+    return withEqualOrNotEqual(value, false);
   }
 
   public Condition in(Collection<?> range) {
     if (range == null || range.isEmpty()) {
       return null;
     }
-    this.predicateGenerator =
-        (queryContext) -> {
-          Class fieldType = EntityUtils.getFieldType(queryContext.getEntityClass(), fieldName);
-          Collection<?> newValues =
-              range.stream()
-                  .map(v -> DataTypeUtil.convertData(v, fieldType))
-                  .collect(Collectors.toList());
-          return getFieldPath(queryContext, fieldName).in(newValues);
-        };
-    return this;
+    this.value = range;
+    return with(
+        "in",
+        entityClass -> Collections.singletonList(convertRange(entityClass, range)),
+        (qc, params) -> getFieldPath(qc, fieldName).in(params.get(0)));
+  }
+
+  /**
+   * Like {@link #in(Collection)} but the values are bound as collection parameters without any
+   * conversion, so they must already have the field type. Large ranges are split into chunks of
+   * {@value #MAX_IN_PARAMETERS} values.
+   */
+  public Condition inParameters(Collection<?> range) {
+    if (range == null || range.isEmpty()) {
+      return null;
+    }
+    List<?> values = new ArrayList<>(range);
+    List<Object> chunks =
+        IntStream.range(0, (values.size() - 1) / MAX_IN_PARAMETERS + 1)
+            .mapToObj(
+                i ->
+                    values.subList(
+                        i * MAX_IN_PARAMETERS,
+                        Math.min(values.size(), (i + 1) * MAX_IN_PARAMETERS)))
+            .collect(Collectors.toList());
+    this.value = values;
+    return with(
+        String.format("inParameters(%d)", chunks.size()),
+        entityClass -> chunks,
+        (qc, params) -> {
+          Expression path = getFieldPath(qc, fieldName);
+          Predicate[] predicates =
+              params.stream().map(path::in).toArray(size -> new Predicate[size]);
+          return predicates.length == 1 ? predicates[0] : qc.getCriteriaBuilder().or(predicates);
+        });
   }
 
   public Condition contains(String value) {
     if (value == null) {
       return null;
     }
-    this.predicateGenerator =
-        (queryContext) -> {
-          Class fieldType = EntityUtils.getFieldType(queryContext.getEntityClass(), fieldName);
+    this.value = value;
+    return with(
+        "contains",
+        entityClass -> {
+          Class fieldType = EntityUtils.getFieldType(entityClass, fieldName);
           Class argumentType =
               fieldType.isArray()
                   ? fieldType.getComponentType()
-                  : EntityUtils.getEntityArgumentType(
-                      EntityUtils.getField(queryContext.getEntityClass(), fieldName));
-          return queryContext
-              .getCriteriaBuilder()
-              .isMember(
-                  (Object) DataTypeUtil.convertData(value, argumentType),
-                  getFieldPath(queryContext, fieldName));
-        };
-    return this;
+                  : EntityUtils.getEntityArgumentType(EntityUtils.getField(entityClass, fieldName));
+          return Collections.singletonList(DataTypeUtil.convertData(value, argumentType));
+        },
+        (qc, params) -> {
+          // a typed witness, isMember(E, ...) would match the parameter expression as well
+          Expression<Comparable> member = params.get(0);
+          Expression<Collection<Comparable>> collection = getFieldPath(qc, fieldName);
+          return qc.getCriteriaBuilder()
+              .<Comparable, Collection<Comparable>>isMember(member, collection);
+        });
   }
 
   public Condition notIn(Collection<?> range) {
     if (range == null || range.isEmpty()) {
       return null;
     }
-    this.predicateGenerator =
-        (queryContext) -> {
-          Class fieldType = EntityUtils.getFieldType(queryContext.getEntityClass(), fieldName);
-          Collection<?> newValues =
-              range.stream()
-                  .map(v -> DataTypeUtil.convertData(v, fieldType))
-                  .collect(Collectors.toList());
-          return queryContext
-              .getCriteriaBuilder()
-              .not(getFieldPath(queryContext, fieldName).in(newValues));
-        };
-    return this;
+    this.value = range;
+    return with(
+        "notIn",
+        entityClass -> Collections.singletonList(convertRange(entityClass, range)),
+        (qc, params) ->
+            qc.getCriteriaBuilder().not(getFieldPath(qc, fieldName).in(params.get(0))));
   }
 
   public Condition isNull() {
-    this.predicateGenerator =
-        (queryContext) ->
-            queryContext.getCriteriaBuilder().isNull(getFieldPath(queryContext, fieldName));
-    return this;
+    return with(
+        "isNull",
+        entityClass -> Collections.emptyList(),
+        (qc, params) -> qc.getCriteriaBuilder().isNull(getFieldPath(qc, fieldName)));
   }
 
   public Condition isNotNull() {
-    this.predicateGenerator =
-        (queryContext) ->
-            queryContext.getCriteriaBuilder().isNotNull(getFieldPath(queryContext, fieldName));
-    return this;
+    return with(
+        "isNotNull",
+        entityClass -> Collections.emptyList(),
+        (qc, params) -> qc.getCriteriaBuilder().isNotNull(getFieldPath(qc, fieldName)));
   }
 
   public Condition greaterThan(Object value) {
     if (value == null) {
       return null;
     }
-    this.predicateGenerator =
-        (queryContext) ->
-            ComparisionPredicateGenerator.genGreaterThan(queryContext, fieldName, value);
-    return this;
+    return withComparision("gt", value);
   }
 
   public Condition greaterThanOrEqual(Object value) {
     if (value == null) {
       return null;
     }
-    this.predicateGenerator =
-        (queryContext) ->
-            ComparisionPredicateGenerator.genGreaterThanOrEqual(queryContext, fieldName, value);
-    return this;
+    return withComparision("gte", value);
   }
 
   public Condition lt(String otherField) {
@@ -154,30 +216,27 @@ public class Condition {
       return null;
     }
 
-    this.predicateGenerator =
-        (qc) ->
+    this.value = otherField;
+    return with(
+        String.format("lt(%s)", otherField),
+        entityClass -> Collections.emptyList(),
+        (qc, params) ->
             qc.getCriteriaBuilder()
-                .lessThan(getFieldPath(qc, fieldName), getFieldPath(qc, otherField));
-    return this;
+                .lessThan(getFieldPath(qc, fieldName), getFieldPath(qc, otherField)));
   }
 
   public Condition lessThan(Object value) {
     if (value == null) {
       return null;
     }
-    this.predicateGenerator =
-        (queryContext) -> ComparisionPredicateGenerator.genLessThan(queryContext, fieldName, value);
-    return this;
+    return withComparision("lt", value);
   }
 
   public Condition lessThanOrEqual(Object value) {
     if (value == null) {
       return null;
     }
-    this.predicateGenerator =
-        (queryContext) ->
-            ComparisionPredicateGenerator.genLessThanOrEqual(queryContext, fieldName, value);
-    return this;
+    return withComparision("lte", value);
   }
 
   public Condition between(Object start, Object end) {
@@ -193,70 +252,91 @@ public class Condition {
       return greaterThanOrEqual(start);
     }
 
-    this.predicateGenerator =
-        (queryContext) ->
-            ComparisionPredicateGenerator.genBetween(queryContext, fieldName, start, end);
-    return this;
+    this.value2 = end;
+    return withComparision("bt", start, end);
   }
 
   public Condition notEqual(Object value) {
     if (value == null) {
       return null;
     }
-    this.predicateGenerator = (queryContext) -> createNotEqualPredicate(queryContext, value);
-    return this;
+    return withEqualOrNotEqual(value, true);
   }
 
-  private Predicate createEqualPredicate(QueryContext qc, Object value) {
-    return createEqualOrNotEqualPredicate(qc, value);
+  private Collection<?> convertRange(Class entityClass, Collection<?> range) {
+    Class fieldType = EntityUtils.getFieldType(entityClass, fieldName);
+    return range.stream()
+        .map(v -> DataTypeUtil.convertData(v, fieldType))
+        .collect(Collectors.toList());
   }
 
-  private Predicate createNotEqualPredicate(QueryContext qc, Object value, boolean... isNotEqual) {
-    return createEqualOrNotEqualPredicate(qc, value, true);
+  private Condition withComparision(String op, Object value, Object... moreVal) {
+    this.value = value;
+    return with(
+        op,
+        entityClass ->
+            ComparisionPredicateGenerator.convertValues(
+                EntityUtils.getFieldType(entityClass, fieldName), value, moreVal),
+        (qc, params) -> ComparisionPredicateGenerator.genPredicate(qc, op, fieldName, params));
   }
 
-  private Predicate createEqualOrNotEqualPredicate(
-      QueryContext qc, Object value, boolean... isNotEqual) {
+  private Condition withEqualOrNotEqual(Object value, boolean isNotEqual) {
+    this.value = value;
+    String op = isNotEqual ? "notEqual" : "equal";
     if (isJsonField(this.fieldName)) {
-      if (isNotEqual.length < 1 || !isNotEqual[0]) {
-        return qc.getCriteriaBuilder().equal(getJsonFieldPath(qc, this.fieldName), value);
-      }
-
-      return qc.getCriteriaBuilder().notEqual(getJsonFieldPath(qc, this.fieldName), value);
+      return with(
+          op + "(json)",
+          entityClass -> Collections.singletonList(value),
+          (qc, params) ->
+              isNotEqual
+                  ? qc.getCriteriaBuilder().notEqual(getJsonFieldPath(qc, fieldName), params.get(0))
+                  : qc.getCriteriaBuilder().equal(getJsonFieldPath(qc, fieldName), params.get(0)));
     }
+    boolean isEntityValue = EntityUtils.isEntity(value);
+    return with(
+        isEntityValue ? op + "(entity)" : op,
+        entityClass -> {
+          Class fieldType = EntityUtils.getFieldType(entityClass, fieldName);
+          Object realValue = value;
+          if (EntityUtils.isEntityClass(fieldType) && isEntityValue) {
+            fieldType = EntityUtils.getFieldType(fieldType, EntityUtils.getIdFieldName(fieldType));
+            realValue = EntityUtils.getId(value);
+          }
+          Object converted = DataTypeUtil.convertData(realValue, fieldType);
+          if (CharSequence.class.isAssignableFrom(fieldType) && converted != null) {
+            converted = converted.toString().toLowerCase();
+          }
+          return Collections.singletonList(converted);
+        },
+        (qc, params) ->
+            createEqualOrNotEqualPredicate(qc, params.get(0), isEntityValue, isNotEqual));
+  }
 
+  private Predicate createEqualOrNotEqualPredicate(
+      QueryContext qc, ParameterExpression parameter, boolean isEntityValue, boolean isNotEqual) {
     Class fieldType = EntityUtils.getFieldType(qc.getEntityClass(), fieldName);
     String realFieldName = fieldName;
-    if (EntityUtils.isEntityClass(fieldType) && EntityUtils.isEntity(value)) {
+    if (EntityUtils.isEntityClass(fieldType) && isEntityValue) {
       String idFieldName = EntityUtils.getIdFieldName(fieldType);
       fieldType = EntityUtils.getFieldType(fieldType, idFieldName);
-      value = EntityUtils.getId(value);
       realFieldName = String.format("%s.%s", fieldName, idFieldName);
     }
-    if (isNotEqual.length < 1 || !isNotEqual[0]) {
-      if (CharSequence.class.isAssignableFrom(fieldType)) {
-        return qc.getCriteriaBuilder()
-            .equal(
-                qc.getCriteriaBuilder().lower(getFieldPath(qc, realFieldName)),
-                DataTypeUtil.convertData(value, fieldType).toString().toLowerCase());
-      }
-      return qc.getCriteriaBuilder()
-          .equal(
-              getFieldPath(qc, realFieldName), (Object) DataTypeUtil.convertData(value, fieldType));
-    }
+    Expression path = getFieldPath(qc, realFieldName);
     if (CharSequence.class.isAssignableFrom(fieldType)) {
-      return qc.getCriteriaBuilder()
-          .notEqual(
-              qc.getCriteriaBuilder().lower(getFieldPath(qc, realFieldName)),
-              DataTypeUtil.convertData(value, fieldType).toString().toLowerCase());
+      path = qc.getCriteriaBuilder().lower(path);
     }
-    return qc.getCriteriaBuilder()
-        .notEqual(
-            getFieldPath(qc, realFieldName), (Object) DataTypeUtil.convertData(value, fieldType));
+    return isNotEqual
+        ? qc.getCriteriaBuilder().notEqual(path, parameter)
+        : qc.getCriteriaBuilder().equal(path, parameter);
+  }
+
+  @FunctionalInterface
+  private interface ParameterResolver {
+    List<Object> resolve(Class entityClass);
   }
 
   @FunctionalInterface
   private interface PredicateGenerator {
-    Predicate gen(QueryContext queryContext);
+    Predicate gen(QueryContext queryContext, List<ParameterExpression> parameters);
   }
 }
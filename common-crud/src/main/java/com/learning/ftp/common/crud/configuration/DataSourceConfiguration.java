@@ -12,6 +12,7 @@ import org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy;
 import org.springframework.boot.orm.jpa.hibernate.SpringPhysicalNamingStrategy;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
@@ -29,7 +30,7 @@ class DataSourceConfiguration {
 
   @Bean(name = "multiDataSource")
   public MultiDataSource multiDataSource() {
-    return new MultiDataSource(connectionProperties.getDatasources());
+    return new MultiDataSource(connectionProperties);
   }
 
   @Bean(name = "entityManagerFactory")
@@ -37,7 +38,13 @@ class DataSourceConfiguration {
       @Qualifier("multiDataSource") DataSource dataSource) {
     LocalContainerEntityManagerFactoryBean entityManagerFactoryBean =
         new LocalContainerEntityManagerFactoryBean();
-    entityManagerFactoryBean.setDataSource(dataSource);
+    // the connection of a read-only transaction goes to a replica, so it is only taken once the
+    // transaction is marked read-only
+    boolean hasReplicas =
+        connectionProperties.getDatasources().stream()
+            .anyMatch(ds -> ds.getReplicaUrls() != null && !ds.getReplicaUrls().isEmpty());
+    entityManagerFactoryBean.setDataSource(
+        hasReplicas ? new LazyConnectionDataSourceProxy(dataSource) : dataSource);
     entityManagerFactoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
     entityManagerFactoryBean.setPackagesToScan("com.learning");
 
@@ -46,6 +53,14 @@ class DataSourceConfiguration {
     jpaProperties.put("hibernate.temp.use_jdbc_metadata_defaults", false);
     jpaProperties.put("hibernate.implicit_naming_strategy", new SpringImplicitNamingStrategy());
     jpaProperties.put("hibernate.physical_naming_strategy", new SpringPhysicalNamingStrategy());
+    // keeps the rendered IN lists of paged ids to a few shapes so query plans are reused
+    jpaProperties.put("hibernate.query.in_clause_parameter_padding", true);
+    jpaProperties.put("hibernate.metadata_builder_contributor", new FindFunctionContributor());
+    // the statements of a flush go in batches, ordered so one entity class makes one batch
+    jpaProperties.put("hibernate.jdbc.batch_size", connectionProperties.getJdbcBatchSize());
+    jpaProperties.put("hibernate.order_inserts", true);
+    jpaProperties.put("hibernate.order_updates", true);
+    jpaProperties.put("hibernate.jdbc.batch_versioned_data", true);
     entityManagerFactoryBean.setJpaProperties(jpaProperties);
     entityManagerFactoryBean.afterPropertiesSet();
     return entityManagerFactoryBean;
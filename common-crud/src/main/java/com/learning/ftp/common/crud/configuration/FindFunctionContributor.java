@@ -0,0 +1,21 @@
+package com.learning.ftp.common.crud.configuration;
+
+import org.hibernate.boot.MetadataBuilder;
+import org.hibernate.boot.spi.MetadataBuilderContributor;
+import org.hibernate.dialect.function.SQLFunctionTemplate;
+import org.hibernate.type.LongType;
+
+/**
+ * Registers the SQL functions used by the finding handlers. Applications not using {@link
+ * DataSourceConfiguration} enable it with the {@code hibernate.metadata_builder_contributor} JPA
+ * property.
+ */
+public class FindFunctionContributor implements MetadataBuilderContributor {
+  public static final String COUNT_OVER = "count_all_over";
+
+  @Override
+  public void contribute(MetadataBuilder metadataBuilder) {
+    metadataBuilder.applySqlFunction(
+        COUNT_OVER, new SQLFunctionTemplate(LongType.INSTANCE, "count(*) over()"));
+  }
+}
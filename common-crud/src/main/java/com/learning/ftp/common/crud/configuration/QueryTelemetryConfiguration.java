@@ -0,0 +1,22 @@
+package com.learning.ftp.common.crud.configuration;
+
+import com.learning.ftp.common.crud.telemetry.QueryTelemetry;
+import java.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/** Apply the {@code query-telemetry} properties to the {@link QueryTelemetry} of the queries. */
+@Configuration
+class QueryTelemetryConfiguration {
+  private static final Logger LOG = LoggerFactory.getLogger(QueryTelemetryConfiguration.class);
+
+  QueryTelemetryConfiguration(
+      @Value("${query-telemetry.enable:true}") boolean isEnabled,
+      @Value("${query-telemetry.slowQueryMillis:1000}") long slowQueryMillis) {
+    QueryTelemetry.setEnabled(isEnabled);
+    QueryTelemetry.setSlowQueryThreshold(Duration.ofMillis(slowQueryMillis));
+    LOG.info("Query telemetry {}, slow query threshold {} ms", isEnabled, slowQueryMillis);
+  }
+}
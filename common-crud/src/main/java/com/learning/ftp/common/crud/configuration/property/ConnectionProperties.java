@@ -1,6 +1,9 @@
 package com.learning.ftp.common.crud.configuration.property;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -12,15 +15,61 @@ import org.springframework.context.annotation.Configuration;
 @Getter
 @Setter
 public class ConnectionProperties {
+  /**
+   * The lag is null when the replica is not streaming from the primary, a replica having replayed
+   * all it received may be far behind then. The status of the WAL receiver is null for a user
+   * without pg_read_all_stats, its row then tells the receiver runs.
+   */
+  public static final String POSTGRES_REPLICA_LAG_QUERY =
+      "SELECT CASE WHEN NOT EXISTS (SELECT 1 FROM pg_stat_wal_receiver"
+          + " WHERE COALESCE(status, 'streaming') = 'streaming') THEN NULL"
+          + " WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0"
+          + " ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) END";
+
   private List<DataSourceProp> datasources;
 
+  /** How long the pool of a tenant is kept without use before it is closed, 0 keeps it open. */
+  private Duration poolIdleTimeout = Duration.ofMinutes(30);
+
+  /** The replication lag from which the reads of a replica go to the primary. */
+  private Duration replicaMaxLag = Duration.ofSeconds(10);
+
+  private Duration replicaLagCheckInterval = Duration.ofSeconds(5);
+
+  /**
+   * The query answering the replication lag of a replica in seconds, no row or a null lag makes the
+   * replica unavailable.
+   */
+  private String replicaLagQuery = POSTGRES_REPLICA_LAG_QUERY;
+
+  /** The JDBC batch size of the inserts and updates Hibernate flushes, 0 sends them one by one. */
+  private int jdbcBatchSize = 500;
+
   @Getter
   @Setter
+  @EqualsAndHashCode
   public static class DataSourceProp {
     private String company;
     private String jdbcUrl;
     private String username;
     private String password;
+    /**
+     * The schema of the tenant in the database, the tenants with a schema share one pool per
+     * database and user.
+     */
+    private String schema;
+    /**
+     * The read replicas of the database, reached with the same user and pool settings. The
+     * read-only transactions use them when a tenant has replicas at startup, the reads marked by
+     * {@link com.learning.ftp.common.crud.datasource.ReplicaRouting} also when it is added later.
+     */
+    private List<String> replicaUrls = new ArrayList<>();
     private int maximumPoolSize;
+    private int minimumIdle = 1;
+    /** The Hikari timeouts of the pool, its defaults when they are not set. */
+    private Duration connectionTimeout;
+    private Duration idleTimeout;
+    private Duration maxLifetime;
+    private Duration leakDetectionThreshold;
   }
 }
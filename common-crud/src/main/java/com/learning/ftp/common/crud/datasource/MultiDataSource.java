@@ -1,50 +1,329 @@
 package com.learning.ftp.common.crud.datasource;
 
+import com.learning.ftp.common.crud.configuration.property.ConnectionProperties;
 import com.learning.ftp.common.crud.configuration.property.ConnectionProperties.DataSourceProp;
-import com.learning.ftp.common.util.SecurityUtil;
+import com.learning.ftp.common.security.TenantContext;
 import com.zaxxer.hikari.HikariConfig;
-import com.zaxxer.hikari.HikariDataSource;
+import java.io.Closeable;
 import java.io.PrintWriter;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.sql.DataSource;
+import org.slf4j.LoggerFactory;
 import org.springframework.util.StringUtils;
 
-public class MultiDataSource implements DataSource {
-  private String dbUrl;
-  private List<String> schemas;
-  private Map<String, DataSource> dataSources = new ConcurrentHashMap<>();
-  private String username;
-  private String password;
+/**
+ * Route the connections to the data source of the tenant in the {@link TenantContext}, the {@code
+ * default} one when there is no tenant or it has no data source of its own.
+ *
+ * <p>A tenant without a schema has a pool of its own. The tenants with a schema share one pool per
+ * database and user, a connection is switched to the schema of its tenant when it is borrowed, so
+ * the connections grow with the databases instead of the tenants. A shared pool takes its settings
+ * from the tenant which creates it.
+ *
+ * <p>The connections {@link ReplicaRouting} allows on a replica go to the replicas of the tenant in
+ * turn. A replica whose replication lag is over the max lag, or which failed a connection, is
+ * skipped until a lag check finds it back in sync, and so is a new replica pool until its first lag
+ * check; the primary serves when no replica is left.
+ *
+ * <p>A pool is created by its first connection and closed again once it has been idle for the pool
+ * idle timeout, except the primary pool of the default tenant. The tenants can be added, changed
+ * and removed at runtime; a pool no tenant uses anymore is closed once its borrowed connections are
+ * returned.
+ */
+public class MultiDataSource implements DataSource, Closeable {
+  private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(MultiDataSource.class);
+  private static final String DEFAULT_TENANT = "default";
+  private static final long REAPER_PERIOD_MILLIS = 30_000;
 
+  private final Map<String, Route> routes = new ConcurrentHashMap<>();
+  private final Map<String, TenantPool> pools = new ConcurrentHashMap<>();
+  private final Set<TenantPool> retiredPools = ConcurrentHashMap.newKeySet();
+  private final long poolIdleNanos;
+  private final Duration replicaMaxLag;
+  private final String replicaLagQuery;
+  private final ScheduledExecutorService reaper;
+
+  /** The tenants of the list with pools which are never closed. */
   public MultiDataSource(List<DataSourceProp> dataSourceProps) {
-    dataSources =
-        dataSourceProps.stream()
-            .collect(
-                Collectors.toMap(
-                    DataSourceProp::getCompany, ds -> new HikariDataSource(toHikariConfig(ds))));
+    this(withDataSources(dataSourceProps));
+  }
+
+  public MultiDataSource(ConnectionProperties properties) {
+    properties.getDatasources().forEach(ds -> routes.put(ds.getCompany(), new Route(ds)));
+    Duration poolIdleTimeout = properties.getPoolIdleTimeout();
+    this.poolIdleNanos =
+        poolIdleTimeout == null || poolIdleTimeout.isNegative() ? 0 : poolIdleTimeout.toNanos();
+    this.replicaMaxLag = properties.getReplicaMaxLag();
+    this.replicaLagQuery = properties.getReplicaLagQuery();
+    this.reaper =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread thread = new Thread(r, "multi-datasource-reaper");
+              thread.setDaemon(true);
+              return thread;
+            });
+    long period = REAPER_PERIOD_MILLIS;
+    if (poolIdleNanos > 0) {
+      period = Math.max(1, Math.min(period, TimeUnit.NANOSECONDS.toMillis(poolIdleNanos) / 4));
+    }
+    reaper.scheduleWithFixedDelay(this::closeUnusedPools, period, period, TimeUnit.MILLISECONDS);
+    long lagCheckPeriod = Math.max(1, properties.getReplicaLagCheckInterval().toMillis());
+    reaper.scheduleWithFixedDelay(
+        this::checkReplicaLags, lagCheckPeriod, lagCheckPeriod, TimeUnit.MILLISECONDS);
   }
 
   @Override
   public Connection getConnection() throws SQLException {
-    DataSource ds = getDataSource();
-    return ds.getConnection();
+    while (true) {
+      Connection connection = getConnection(getRoute());
+      if (connection != null) {
+        return connection;
+      }
+      // the tenant was changed or removed meanwhile, its route is looked up again
+      Thread.onSpinWait();
+    }
+  }
+
+  /** The companies with a data source of their own, the default one included. */
+  public Set<String> getTenants() {
+    return Collections.unmodifiableSet(routes.keySet());
+  }
+
+  /** The stats of the open pools by name, the retired ones closing included. */
+  public Map<String, PoolStats> getPoolStats() {
+    Map<String, Set<String>> tenants = new HashMap<>();
+    routes.forEach(
+        (tenant, route) ->
+            route
+                .getPoolRefs()
+                .map(poolRef -> tenants.computeIfAbsent(poolRef.key, k -> new TreeSet<>()))
+                .forEach(poolTenants -> poolTenants.add(tenant)));
+    Map<String, PoolStats> result = new TreeMap<>();
+    pools.forEach(
+        (key, pool) -> {
+          Set<String> poolTenants = tenants.getOrDefault(key, Set.of());
+          result.put(pool.getName(), new PoolStats(pool, Collections.unmodifiableSet(poolTenants)));
+        });
+    retiredPools.forEach(pool -> result.putIfAbsent(pool.getName(), new PoolStats(pool, Set.of())));
+    return result;
+  }
+
+  /** Add a tenant, or change it when it exists. */
+  public void addTenant(DataSourceProp dataSourceProp) {
+    String tenant = dataSourceProp.getCompany();
+    Route previous = routes.put(tenant, new Route(dataSourceProp));
+    if (previous != null) {
+      previous.isRetired = true;
+      if (!previous.dataSourceProp.equals(dataSourceProp)) {
+        retireUnused(previous);
+      }
+    }
+    LOG.info("Tenant {} {}", tenant, previous == null ? "added" : "updated");
   }
 
-  private DataSource getDataSource() {
-    if (SecurityUtil.getCurrentUser() == null) {
-      return dataSources.get("default");
+  /** Remove a tenant, its connections go to the default data source from now on. */
+  public void removeTenant(String tenant) {
+    Route previous = routes.remove(tenant);
+    if (previous != null) {
+      previous.isRetired = true;
+      retireUnused(previous);
+      LOG.info("Tenant {} removed", tenant);
+    }
+  }
+
+  /** Make the tenants those of the list, e.g. after the properties are reloaded. */
+  public void setTenants(List<DataSourceProp> tenants) {
+    Set<String> companies =
+        tenants.stream().map(DataSourceProp::getCompany).collect(Collectors.toSet());
+    routes.keySet().stream()
+        .filter(tenant -> !companies.contains(tenant))
+        .collect(Collectors.toList())
+        .forEach(this::removeTenant);
+    tenants.stream()
+        .filter(
+            ds -> {
+              Route route = routes.get(ds.getCompany());
+              return route == null || !route.dataSourceProp.equals(ds);
+            })
+        .forEach(this::addTenant);
+  }
+
+  @Override
+  public void close() {
+    reaper.shutdownNow();
+    pools.values().forEach(TenantPool::close);
+    pools.clear();
+    retiredPools.forEach(TenantPool::close);
+    retiredPools.clear();
+  }
+
+  private static ConnectionProperties withDataSources(List<DataSourceProp> dataSourceProps) {
+    ConnectionProperties properties = new ConnectionProperties();
+    properties.setDatasources(dataSourceProps);
+    properties.setPoolIdleTimeout(Duration.ZERO);
+    return properties;
+  }
+
+  private Route getRoute() {
+    String tenant = TenantContext.getTenant();
+    Route route = tenant == null ? null : routes.get(tenant);
+    if (route == null) {
+      route = routes.get(DEFAULT_TENANT);
+    }
+    if (route == null) {
+      throw new IllegalStateException("No data source for tenant " + tenant);
+    }
+    return route;
+  }
+
+  /** A connection of the route, {@code null} when the route was retired meanwhile. */
+  private Connection getConnection(Route route) throws SQLException {
+    if (!route.replicas.isEmpty() && ReplicaRouting.isReplicaAllowed()) {
+      Connection connection = getReplicaConnection(route);
+      if (connection != null) {
+        return connection;
+      }
+    }
+    return getConnection(route.primary, route.schema);
+  }
+
+  private Connection getConnection(PoolRef poolRef, String schema) throws SQLException {
+    while (true) {
+      TenantPool pool = getPool(poolRef);
+      if (pool == null) {
+        return null;
+      }
+      Connection connection = pool.getConnection(schema);
+      if (connection != null) {
+        return connection;
+      }
+      // the pool is closing, the next lookup finds it removed
+      poolRef.pool = null;
+      Thread.onSpinWait();
+    }
+  }
+
+  private Connection getReplicaConnection(Route route) {
+    int size = route.replicas.size();
+    int first = Math.floorMod(route.nextReplica.getAndIncrement(), size);
+    for (int i = 0; i < size; ++i) {
+      PoolRef replica = route.replicas.get((first + i) % size);
+      TenantPool pool = getPool(replica);
+      if (pool == null) {
+        return null;
+      }
+      if (!pool.isAvailable()) {
+        continue;
+      }
+      try {
+        return getConnection(replica, route.schema);
+      } catch (SQLException e) {
+        LOG.warn("Fail to connect to replica {}: {}", replica.name, e.getMessage());
+        pool.setUnavailable();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * The pool of the ref, created when there is none; {@code null} when it would be created for a
+   * retired route, which holds the settings the tenant had before it was changed.
+   */
+  private TenantPool getPool(PoolRef poolRef) {
+    TenantPool pool = poolRef.pool;
+    if (pool == null) {
+      // a retired route is marked before its pools are removed, so it cannot create one after
+      pool =
+          pools.computeIfAbsent(
+              poolRef.key, key -> poolRef.route.isRetired ? null : createPool(poolRef));
+      poolRef.pool = pool;
+    }
+    return pool;
+  }
+
+  private DataSource getPrimaryDataSource() {
+    while (true) {
+      TenantPool pool = getPool(getRoute().primary);
+      if (pool != null) {
+        return pool.getDataSource();
+      }
+    }
+  }
+
+  private TenantPool createPool(PoolRef poolRef) {
+    LOG.info("Create the connection pool {}", poolRef.name);
+    HikariConfig config = toHikariConfig(poolRef.dataSourceProp);
+    config.setJdbcUrl(poolRef.jdbcUrl);
+    config.setReadOnly(poolRef.isReplica);
+    return new TenantPool(poolRef.name, config);
+  }
+
+  // a dedicated pool may have changed settings, a shared one is kept while a tenant uses it
+  private void retireUnused(Route previous) {
+    Set<String> usedKeys =
+        routes.values().stream()
+            .flatMap(Route::getPoolRefs)
+            .map(poolRef -> poolRef.key)
+            .collect(Collectors.toSet());
+    previous
+        .getPoolRefs()
+        .filter(poolRef -> previous.schema == null || !usedKeys.contains(poolRef.key))
+        .forEach(
+            poolRef -> {
+              TenantPool pool = pools.remove(poolRef.key);
+              if (pool != null) {
+                pool.retire();
+                retiredPools.add(pool);
+              }
+            });
+  }
+
+  private void closeUnusedPools() {
+    try {
+      retiredPools.removeIf(TenantPool::closeIfReturned);
+      if (poolIdleNanos == 0) {
+        return;
+      }
+      Route defaultRoute = routes.get(DEFAULT_TENANT);
+      pools.forEach(
+          (key, pool) -> {
+            boolean isDefault = defaultRoute != null && defaultRoute.primary.key.equals(key);
+            if (!isDefault && pool.isIdle(poolIdleNanos) && pool.tryClose()) {
+              pools.remove(key, pool);
+              LOG.info("Close the idle connection pool {}", pool.getName());
+            }
+          });
+    } catch (RuntimeException e) {
+      LOG.warn("Fail to close the unused connection pools: {}", e.getMessage());
+    }
+  }
+
+  private void checkReplicaLags() {
+    try {
+      pools.values().stream()
+          .filter(TenantPool::isReplica)
+          .forEach(pool -> pool.checkLag(replicaLagQuery, replicaMaxLag));
+    } catch (RuntimeException e) {
+      LOG.warn("Fail to check the replica lags: {}", e.getMessage());
     }
-    String tenant = SecurityUtil.getCurrentUser().getCompanyShortName();
-    return StringUtils.isEmpty(tenant) || !dataSources.containsKey(tenant)
-        ? dataSources.get("default")
-        : dataSources.get(tenant);
   }
 
   @Override
@@ -54,54 +333,121 @@ public class MultiDataSource implements DataSource {
 
   @Override
   public PrintWriter getLogWriter() throws SQLException {
-    DataSource ds = getDataSource();
+    DataSource ds = getPrimaryDataSource();
     return ds.getLogWriter();
   }
 
   @Override
   public void setLogWriter(PrintWriter out) throws SQLException {
-    DataSource ds = getDataSource();
+    DataSource ds = getPrimaryDataSource();
     ds.setLogWriter(out);
   }
 
   @Override
   public void setLoginTimeout(int seconds) throws SQLException {
-    DataSource ds = getDataSource();
+    DataSource ds = getPrimaryDataSource();
     ds.setLoginTimeout(seconds);
   }
 
   @Override
   public int getLoginTimeout() throws SQLException {
-    DataSource ds = getDataSource();
+    DataSource ds = getPrimaryDataSource();
     return ds.getLoginTimeout();
   }
 
   @Override
   public Logger getParentLogger() throws SQLFeatureNotSupportedException {
-    DataSource ds = getDataSource();
+    DataSource ds = getPrimaryDataSource();
     return ds.getParentLogger();
   }
 
   @Override
   public <T> T unwrap(Class<T> iface) throws SQLException {
-    DataSource ds = getDataSource();
+    DataSource ds = getPrimaryDataSource();
     return ds.unwrap(iface);
   }
 
   @Override
   public boolean isWrapperFor(Class<?> iface) throws SQLException {
-    DataSource ds = getDataSource();
+    DataSource ds = getPrimaryDataSource();
     return ds.isWrapperFor(iface);
   }
 
   private HikariConfig toHikariConfig(DataSourceProp dsProps) {
     HikariConfig cfg = new HikariConfig();
     cfg.setJdbcUrl(dsProps.getJdbcUrl());
-    cfg.setMinimumIdle(1);
+    cfg.setMinimumIdle(dsProps.getMinimumIdle());
     cfg.setMaximumPoolSize(dsProps.getMaximumPoolSize());
     cfg.setPassword(dsProps.getPassword());
     cfg.setUsername(dsProps.getUsername());
     cfg.setAutoCommit(false);
+    if (dsProps.getJdbcUrl() != null && dsProps.getJdbcUrl().startsWith("jdbc:postgresql:")) {
+      // the driver sends a batch of inserts as multi-row inserts
+      cfg.addDataSourceProperty("reWriteBatchedInserts", "true");
+    }
+    if (dsProps.getConnectionTimeout() != null) {
+      cfg.setConnectionTimeout(dsProps.getConnectionTimeout().toMillis());
+    }
+    if (dsProps.getIdleTimeout() != null) {
+      cfg.setIdleTimeout(dsProps.getIdleTimeout().toMillis());
+    }
+    if (dsProps.getMaxLifetime() != null) {
+      cfg.setMaxLifetime(dsProps.getMaxLifetime().toMillis());
+    }
+    if (dsProps.getLeakDetectionThreshold() != null) {
+      cfg.setLeakDetectionThreshold(dsProps.getLeakDetectionThreshold().toMillis());
+    }
     return cfg;
   }
+
+  /** How the connections of a tenant are made. */
+  private static final class Route {
+    private final DataSourceProp dataSourceProp;
+    private final String schema;
+    private final PoolRef primary;
+    private final List<PoolRef> replicas;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private volatile boolean isRetired;
+
+    private Route(DataSourceProp dataSourceProp) {
+      this.dataSourceProp = dataSourceProp;
+      this.schema =
+          StringUtils.hasText(dataSourceProp.getSchema()) ? dataSourceProp.getSchema() : null;
+      this.primary = new PoolRef(this, dataSourceProp.getJdbcUrl(), false);
+      this.replicas =
+          dataSourceProp.getReplicaUrls() == null
+              ? List.of()
+              : dataSourceProp.getReplicaUrls().stream()
+                  .map(url -> new PoolRef(this, url, true))
+                  .collect(Collectors.toUnmodifiableList());
+    }
+
+    private Stream<PoolRef> getPoolRefs() {
+      return Stream.concat(Stream.of(primary), replicas.stream());
+    }
+  }
+
+  /** A pool of a tenant, looked up once and kept until it is closed. */
+  private static final class PoolRef {
+    private final Route route;
+    private final DataSourceProp dataSourceProp;
+    private final String jdbcUrl;
+    private final boolean isReplica;
+    private final String key;
+    private final String name;
+    private volatile TenantPool pool;
+
+    private PoolRef(Route route, String jdbcUrl, boolean isReplica) {
+      this.route = route;
+      this.dataSourceProp = route.dataSourceProp;
+      String schema = route.schema;
+      this.jdbcUrl = jdbcUrl;
+      this.isReplica = isReplica;
+      // the tenants with a schema share the pools of a database
+      String owner = schema == null ? dataSourceProp.getCompany() : dataSourceProp.getUsername();
+      this.key = schema == null && !isReplica ? owner : owner + "@" + jdbcUrl;
+      // the parameters of the url may hold secrets, the name is logged
+      this.name = key.replaceFirst("[?;].*", "");
+    }
+  }
 }
@@ -0,0 +1,83 @@
+package com.learning.ftp.common.crud.datasource;
+
+import com.learning.ftp.common.cache.LatencyHistogram;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+/**
+ * The gauges of a connection pool of a {@link MultiDataSource}, read live from the pool, e.g.
+ * {@code datasource.connections{pool, state=active|idle|pending}} and {@code
+ * datasource.acquire.duration}. A pool serves one tenant, or the tenants in the schemas of one
+ * database; its stats are gone once it is closed.
+ */
+public class PoolStats {
+  private final TenantPool pool;
+  private final Set<String> tenants;
+
+  PoolStats(TenantPool pool, Set<String> tenants) {
+    this.pool = pool;
+    this.tenants = tenants;
+  }
+
+  /** The company of a dedicated pool or {@code user@url}, without the url parameters. */
+  public String getName() {
+    return pool.getName();
+  }
+
+  /** The tenants routed to the pool when the stats were taken. */
+  public Set<String> getTenants() {
+    return tenants;
+  }
+
+  public boolean isReplica() {
+    return pool.isReplica();
+  }
+
+  /** False while a replica is skipped for its lag or a failed connection. */
+  public boolean isAvailable() {
+    return pool.isAvailable();
+  }
+
+  /** Whether the pool has been started by a connection and is not closed yet. */
+  public boolean isStarted() {
+    return pool.getDataSource().getHikariPoolMXBean() != null && !pool.getDataSource().isClosed();
+  }
+
+  public int getMaximumPoolSize() {
+    return pool.getDataSource().getMaximumPoolSize();
+  }
+
+  /** The borrowed connections. */
+  public int getActiveConnections() {
+    return read(HikariPoolMXBean::getActiveConnections);
+  }
+
+  public int getIdleConnections() {
+    return read(HikariPoolMXBean::getIdleConnections);
+  }
+
+  public int getTotalConnections() {
+    return read(HikariPoolMXBean::getTotalConnections);
+  }
+
+  /** The threads waiting for a connection, the pool is saturated while it is above 0. */
+  public int getPendingThreads() {
+    return read(HikariPoolMXBean::getThreadsAwaitingConnection);
+  }
+
+  /** The time to borrow a connection, failed attempts included. */
+  public LatencyHistogram getAcquireLatency() {
+    return pool.getAcquireLatency();
+  }
+
+  /** The attempts which got no connection, mostly the connection timeouts. */
+  public long getAcquireFailures() {
+    return pool.getAcquireFailures();
+  }
+
+  private int read(ToIntFunction<HikariPoolMXBean> gauge) {
+    HikariPoolMXBean bean = pool.getDataSource().getHikariPoolMXBean();
+    return bean == null || pool.getDataSource().isClosed() ? 0 : gauge.applyAsInt(bean);
+  }
+}
@@ -0,0 +1,38 @@
+package com.learning.ftp.common.crud.datasource;
+
+import java.util.function.Supplier;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Which connections of a tenant with replicas may go to a replica: those of a read-only
+ * transaction, and those of reads marked by {@link #readOnly} outside a transaction. A read-write
+ * transaction always stays on the primary, even for the marked reads inside it.
+ */
+public final class ReplicaRouting {
+  private static final ThreadLocal<Boolean> READ_ONLY = new ThreadLocal<>();
+
+  private ReplicaRouting() {}
+
+  /** Run reads which may be served by a replica. */
+  public static <T> T readOnly(Supplier<T> reads) {
+    Boolean previous = READ_ONLY.get();
+    READ_ONLY.set(Boolean.TRUE);
+    try {
+      return reads.get();
+    } finally {
+      if (previous == null) {
+        READ_ONLY.remove();
+      } else {
+        READ_ONLY.set(previous);
+      }
+    }
+  }
+
+  static boolean isReplicaAllowed() {
+    if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+      return true;
+    }
+    return !TransactionSynchronizationManager.isActualTransactionActive()
+        && Boolean.TRUE.equals(READ_ONLY.get());
+  }
+}
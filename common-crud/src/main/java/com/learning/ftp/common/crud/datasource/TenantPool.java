@@ -0,0 +1,191 @@
+package com.learning.ftp.common.crud.datasource;
+
+import com.google.common.collect.MapMaker;
+import com.learning.ftp.common.cache.LatencyHistogram;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The Hikari pool of a tenant, or of the tenants in the schemas of one database, started by its
+ * first connection. A pool is closed only when it has been idle long enough and no connection is
+ * borrowed or being borrowed; a borrower meeting a closing pool gets no connection and looks the
+ * pool up again.
+ *
+ * <p>The pool of a replica is available while its replication lag is under the max lag. A new one
+ * is not available before its first lag check, which starts it, so the reads do not go to a
+ * replica whose lag is unknown.
+ */
+class TenantPool {
+  private static final Logger LOG = LoggerFactory.getLogger(TenantPool.class);
+  private final String name;
+  private final boolean isReplica;
+  private final HikariDataSource dataSource = new HikariDataSource();
+  private final AtomicInteger borrowers = new AtomicInteger();
+  private final Map<Connection, String> schemas = new MapMaker().weakKeys().makeMap();
+  private final LatencyHistogram acquireLatency = new LatencyHistogram();
+  private final LongAdder acquireFailures = new LongAdder();
+  private volatile boolean isClosing;
+  private volatile long lastUsedNanos = System.nanoTime();
+  private volatile boolean isAvailable;
+
+  TenantPool(String name, HikariConfig config) {
+    this.name = name;
+    this.isReplica = config.isReadOnly();
+    this.isAvailable = !isReplica;
+    config.copyStateTo(dataSource);
+    dataSource.setPoolName(name);
+  }
+
+  String getName() {
+    return name;
+  }
+
+  HikariDataSource getDataSource() {
+    return dataSource;
+  }
+
+  boolean isReplica() {
+    return isReplica;
+  }
+
+  LatencyHistogram getAcquireLatency() {
+    return acquireLatency;
+  }
+
+  long getAcquireFailures() {
+    return acquireFailures.sum();
+  }
+
+  boolean isAvailable() {
+    return isAvailable;
+  }
+
+  /** Skip the replica until a lag check finds it back in sync, e.g. it failed a connection. */
+  void setUnavailable() {
+    if (isAvailable) {
+      isAvailable = false;
+      LOG.warn("Replica {} is unavailable", name);
+    }
+  }
+
+  /**
+   * Measure the replication lag of a replica, it is unavailable when unknown: the query fails,
+   * answers no row or a null lag.
+   */
+  void checkLag(String lagQuery, Duration maxLag) {
+    boolean isInSync;
+    try (Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement();
+        ResultSet rs = statement.executeQuery(lagQuery)) {
+      boolean hasRow = rs.next();
+      double lagSeconds = hasRow ? rs.getDouble(1) : 0;
+      isInSync = hasRow && !rs.wasNull() && lagSeconds * 1000 <= maxLag.toMillis();
+    } catch (SQLException | RuntimeException e) {
+      // a pool failing to start throws a runtime exception
+      isInSync = false;
+    }
+    if (isInSync && !isAvailable) {
+      LOG.info("Replica {} is available", name);
+      isAvailable = true;
+    } else if (!isInSync) {
+      setUnavailable();
+    }
+  }
+
+  /**
+   * A connection of the pool using the schema when it is not null, {@code null} when the pool is
+   * closing.
+   */
+  Connection getConnection(String schema) throws SQLException {
+    borrowers.incrementAndGet();
+    try {
+      if (isClosing) {
+        return null;
+      }
+      long start = System.nanoTime();
+      lastUsedNanos = start;
+      Connection connection;
+      try {
+        connection = dataSource.getConnection();
+      } catch (SQLException e) {
+        acquireFailures.increment();
+        throw e;
+      } finally {
+        acquireLatency.record(System.nanoTime() - start);
+      }
+      if (schema != null) {
+        try {
+          useSchema(connection, schema);
+        } catch (SQLException | RuntimeException e) {
+          connection.close();
+          throw e;
+        }
+      }
+      return connection;
+    } finally {
+      borrowers.decrementAndGet();
+    }
+  }
+
+  boolean isIdle(long idleNanos) {
+    return System.nanoTime() - lastUsedNanos >= idleNanos;
+  }
+
+  /** Stop lending connections, false when a connection is still borrowed. */
+  boolean tryClose() {
+    isClosing = true;
+    // a borrower counts itself before it checks the flag, so it sees the flag or it is seen here
+    if (closeIfReturned()) {
+      return true;
+    }
+    isClosing = false;
+    return false;
+  }
+
+  /** Stop lending connections and close the pool once the borrowed ones are returned. */
+  void retire() {
+    isClosing = true;
+  }
+
+  /** Close a retired pool, false while a connection is still borrowed. */
+  boolean closeIfReturned() {
+    HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+    if (borrowers.get() > 0 || pool != null && pool.getActiveConnections() > 0) {
+      return false;
+    }
+    dataSource.close();
+    return true;
+  }
+
+  void close() {
+    isClosing = true;
+    dataSource.close();
+  }
+
+  // the schema is set on the physical connection behind the pool, which does not reset it, so a
+  // connection keeps its schema between the checkouts and switches only for another tenant
+  private void useSchema(Connection connection, String schema) throws SQLException {
+    Connection physical = connection.unwrap(Connection.class);
+    if (schema.equals(schemas.get(physical))) {
+      return;
+    }
+    schemas.remove(physical);
+    physical.setSchema(schema);
+    if (!physical.getAutoCommit()) {
+      // a rollback of the transaction would switch the schema back
+      physical.commit();
+    }
+    schemas.put(physical, schema);
+  }
+}
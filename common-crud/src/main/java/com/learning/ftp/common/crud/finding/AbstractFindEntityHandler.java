@@ -5,22 +5,17 @@ import com.learning.ftp.common.crud.condition.Conditions;
 import com.learning.ftp.common.exception.FtpServiceException;
 import com.learning.ftp.common.crud.util.EntityPathUtil;
 import com.learning.ftp.common.crud.util.EntityUtils;
-import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
 import java.util.stream.Collectors;
 import javax.persistence.EntityManager;
-import javax.persistence.MapKey;
 import javax.persistence.Query;
 import javax.persistence.Tuple;
 import javax.persistence.criteria.CriteriaBuilder;
@@ -34,6 +29,21 @@ import org.springframework.util.StringUtils;
 
 public abstract class AbstractFindEntityHandler<T> {
   private static final String ROOT_ALIAS = "_root";
+  private static final ClassValue<Boolean> OVERRIDES_QUERY_CRITERIA =
+      new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+          for (Class<?> c = type; c != AbstractFindEntityHandler.class; c = c.getSuperclass()) {
+            try {
+              c.getDeclaredMethod("getMoreCriteria", QueryContext.class);
+              return true;
+            } catch (NoSuchMethodException e) {
+              // look in the superclass
+            }
+          }
+          return false;
+        }
+      };
   private Condition condition;
   private Class<T> entityClass;
   private FindContext findContext;
@@ -74,7 +84,12 @@ public abstract class AbstractFindEntityHandler<T> {
   }
 
   protected List<T> getListResult() {
-    QueryResult<T> qr = executeQuery();
+    return getListResult(getMoreCriteria());
+  }
+
+  /** The entities matching the condition of the handler and the given one. */
+  protected List<T> getListResult(Condition moreCondition) {
+    QueryResult<T> qr = executeQuery(moreCondition);
     boolean hasMoreFields = fields.length > 0;
     if (!hasMoreFields) {
       return (List<T>)
@@ -86,183 +101,117 @@ public abstract class AbstractFindEntityHandler<T> {
     Map<String, String> fieldToAlias =
         qr.getAliasMapping().entrySet().stream()
             .collect(Collectors.toMap(Map.Entry::getValue, Map.Entry::getKey));
-    return groupTupleByRoot((List<Tuple>) qr.getResult()).entrySet().stream()
-        .map(e -> addFieldsToEntity(fieldToAlias, e.getKey(), e.getValue()))
-        .collect(Collectors.toList());
+    return new TupleAssembler<T>(
+            ROOT_ALIAS, fields, fieldToAlias, e -> isEmptyLazyField ? fillNullToLazyFields(e) : e)
+        .assemble((List<Tuple>) qr.getResult());
   }
 
-  private T addFieldsToEntity(Map<String, String> fieldToAlias, T entity, List<Tuple> tuples) {
-    Map<String, Object> fieldValues = new HashMap<>();
-    for (String fieldName : fields) {
-      List values =
-          tuples.stream()
-              .map(t -> t.get(fieldToAlias.get(fieldName)))
-              .filter(Objects::nonNull)
-              .collect(Collectors.toList());
-      Object fieldValue;
-      if (!fieldName.contains(".")) {
-        fieldValue =
-            setFieldValueToEntity(
-                entity, values, EntityUtils.getField(entity.getClass(), fieldName));
-      } else {
-        int i = fieldName.lastIndexOf(".");
-        String realFieldName = fieldName.substring(i + 1);
-        String parentField = fieldName.substring(0, i);
-        fieldValue = fieldValues.get(parentField);
-        fieldValue = setFieldValueToObject(fieldValue, values, realFieldName);
-      }
-      fieldValues.put(fieldName, fieldValue);
-    }
+  protected <E> E fillNullToLazyFields(E entity) {
+    // fill null all lazy fields
+    EntityUtils.fill(entity, EntityUtils.getLazyEntityFields(entity.getClass()), null);
     return entity;
   }
 
-  private Object setFieldValueToEntity(Object entity, List tupleElements, Field field) {
-    Class fieldType = field.getType();
-    if (!Map.class.isAssignableFrom(fieldType) && !Collection.class.isAssignableFrom(fieldType)) {
-      if (tupleElements.isEmpty()) {
-        return null;
-      }
-      EntityUtils.setFieldValue(entity, field, tupleElements.get(0));
-      return tupleElements.get(0);
-    }
-    Object fieldValue = EntityUtils.getFieldValue(entity, field.getName());
-    LinkedHashSet setItem = new LinkedHashSet(tupleElements);
-    if (Map.class.isAssignableFrom(fieldType)) {
-      HashMap map = new HashMap();
-      MapKey mk = field.getAnnotation(MapKey.class);
-      map.putAll(
-          (Map)
-              setItem.stream()
-                  .collect(Collectors.toMap(e -> EntityUtils.getFieldValue(e, mk.name()), e -> e)));
-      if (!shouldSetCollectionValueToEntity(map.keySet(), (Collection) fieldValue)) {
-        return fieldValue;
-      }
-      EntityUtils.setFieldValue(entity, field, map);
-      return map;
-    }
-    if (Set.class.isAssignableFrom(fieldType)) {
-      Set set = new HashSet(setItem);
-      if (!shouldSetCollectionValueToEntity(set, (Collection) fieldValue)) {
-        return fieldValue;
-      }
-      EntityUtils.setFieldValue(entity, field, set);
-      return set;
-    }
-    List list = new ArrayList((List) setItem.stream().collect(Collectors.toList()));
-    if (!shouldSetCollectionValueToEntity(list, (Collection) fieldValue)) {
-      return fieldValue;
+  private QueryResult<T> executeQuery(Condition moreCondition) {
+    try {
+      PreparedQuery preparedQuery = prepareQuery(moreCondition);
+      return new QueryResult<>(preparedQuery.getAliasMapping(), preparedQuery.getResultList());
+    } catch (Exception ex) {
+      throw new FtpServiceException("Error when executeQuery: " + ex.getMessage(), ex);
     }
-    EntityUtils.setFieldValue(entity, field, list);
-    return list;
   }
 
-  private static boolean shouldSetCollectionValueToEntity(
-      Collection newValue, Collection currentValue) {
-    try {
-      if (!EntityUtils.isObjectProxy(currentValue)
-          && currentValue != null
-          && newValue.size() == currentValue.size()) {
-        return false;
-      }
-    } catch (Throwable err) {
-      return true;
-    }
-    return true;
+  /** Create the entity query with its parameters bound. */
+  PreparedQuery prepareQuery() {
+    return prepareQuery(getMoreCriteria());
   }
 
-  private Object setFieldValueToObject(Object target, List tupleElements, String fieldName) {
-    Class targetClass = target.getClass();
-    if (EntityUtils.isEntity(target)) {
-      return setFieldValueToEntity(
-          target, tupleElements, EntityUtils.getField(targetClass, fieldName));
+  private PreparedQuery prepareQuery(Condition moreCondition) {
+    Condition where = condition;
+    if (condition == null) {
+      where = moreCondition;
+    } else if (moreCondition != null) {
+      where = Conditions.and(condition, moreCondition);
     }
-    Collection<?> values;
-    if (Map.class.isAssignableFrom(targetClass)) {
-      values = ((Map) target).values();
-    } else {
-      values = (Collection) target;
+    // a condition built from the criteria query is not in the plan key
+    boolean hasQueryCriteria = OVERRIDES_QUERY_CRITERIA.get(getClass());
+    String planKey = hasQueryCriteria ? null : getPlanKey(where);
+    FindQueryPlan plan = planKey != null ? FindQueryPlanCache.get(planKey) : null;
+    if (plan != null && plan.isCacheable()) {
+      return new PreparedQuery(
+          createPlanQuery(plan, where), plan.getAliasMapping(), plan.getRowAliases());
     }
-    List addedValues = new ArrayList();
-    for (Object entityItem : values) {
-      List fieldVal =
-          (List)
-              tupleElements.stream()
-                  .filter(e -> isEntityParentOf(entityItem, e, fieldName))
-                  .collect(Collectors.toList());
-      if (fieldVal != null) {
-        addedValues.add(
-            setFieldValueToEntity(
-                entityItem, fieldVal, EntityUtils.getField(entityItem.getClass(), fieldName)));
+    QueryContext qc = createCriteriaQuery();
+    CriteriaQuery criteriaQuery = qc.getQuery();
+    if (hasQueryCriteria) {
+      Condition queryCondition = getMoreCriteria(qc);
+      if (where == null) {
+        where = queryCondition;
+      } else if (queryCondition != null) {
+        where = Conditions.and(where, queryCondition);
       }
     }
-    return addedValues;
+    if (where != null) {
+      criteriaQuery.where(where.toPredicate(qc));
+    }
+    addSortInfo(qc, criteriaQuery);
+    Query sqlQuery = qc.bindParameters(findContext.getEntityManager().createQuery(criteriaQuery));
+    if (planKey != null && plan == null) {
+      FindQueryPlanCache.put(planKey, FindQueryPlan.of(sqlQuery, qc));
+    }
+    setResultSizeAndSegment(sqlQuery);
+    return new PreparedQuery(sqlQuery, qc.getAliasMapping(), null);
   }
 
-  private boolean isEntityParentOf(Object entity, Object childEntity, String fieldName) {
-    if (childEntity == null || entity == null) {
-      return false;
+  private Query createPlanQuery(FindQueryPlan plan, Condition where) {
+    List<Object> values = new ArrayList<>();
+    if (where != null) {
+      where.collectParameterValues(entityClass, values);
     }
-    Object fieldValue = EntityUtils.getFieldValue(entity, fieldName);
-    if (!EntityUtils.isEntityClass(childEntity.getClass())) {
-      return Objects.equals(fieldValue, childEntity);
+    if (values.size() != plan.getParameterCount()) {
+      throw new FtpServiceException(
+          String.format(
+              "Query plan expects %d parameters but %d are given",
+              plan.getParameterCount(), values.size()));
     }
-    if (Objects.equals(EntityUtils.getId(childEntity), EntityUtils.getId(fieldValue))) {
-      return true;
+    Query sqlQuery = findContext.getEntityManager().createQuery(plan.getJpql());
+    for (int i = 0; i < values.size(); ++i) {
+      sqlQuery.setParameter(QueryContext.getParameterName(i), values.get(i));
     }
-    return EntityUtils.getFields(childEntity.getClass(), entity.getClass()).keySet().stream()
-        .filter(fn -> EntityUtils.getFieldValue(childEntity, fn).equals(entity))
-        .findFirst()
-        .isPresent();
+    setResultSizeAndSegment(sqlQuery);
+    return sqlQuery;
   }
 
-  private Map<T, List<Tuple>> groupTupleByRoot(List<Tuple> tuples) {
-    LinkedHashMap<T, List<Tuple>> entityTuples = new LinkedHashMap<>();
-    for (Tuple tuple : tuples) {
-      List<Tuple> entityPart;
-      T entityRoot = (T) tuple.get(ROOT_ALIAS);
-      if (isEmptyLazyField) {
-        fillNullToLazyFields(entityRoot);
-      }
-      if (!entityTuples.containsKey(entityRoot)) {
-        entityPart = new ArrayList<>();
-        entityTuples.put(entityRoot, entityPart);
-      } else {
-        entityPart = entityTuples.get(entityRoot);
-      }
-      entityPart.add(tuple);
+  // the values are bound as parameters, so the query text only depends on this key
+  private String getPlanKey(Condition where) {
+    String whereShape = where != null ? where.getShape() : "";
+    if (!FindQueryPlanCache.isEnabled() || whereShape == null) {
+      return null;
     }
-    return entityTuples;
-  }
-
-  private <T> T fillNullToLazyFields(T entity) {
-    // fill null all lazy fields
-    EntityUtils.fill(entity, EntityUtils.getLazyEntityFields(entity.getClass()), null);
-    return entity;
+    Sort[] effectiveSorts = getEffectiveSorts();
+    String sortShape =
+        effectiveSorts == null
+            ? ""
+            : Arrays.stream(effectiveSorts)
+                .filter(Objects::nonNull)
+                .map(s -> (s.isAsc() ? "+" : "-") + s.getField())
+                .collect(Collectors.joining(","));
+    return String.join(
+        "|",
+        entityClass.getName(),
+        String.join(",", fields),
+        joinType.name(),
+        sortShape,
+        whereShape);
   }
 
-  private QueryResult<T> executeQuery() {
-    QueryContext qc = createCriteriaQuery();
-    try {
-      Condition moreCondition = getMoreCriteria(qc);
-      CriteriaQuery criteriaQuery = qc.getQuery();
-      if (condition != null && moreCondition == null) {
-        criteriaQuery.where(condition.toPredicate(qc));
-      } else if (condition == null && moreCondition != null) {
-        criteriaQuery.where(moreCondition.toPredicate(qc));
-      } else if (condition != null && moreCondition != null) {
-        criteriaQuery.where(Conditions.and(condition, moreCondition).toPredicate(qc));
-      }
-      addSortInfo(qc, criteriaQuery);
-      Query sqlQuery = findContext.getEntityManager().createQuery(criteriaQuery);
-      setResultSizeAndSegment(sqlQuery);
-      return new QueryResult<>(qc.getAliasMapping(), sqlQuery.getResultList());
-    } catch (Exception ex) {
-      throw new FtpServiceException("Error when executeQuery: " + ex.getMessage(), ex);
-    }
+  protected List<Path> addSortInfo(QueryContext qc, CriteriaQuery criteriaQuery) {
+    return addSortInfo(qc, criteriaQuery, getEffectiveSorts());
   }
 
-  protected List<Path> addSortInfo(QueryContext qc, CriteriaQuery criteriaQuery) {
-    return addSortInfo(qc, criteriaQuery, sorts);
+  /** The sorts applied to the entity query, {@link #getSorts()} unless the handler adds more. */
+  protected Sort[] getEffectiveSorts() {
+    return sorts;
   }
 
   protected AbstractFindEntityHandler setEmptyLazyFields() {
@@ -323,6 +272,18 @@ public abstract class AbstractFindEntityHandler<T> {
     return new QueryContext(entityClass, root, cb, query, selectionPaths, aliasMapping);
   }
 
+  /** A condition added to the one of the handler, it is part of the query plan key. */
+  protected Condition getMoreCriteria() {
+    return null;
+  }
+
+  /**
+   * A condition added to the one of the handler, built from the criteria query. The query of a
+   * handler overriding it is not cached.
+   *
+   * @deprecated override {@link #getMoreCriteria()}, so the query plan can be cached.
+   */
+  @Deprecated
   protected Condition getMoreCriteria(QueryContext qc) {
     return null;
   }
@@ -360,6 +321,18 @@ public abstract class AbstractFindEntityHandler<T> {
     return path.alias(alias);
   }
 
+  protected String[] getFields() {
+    return fields;
+  }
+
+  protected JoinType getJoinType() {
+    return joinType;
+  }
+
+  protected boolean isEmptyLazyField() {
+    return isEmptyLazyField;
+  }
+
   public FindContext getFindContext() {
     return findContext;
   }
@@ -0,0 +1,81 @@
+package com.learning.ftp.common.crud.finding;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import javax.persistence.Tuple;
+import javax.persistence.TupleElement;
+
+/** A {@link Tuple} over a result row array whose elements are named by the given aliases. */
+@SuppressWarnings("unchecked")
+class ArrayTuple implements Tuple {
+  private final List<String> aliases;
+  private final Object[] values;
+
+  ArrayTuple(List<String> aliases, Object[] values) {
+    this.aliases = aliases;
+    this.values = values;
+  }
+
+  @Override
+  public <X> X get(TupleElement<X> tupleElement) {
+    return (X) get(tupleElement.getAlias());
+  }
+
+  @Override
+  public <X> X get(String alias, Class<X> type) {
+    return type.cast(get(alias));
+  }
+
+  @Override
+  public Object get(String alias) {
+    int i = aliases.indexOf(alias);
+    if (i < 0) {
+      throw new IllegalArgumentException(String.format("Unknown alias [%s]", alias));
+    }
+    return values[i];
+  }
+
+  @Override
+  public <X> X get(int i, Class<X> type) {
+    return type.cast(get(i));
+  }
+
+  @Override
+  public Object get(int i) {
+    return values[i];
+  }
+
+  @Override
+  public Object[] toArray() {
+    return Arrays.copyOf(values, values.length);
+  }
+
+  @Override
+  public List<TupleElement<?>> getElements() {
+    return IntStream.range(0, values.length)
+        .mapToObj(i -> new Element(aliases.get(i), values[i]))
+        .collect(Collectors.toList());
+  }
+
+  private static class Element implements TupleElement<Object> {
+    private final String alias;
+    private final Object value;
+
+    private Element(String alias, Object value) {
+      this.alias = alias;
+      this.value = value;
+    }
+
+    @Override
+    public Class<?> getJavaType() {
+      return value == null ? Object.class : value.getClass();
+    }
+
+    @Override
+    public String getAlias() {
+      return alias;
+    }
+  }
+}
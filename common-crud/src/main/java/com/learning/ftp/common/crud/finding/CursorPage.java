@@ -0,0 +1,23 @@
+package com.learning.ftp.common.crud.finding;
+
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+
+/**
+ * A slice of a keyset (seek) paginated result. The {@link #getNextCursor()} token is opaque and
+ * should be passed back through {@link FindPageEntityHandler#withCursor(String)} to read the
+ * following slice; it is {@code null} when there is no more data.
+ */
+public class CursorPage<T> extends SliceImpl<T> {
+  private final String nextCursor;
+
+  public CursorPage(List<T> content, Pageable pageable, String nextCursor) {
+    super(content, pageable, nextCursor != null);
+    this.nextCursor = nextCursor;
+  }
+
+  public String getNextCursor() {
+    return nextCursor;
+  }
+}
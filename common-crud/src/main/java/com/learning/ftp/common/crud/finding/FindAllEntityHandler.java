@@ -1,10 +1,37 @@
 package com.learning.ftp.common.crud.finding;
 
 import com.learning.ftp.common.crud.condition.Condition;
+import com.learning.ftp.common.crud.condition.Conditions;
+import com.learning.ftp.common.crud.datasource.ReplicaRouting;
+import com.learning.ftp.common.crud.util.EntityPathUtil;
+import com.learning.ftp.common.crud.util.EntityUtils;
+import com.learning.ftp.common.exception.FtpServiceException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import javax.persistence.EntityManager;
 import javax.persistence.criteria.JoinType;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 public class FindAllEntityHandler<T> extends AbstractFindEntityHandler<T> {
+  private static final int DEFAULT_FETCH_SIZE = 500;
+  private int fetchSize = DEFAULT_FETCH_SIZE;
+  private boolean isScrolling = false;
+  private boolean isDetachingFilled = false;
+
   public FindAllEntityHandler(Class clazz, String[] fields, FindContext findContext) {
     super(clazz, fields, findContext);
   }
@@ -27,8 +54,45 @@ public class FindAllEntityHandler<T> extends AbstractFindEntityHandler<T> {
     return this;
   }
 
+  /** The JDBC fetch size and the number of entities between two clears of the streaming modes. */
+  public FindAllEntityHandler<T> withFetchSize(int fetchSize) {
+    this.fetchSize = fetchSize > 0 ? fetchSize : DEFAULT_FETCH_SIZE;
+    return this;
+  }
+
+  /** Outside a transaction, the query may be served by a replica of the tenant. */
   public List<T> execute() {
-    return getListResult();
+    return ReplicaRouting.readOnly(this::getListResult);
+  }
+
+  /**
+   * Stream the entities from a scrollable cursor instead of loading the whole result. The
+   * persistence context is flushed and cleared every fetch size entities, so the changes made to
+   * the streamed entities are saved, then they are detached and the memory stays flat. With empty
+   * lazy fields, an entity is detached before its lazy fields are cleared and its changes are not
+   * saved. It must run in a transaction and the stream must be closed. A sort by a collection path
+   * is rejected.
+   */
+  public Stream<T> executeStream() {
+    BatchIterator batches = new BatchIterator(fetchSize);
+    return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(batches, Spliterator.ORDERED), false)
+        .onClose(batches::close)
+        .flatMap(List::stream);
+  }
+
+  /**
+   * Pass the entities to the consumer in lists of the batch size, the persistence context is
+   * flushed and cleared after each batch is consumed. It must run in a transaction. A sort by a
+   * collection path is rejected.
+   */
+  public void forEachBatch(int batchSize, Consumer<List<T>> consumer) {
+    BatchIterator batches = new BatchIterator(batchSize > 0 ? batchSize : fetchSize);
+    try {
+      batches.forEachRemaining(consumer);
+    } finally {
+      batches.close();
+    }
   }
 
   @Override
@@ -36,4 +100,153 @@ public class FindAllEntityHandler<T> extends AbstractFindEntityHandler<T> {
     super.sortBy(sort);
     return this;
   }
+
+  // the rows of an entity must be adjacent to skip the duplicates a join condition makes
+  @Override
+  protected Sort[] getEffectiveSorts() {
+    if (!isScrolling) {
+      return super.getEffectiveSorts();
+    }
+    String idFieldName = EntityUtils.getIdFieldName(getEntityClass());
+    List<Sort> scrollSorts = new ArrayList<>();
+    if (getSorts() != null) {
+      Arrays.stream(getSorts()).filter(Objects::nonNull).forEach(scrollSorts::add);
+    }
+    if (scrollSorts.stream().noneMatch(s -> idFieldName.equals(s.getField()))) {
+      scrollSorts.add(Sort.asc(idFieldName));
+    }
+    return scrollSorts.toArray(new Sort[] {});
+  }
+
+  private ScrollableResults scroll(int size) {
+    if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+      throw new FtpServiceException(
+          "Streaming find must run in a transaction to keep the cursor open");
+    }
+    // the fields are loaded per batch, so the cursor only reads the entities
+    FindAllEntityHandler<T> rootHandler =
+        new FindAllEntityHandler<T>(getEntityClass(), new String[] {}, getFindContext())
+            .withCondition(getCondition())
+            .withJoinType(getJoinType())
+            .sortBy(getSorts());
+    rootHandler.isScrolling = true;
+    rootHandler.requireRootSorts();
+    org.hibernate.query.Query query =
+        rootHandler.prepareQuery().getQuery().unwrap(org.hibernate.query.Query.class);
+    query.setFetchSize(size);
+    return query.scroll(ScrollMode.FORWARD_ONLY);
+  }
+
+  // a sort through a collection interleaves the rows of the entities, their duplicates stay
+  private void requireRootSorts() {
+    QueryContext qc = createCriteriaQuery();
+    addSortInfo(qc, qc.getQuery());
+    if (EntityPathUtil.hasCollectionJoin(qc.getRoot())) {
+      throw new FtpServiceException(
+          String.format(
+              "Streaming find of %s cannot sort by a collection path",
+              getEntityClass().getSimpleName()));
+    }
+  }
+
+  private List<T> loadFields(List<T> roots) {
+    if (getFields().length == 0 || roots.isEmpty()) {
+      return roots;
+    }
+    String idFieldName = EntityUtils.getIdFieldName(getEntityClass());
+    Function<T, Object> getId = getIdentifier();
+    Condition idIn =
+        Condition.field(idFieldName)
+            .inParameters(roots.stream().map(getId).collect(Collectors.toList()));
+    // the condition also restricts the fetched children, like for a list result
+    FindAllEntityHandler<T> fieldHandler =
+        new FindAllEntityHandler<T>(getEntityClass(), getFields(), getFindContext())
+            .withJoinType(getJoinType())
+            .withCondition(
+                getCondition() == null ? idIn : Conditions.and(getCondition(), idIn));
+    if (isEmptyLazyField()) {
+      fieldHandler.setEmptyLazyFields();
+      fieldHandler.isDetachingFilled = true;
+    }
+    Map<Object, T> entities =
+        fieldHandler.execute().stream().collect(Collectors.toMap(getId, e -> e, (a, b) -> a));
+    return roots.stream()
+        .map(r -> entities.get(getId.apply(r)))
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList());
+  }
+
+  // the batches are flushed, the cleared lazy fields of a managed entity would be written
+  @Override
+  protected <E> E fillNullToLazyFields(E entity) {
+    return isDetachingFilled ? fillDetached(entity) : super.fillNullToLazyFields(entity);
+  }
+
+  private <E> E fillDetached(E entity) {
+    getFindContext().getEntityManager().detach(entity);
+    return super.fillNullToLazyFields(entity);
+  }
+
+  private Function<T, Object> getIdentifier() {
+    EntityManager em = getFindContext().getEntityManager();
+    return e -> em.getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(e);
+  }
+
+  private class BatchIterator implements Iterator<List<T>> {
+    private final int batchSize;
+    private final ScrollableResults results;
+    private final Function<T, Object> getId = getIdentifier();
+    private List<T> nextBatch;
+    private Object lastId;
+    private boolean isCleared = true;
+
+    private BatchIterator(int batchSize) {
+      this.batchSize = batchSize;
+      this.results = scroll(batchSize);
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (nextBatch == null) {
+        nextBatch = readBatch();
+      }
+      return !nextBatch.isEmpty();
+    }
+
+    @Override
+    public List<T> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      List<T> batch = nextBatch;
+      nextBatch = null;
+      return batch;
+    }
+
+    private List<T> readBatch() {
+      if (!isCleared) {
+        // the previous batch is consumed, save its changes and release it
+        EntityManager em = getFindContext().getEntityManager();
+        em.flush();
+        em.clear();
+        isCleared = true;
+      }
+      List<T> roots = new ArrayList<>();
+      while (roots.size() < batchSize && results.next()) {
+        T root = (T) results.get(0);
+        Object id = getId.apply(root);
+        if (!Objects.equals(id, lastId)) {
+          lastId = id;
+          boolean isFillLazyFields = isEmptyLazyField() && getFields().length == 0;
+          roots.add(isFillLazyFields ? fillDetached(root) : root);
+        }
+      }
+      isCleared = roots.isEmpty();
+      return loadFields(roots);
+    }
+
+    private void close() {
+      results.close();
+    }
+  }
 }
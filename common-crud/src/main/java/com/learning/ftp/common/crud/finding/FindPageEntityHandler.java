@@ -2,27 +2,45 @@ package com.learning.ftp.common.crud.finding;
 
 import com.learning.ftp.common.crud.condition.Condition;
 import com.learning.ftp.common.crud.condition.Conditions;
+import com.learning.ftp.common.crud.configuration.FindFunctionContributor;
+import com.learning.ftp.common.crud.datasource.ReplicaRouting;
+import com.learning.ftp.common.crud.telemetry.QueryTelemetry;
+import com.learning.ftp.common.crud.telemetry.QueryTelemetry.Kind;
+import com.learning.ftp.common.crud.util.DataTypeUtil;
+import com.learning.ftp.common.crud.util.EntityPathUtil;
 import com.learning.ftp.common.crud.util.EntityUtils;
+import com.learning.ftp.common.exception.FtpServiceException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.support.PageableExecutionUtils;
+import org.springframework.util.StringUtils;
 
 import javax.persistence.Query;
 import javax.persistence.Tuple;
 import javax.persistence.TypedQuery;
-import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Expression;
 import javax.persistence.criteria.JoinType;
-import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 public class FindPageEntityHandler<T> extends AbstractFindEntityHandler<T> {
   private Pageable pageable;
   private Field fieldId;
+  // set by the execute method of the call, the sorts and the ids query depend on it
+  private boolean isCursorMode = false;
+  private Object[] cursorValues;
+  private boolean isWindowCount = false;
 
   public FindPageEntityHandler(Class clazz, String[] fields, FindContext findContext) {
     super(clazz, fields, findContext);
@@ -56,9 +74,65 @@ public class FindPageEntityHandler<T> extends AbstractFindEntityHandler<T> {
     return this;
   }
 
+  /**
+   * Continue a keyset pagination from a token returned by {@link CursorPage#getNextCursor()}. A
+   * blank cursor starts from the first slice.
+   */
+  public FindPageEntityHandler<T> withCursor(String cursor) {
+    this.cursorValues = StringUtils.hasText(cursor) ? PageCursor.decode(cursor).toArray() : null;
+    return this;
+  }
+
+  /**
+   * Continue a keyset pagination after the row having the given values of the sort fields,
+   * followed by its id when the id is not one of the sort fields.
+   */
+  public FindPageEntityHandler<T> withCursorValues(Object... lastSortValues) {
+    this.cursorValues =
+        lastSortValues == null || lastSortValues.length == 0 ? null : lastSortValues;
+    return this;
+  }
+
+  /**
+   * Read the total count with {@code count(*) over()} in the page ids query instead of a separate
+   * count query. It needs the functions of {@link FindFunctionContributor} registered and falls
+   * back to the count query when the ids query joins a collection or the page is past the last
+   * row.
+   */
+  public FindPageEntityHandler<T> withWindowCount() {
+    this.isWindowCount = true;
+    return this;
+  }
+
+  /** Outside a transaction, the queries may be served by a replica of the tenant. */
   public Page<T> execute() {
-    return PageableExecutionUtils.getPage(
-        getListResult(), pageable, () -> (Long) createCountQuery().getSingleResult());
+    isCursorMode = false;
+    return ReplicaRouting.readOnly(
+        () -> {
+          PageIds pageIds = getIdsInPage();
+          return PageableExecutionUtils.getPage(
+              getListResult(pageIds.toCondition()),
+              pageable,
+              () -> pageIds.total != null ? pageIds.total : executeCountQuery());
+        });
+  }
+
+  /**
+   * Execute as a keyset (seek) pagination: the page number is ignored and rows are read after the
+   * cursor position, so deep pages cost the same as the first one and no count query is issued.
+   * The sort fields are always tie-broken by the id. Null sort values are positioned the way
+   * PostgreSQL orders them by default (last when ascending, first when descending).
+   */
+  public CursorPage<T> executeCursor() {
+    isCursorMode = true;
+    return ReplicaRouting.readOnly(
+        () -> {
+          PageIds pageIds = getIdsInPage();
+          return new CursorPage<>(
+              getListResult(pageIds.toCondition()),
+              PageRequest.of(0, pageable.getPageSize()),
+              pageIds.lastSortValues != null ? PageCursor.encode(pageIds.lastSortValues) : null);
+        });
   }
 
   @Override
@@ -74,46 +148,129 @@ public class FindPageEntityHandler<T> extends AbstractFindEntityHandler<T> {
   }
 
   @Override
-  protected Condition getMoreCriteria(QueryContext qc) {
+  protected Condition getMoreCriteria() {
+    return getIdsInPage().toCondition();
+  }
+
+  @Override
+  protected Sort[] getEffectiveSorts() {
+    return getPageSorts();
+  }
+
+  private Sort[] getPageSorts() {
+    if (!isCursorMode) {
+      return getSorts() != null && getSorts().length > 0
+          ? getSorts()
+          : Sort.ascList(this.fieldId.getName());
+    }
+    Map<String, Sort> seekSorts = new LinkedHashMap<>();
+    if (getSorts() != null) {
+      Arrays.stream(getSorts())
+          .filter(Objects::nonNull)
+          .forEach(s -> seekSorts.putIfAbsent(s.getField(), s));
+    }
+    seekSorts.putIfAbsent(this.fieldId.getName(), Sort.asc(this.fieldId.getName()));
+    return seekSorts.values().toArray(new Sort[] {});
+  }
+
+  private PageIds getIdsInPage() {
     if (pageable == null) {
       pageable = PageRequest.of(0, 10);
     }
-
-    Field idField =
+    this.fieldId =
         EntityUtils.getField(getEntityClass(), EntityUtils.getIdFieldName(getEntityClass()));
-    List ids = getIdsInPage(idField, pageable.getPageNumber(), pageable.getPageSize());
-    return Conditions.or(
-        (Condition[])
-            ids.stream()
-                .map(id -> Condition.field(idField.getName()).equal(id))
-                .toArray(len -> new Condition[len]));
+    int page = pageable.getPageNumber();
+    int size = pageable.getPageSize();
+    QueryContext qc = super.createCriteriaQuery(Tuple.class);
+    Root root = qc.getRoot();
+    Predicate where = getCondition() != null ? getCondition().toPredicate(qc) : null;
+    if (isCursorMode && cursorValues != null) {
+      Predicate seek = createSeekPredicate(qc, getPageSorts());
+      where = where == null ? seek : qc.getCriteriaBuilder().and(where, seek);
+    }
+    if (where != null) {
+      qc.getQuery().where(where);
+    }
+    List<Selection> selections = new ArrayList<>(addSortInfo(qc, qc.getQuery()));
+    selections.add(0, root.get(fieldId.getName()));
+    // joined collections multiply the rows before distinct, the window count would be wrong then
+    boolean isCountInQuery =
+        isWindowCount && !isCursorMode && !EntityPathUtil.hasCollectionJoin(root);
+    if (isCountInQuery) {
+      selections.add(
+          qc.getCriteriaBuilder().function(FindFunctionContributor.COUNT_OVER, Long.class));
+    }
+    qc.getQuery().multiselect(selections).distinct(true);
+    Query query =
+        qc.bindParameters(getFindContext().getEntityManager().createQuery(qc.getQuery()));
+    if (!isCursorMode) {
+      query.setFirstResult(page * size);
+      query.setMaxResults(size);
+      List<Tuple> tuples = QueryTelemetry.list(Kind.CRITERIA, query, query::getResultList);
+      Long total =
+          isCountInQuery && !tuples.isEmpty()
+              ? ((Number) tuples.get(0).get(selections.size() - 1)).longValue()
+              : null;
+      return new PageIds(getIds(tuples), total, null);
+    }
+    // read one more row to know whether there is a next slice without counting
+    query.setMaxResults(size + 1);
+    List<Tuple> tuples = QueryTelemetry.list(Kind.CRITERIA, query, query::getResultList);
+    if (tuples.size() <= size) {
+      return new PageIds(getIds(tuples), null, null);
+    }
+    tuples = tuples.subList(0, size);
+    Tuple last = tuples.get(size - 1);
+    return new PageIds(
+        getIds(tuples),
+        null,
+        last.getElements().stream().skip(1).map(last::get).toArray(len -> new Object[len]));
   }
 
-  @Override
-  protected List<Path> addSortInfo(QueryContext qc, CriteriaQuery criteriaQuery) {
-    if (getSorts() != null && getSorts().length > 0) {
-      return addSortInfo(qc, criteriaQuery, getSorts());
+  private static List getIds(List<Tuple> tuples) {
+    return tuples.stream().map(t -> t.get(0)).collect(Collectors.toList());
+  }
+
+  private Predicate createSeekPredicate(QueryContext qc, Sort[] sorts) {
+    if (cursorValues.length != sorts.length) {
+      throw new FtpServiceException(
+          String.format(
+              "Page cursor has %d values but %d sort fields are used",
+              cursorValues.length, sorts.length));
     }
-    return addSortInfo(qc, criteriaQuery, Sort.ascList(this.fieldId.getName()));
+    CriteriaBuilder cb = qc.getCriteriaBuilder();
+    List<Predicate> branches = new ArrayList<>();
+    List<Predicate> equalities = new ArrayList<>();
+    for (int i = 0; i < sorts.length; ++i) {
+      Expression exp = sorts[i].toExpression(qc);
+      Object value =
+          exp.getJavaType() == null
+              ? cursorValues[i]
+              : DataTypeUtil.convertData(cursorValues[i], exp.getJavaType());
+      Predicate after = createSeekAfterPredicate(cb, exp, value, sorts[i].isAsc());
+      if (after != null) {
+        List<Predicate> branch = new ArrayList<>(equalities);
+        branch.add(after);
+        branches.add(cb.and(branch.toArray(new Predicate[] {})));
+      }
+      equalities.add(value == null ? cb.isNull(exp) : cb.equal(exp, value));
+    }
+    return cb.or(branches.toArray(new Predicate[] {}));
   }
 
-  private List getIdsInPage(Field idField, int page, int size) {
-    this.fieldId = idField;
-    QueryContext qc = super.createCriteriaQuery(Tuple.class);
-    Root root = qc.getRoot();
-    if (getCondition() != null) {
-      qc.getQuery().where(getCondition().toPredicate(qc));
+  private Predicate createSeekAfterPredicate(
+      CriteriaBuilder cb, Expression exp, Object value, boolean isAsc) {
+    if (value == null) {
+      return isAsc ? null : cb.isNotNull(exp);
     }
-    List<Path> sortFields = new ArrayList<>(addSortInfo(qc, qc.getQuery()));
-    sortFields.add(0, root.get(idField.getName()));
-    qc.getQuery().multiselect(sortFields).distinct(true);
-    Query query = getFindContext().getEntityManager().createQuery(qc.getQuery());
-    query.setFirstResult(page * size);
-    query.setMaxResults(size);
-    return (List)
-            query.getResultList().stream()
-                .map(t -> ((Tuple) t).get(0))
-                .collect(Collectors.toList());
+    return isAsc
+        ? cb.or(cb.greaterThan(exp, (Comparable) value), cb.isNull(exp))
+        : cb.lessThan(exp, (Comparable) value);
+  }
+
+  private Long executeCountQuery() {
+    TypedQuery countQuery = createCountQuery();
+    return (Long) QueryTelemetry.single(Kind.CRITERIA, countQuery, countQuery::getSingleResult);
   }
 
   private TypedQuery createCountQuery() {
@@ -128,6 +285,27 @@ public class FindPageEntityHandler<T> extends AbstractFindEntityHandler<T> {
     if (getCondition() != null) {
       qc.getQuery().where(getCondition().toPredicate(qc));
     }
-    return getFindContext().getEntityManager().createQuery(qc.getQuery());
+    return (TypedQuery)
+        qc.bindParameters(getFindContext().getEntityManager().createQuery(qc.getQuery()));
+  }
+
+  /**
+   * The ids of a page, with the total when the ids query counted it and the sort values of the
+   * last row when a next slice follows.
+   */
+  private class PageIds {
+    private final List ids;
+    private final Long total;
+    private final Object[] lastSortValues;
+
+    private PageIds(List ids, Long total, Object[] lastSortValues) {
+      this.ids = ids;
+      this.total = total;
+      this.lastSortValues = lastSortValues;
+    }
+
+    private Condition toCondition() {
+      return ids.isEmpty() ? Conditions.or() : Condition.field(fieldId.getName()).inParameters(ids);
+    }
   }
 }
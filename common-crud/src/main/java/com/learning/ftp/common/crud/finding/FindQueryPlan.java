@@ -0,0 +1,78 @@
+package com.learning.ftp.common.crud.finding;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import javax.persistence.Query;
+import javax.persistence.criteria.Selection;
+
+/**
+ * The rendered JPQL of a criteria query with its {@link QueryContext#getParameterName(int)
+ * positional parameters} and alias mapping. A query rendering any other parameter, like the ones
+ * Hibernate creates for literals, cannot be replayed and is kept as an uncacheable plan.
+ */
+class FindQueryPlan {
+  private static final FindQueryPlan UNCACHEABLE = new FindQueryPlan(null, null, null, 0);
+  private final String jpql;
+  private final Map<String, String> aliasMapping;
+  private final List<String> rowAliases;
+  private final int parameterCount;
+
+  private FindQueryPlan(
+      String jpql, Map<String, String> aliasMapping, List<String> rowAliases, int parameterCount) {
+    this.jpql = jpql;
+    this.aliasMapping = aliasMapping;
+    this.rowAliases = rowAliases;
+    this.parameterCount = parameterCount;
+  }
+
+  static FindQueryPlan of(Query query, QueryContext qc) {
+    org.hibernate.query.Query hibernateQuery = query.unwrap(org.hibernate.query.Query.class);
+    Set<String> expectedNames =
+        IntStream.range(0, qc.getParameterCount())
+            .mapToObj(QueryContext::getParameterName)
+            .collect(Collectors.toSet());
+    if (hibernateQuery.getParameterMetadata().hasPositionalParameters()
+        || !expectedNames.equals(hibernateQuery.getParameterMetadata().getNamedParameterNames())) {
+      return UNCACHEABLE;
+    }
+    // the rendered text does not keep the selection aliases, the replayed rows are arrays
+    Selection<?> selection = qc.getQuery().getSelection();
+    List<String> rowAliases =
+        selection.isCompoundSelection()
+            ? selection.getCompoundSelectionItems().stream()
+                .map(Selection::getAlias)
+                .collect(Collectors.toUnmodifiableList())
+            : null;
+    return new FindQueryPlan(
+        hibernateQuery.getQueryString(),
+        Collections.unmodifiableMap(new HashMap<>(qc.getAliasMapping())),
+        rowAliases,
+        qc.getParameterCount());
+  }
+
+  boolean isCacheable() {
+    return jpql != null;
+  }
+
+  String getJpql() {
+    return jpql;
+  }
+
+  Map<String, String> getAliasMapping() {
+    return aliasMapping;
+  }
+
+  /** The aliases of the row elements, {@code null} when a row is a single entity. */
+  List<String> getRowAliases() {
+    return rowAliases;
+  }
+
+  int getParameterCount() {
+    return parameterCount;
+  }
+}
@@ -0,0 +1,63 @@
+package com.learning.ftp.common.crud.finding;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rendered JPQL of the find handlers keyed by the query shape: entity class, fields, join type,
+ * sorts and condition shape. A hit skips building the criteria tree and lets Hibernate reuse its
+ * HQL query plan for the same text.
+ */
+public class FindQueryPlanCache {
+  private static final int MAX_PLANS = 2048;
+  private static final Map<String, FindQueryPlan> plans = new ConcurrentHashMap<>();
+  private static final LongAdder hits = new LongAdder();
+  private static final LongAdder misses = new LongAdder();
+  private static volatile boolean enabled = true;
+
+  private FindQueryPlanCache() {}
+
+  static FindQueryPlan get(String shape) {
+    FindQueryPlan plan = plans.get(shape);
+    if (plan != null && plan.isCacheable()) {
+      hits.increment();
+    } else {
+      misses.increment();
+    }
+    return plan;
+  }
+
+  static void put(String shape, FindQueryPlan plan) {
+    // shapes come from code, not data, so the bound is only a guard against a misuse
+    if (plans.size() < MAX_PLANS) {
+      plans.putIfAbsent(shape, plan);
+    }
+  }
+
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  public static void setEnabled(boolean isEnabled) {
+    enabled = isEnabled;
+  }
+
+  public static long getHits() {
+    return hits.sum();
+  }
+
+  public static long getMisses() {
+    return misses.sum();
+  }
+
+  public static int size() {
+    return plans.size();
+  }
+
+  public static void clear() {
+    plans.clear();
+    hits.reset();
+    misses.reset();
+  }
+}
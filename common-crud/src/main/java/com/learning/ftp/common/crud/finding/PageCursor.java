@@ -0,0 +1,53 @@
+package com.learning.ftp.common.crud.finding;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.learning.ftp.common.exception.FtpServiceException;
+import com.learning.ftp.common.util.JsonMapper;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Encodes the last sort values of a page into an url-safe token. Values are kept as strings and
+ * converted back against the sort expression types when the seek predicate is built, so the token
+ * never carries class information from the client.
+ */
+class PageCursor {
+  private PageCursor() {}
+
+  static String encode(Object[] values) {
+    List<String> parts =
+        Arrays.stream(values)
+            .map(PageCursor::toText)
+            .collect(Collectors.toList());
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(JsonMapper.toString(parts).getBytes(StandardCharsets.UTF_8));
+  }
+
+  // a plain date as an instant, its toString drops the milliseconds and cannot be parsed back
+  private static String toText(Object value) {
+    if (value == null) {
+      return null;
+    }
+    if (value instanceof Enum) {
+      return ((Enum) value).name();
+    }
+    if (value.getClass() == Date.class) {
+      return ((Date) value).toInstant().toString();
+    }
+    return value.toString();
+  }
+
+  static List<String> decode(String cursor) {
+    try {
+      String json = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      return JsonMapper.toObject(json, new TypeReference<List<String>>() {});
+    } catch (Exception ex) {
+      throw new FtpServiceException("Invalid page cursor: " + ex.getMessage(), ex);
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package com.learning.ftp.common.crud.finding;
+
+import com.learning.ftp.common.crud.telemetry.QueryTelemetry;
+import com.learning.ftp.common.crud.telemetry.QueryTelemetry.Kind;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import javax.persistence.Query;
+
+/**
+ * An entity query ready to run with the alias mapping of its tuple selections. The rows of a query
+ * replayed from a {@link FindQueryPlan} are arrays, they are wrapped in tuples of the plan aliases.
+ */
+class PreparedQuery {
+  private final Query query;
+  private final Map<String, String> aliasMapping;
+  private final List<String> rowAliases;
+
+  PreparedQuery(Query query, Map<String, String> aliasMapping, List<String> rowAliases) {
+    this.query = query;
+    this.aliasMapping = aliasMapping;
+    this.rowAliases = rowAliases;
+  }
+
+  Query getQuery() {
+    return query;
+  }
+
+  Map<String, String> getAliasMapping() {
+    return aliasMapping;
+  }
+
+  List getResultList() {
+    List rows = QueryTelemetry.list(Kind.CRITERIA, query, query::getResultList);
+    if (rowAliases == null) {
+      return rows;
+    }
+    return (List)
+        rows.stream()
+            .map(row -> new ArrayTuple(rowAliases, (Object[]) row))
+            .collect(Collectors.toList());
+  }
+}
@@ -1,8 +1,11 @@
 package com.learning.ftp.common.crud.finding;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
+import javax.persistence.Query;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.ParameterExpression;
 import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Root;
 
@@ -13,6 +16,7 @@ public class QueryContext<T> {
   private Class entityClass;
   private Map<String, Path> selectionPaths;
   private Map<String, String> aliasMapping;
+  private Map<ParameterExpression, Object> parameters = new LinkedHashMap<>();
 
   public QueryContext(
       Class entityClass,
@@ -52,4 +56,28 @@ public class QueryContext<T> {
   public Map<String, String> getAliasMapping() {
     return aliasMapping;
   }
+
+  /**
+   * Create a parameter bound to the given value once the query is created, so the rendered query
+   * text does not depend on the value.
+   */
+  public <P> ParameterExpression<P> addParameter(Class<P> type, Object value) {
+    ParameterExpression<P> parameter =
+        criteriaBuilder.parameter(type, getParameterName(parameters.size()));
+    parameters.put(parameter, value);
+    return parameter;
+  }
+
+  public static String getParameterName(int index) {
+    return "p" + index;
+  }
+
+  public int getParameterCount() {
+    return parameters.size();
+  }
+
+  public Query bindParameters(Query query) {
+    parameters.forEach(query::setParameter);
+    return query;
+  }
 }
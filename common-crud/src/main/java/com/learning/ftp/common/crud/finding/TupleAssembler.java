@@ -0,0 +1,198 @@
+package com.learning.ftp.common.crud.finding;
+
+import com.learning.ftp.common.crud.util.EntityUtils;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import javax.persistence.MapKey;
+import javax.persistence.Tuple;
+
+/**
+ * Fill the fetched fields into the root entities of a tuple result in one sweep. A value of a
+ * field path is indexed by the value of its parent path in the same row, which is the row the join
+ * produced it from, so assembling a collection of children never scans the other rows.
+ *
+ * <p>The persistence context returns one instance per entity, so the values of an entity parent
+ * are indexed by identity. An embeddable or element collection value is a new instance in every
+ * row, its values are indexed by equality so the rows of one parent stay together.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+class TupleAssembler<T> {
+  private final String rootAlias;
+  private final String[] fields;
+  private final String[] aliases;
+  private final int[] parents;
+  private final UnaryOperator<T> rootInitializer;
+
+  /**
+   * @param fields the field paths, a parent path always comes before its children
+   * @param fieldToAlias the tuple alias of every field path
+   * @param rootInitializer applied once to each root entity before its fields are filled
+   */
+  TupleAssembler(
+      String rootAlias,
+      String[] fields,
+      Map<String, String> fieldToAlias,
+      UnaryOperator<T> rootInitializer) {
+    this.rootAlias = rootAlias;
+    this.fields = fields;
+    this.rootInitializer = rootInitializer;
+    this.aliases = new String[fields.length];
+    this.parents = new int[fields.length];
+    Map<String, Integer> indexes = new HashMap<>();
+    for (int i = 0; i < fields.length; ++i) {
+      aliases[i] = fieldToAlias.get(fields[i]);
+      int dot = fields[i].lastIndexOf('.');
+      parents[i] = dot < 0 ? -1 : indexes.getOrDefault(fields[i].substring(0, dot), -1);
+      indexes.put(fields[i], i);
+    }
+  }
+
+  List<T> assemble(List<Tuple> tuples) {
+    Set<Object> roots = Collections.newSetFromMap(new IdentityHashMap<>());
+    List<T> orderedRoots = new ArrayList<>();
+    List<Map<Object, Set<Object>>> valuesByParent = new ArrayList<>(fields.length);
+    for (int i = 0; i < fields.length; ++i) {
+      valuesByParent.add(new HashMap<>());
+    }
+    for (Tuple tuple : tuples) {
+      T root = (T) tuple.get(rootAlias);
+      if (roots.add(root)) {
+        orderedRoots.add(rootInitializer.apply(root));
+      }
+      for (int i = 0; i < fields.length; ++i) {
+        Object value = tuple.get(aliases[i]);
+        Object parent = parents[i] < 0 ? root : tuple.get(aliases[parents[i]]);
+        if (value != null && parent != null) {
+          valuesByParent
+              .get(i)
+              .computeIfAbsent(keyOf(parent), p -> new LinkedHashSet<>())
+              .add(value);
+        }
+      }
+    }
+    for (T root : orderedRoots) {
+      Object[] fieldValues = new Object[fields.length];
+      for (int i = 0; i < fields.length; ++i) {
+        Map<Object, Set<Object>> values = valuesByParent.get(i);
+        if (parents[i] < 0) {
+          fieldValues[i] =
+              setFieldValueToEntity(
+                  root, getValues(values, root), EntityUtils.getField(root.getClass(), fields[i]));
+        } else {
+          String fieldName = fields[i].substring(fields[i].lastIndexOf('.') + 1);
+          fieldValues[i] = setFieldValueToObject(fieldValues[parents[i]], values, fieldName);
+        }
+      }
+    }
+    return orderedRoots;
+  }
+
+  private static Set<Object> getValues(Map<Object, Set<Object>> valuesByParent, Object parent) {
+    return valuesByParent.getOrDefault(keyOf(parent), Collections.emptySet());
+  }
+
+  private static Object keyOf(Object parent) {
+    return EntityUtils.isEntity(parent) ? new IdentityKey(parent) : parent;
+  }
+
+  private static Object setFieldValueToObject(
+      Object target, Map<Object, Set<Object>> valuesByParent, String fieldName) {
+    if (target == null) {
+      return null;
+    }
+    if (!(target instanceof Map) && !(target instanceof Collection)) {
+      return setFieldValueToEntity(
+          target,
+          getValues(valuesByParent, target),
+          EntityUtils.getField(target.getClass(), fieldName));
+    }
+    Collection<?> items = target instanceof Map ? ((Map) target).values() : (Collection) target;
+    List addedValues = new ArrayList();
+    for (Object item : items) {
+      addedValues.add(
+          setFieldValueToEntity(
+              item,
+              getValues(valuesByParent, item),
+              EntityUtils.getField(item.getClass(), fieldName)));
+    }
+    return addedValues;
+  }
+
+  private static Object setFieldValueToEntity(Object entity, Set<Object> values, Field field) {
+    Class fieldType = field.getType();
+    if (!Map.class.isAssignableFrom(fieldType) && !Collection.class.isAssignableFrom(fieldType)) {
+      if (values.isEmpty()) {
+        return null;
+      }
+      Object value = values.iterator().next();
+      EntityUtils.setFieldValue(entity, field, value);
+      return value;
+    }
+    Object fieldValue = EntityUtils.getFieldValue(entity, field.getName());
+    if (Map.class.isAssignableFrom(fieldType)) {
+      HashMap map = new HashMap();
+      MapKey mk = field.getAnnotation(MapKey.class);
+      map.putAll(
+          (Map)
+              values.stream()
+                  .collect(Collectors.toMap(e -> EntityUtils.getFieldValue(e, mk.name()), e -> e)));
+      if (!shouldSetCollectionValueToEntity(map.size(), fieldValue)) {
+        return fieldValue;
+      }
+      EntityUtils.setFieldValue(entity, field, map);
+      return map;
+    }
+    Collection collection =
+        Set.class.isAssignableFrom(fieldType) ? new HashSet(values) : new ArrayList(values);
+    if (!shouldSetCollectionValueToEntity(collection.size(), fieldValue)) {
+      return fieldValue;
+    }
+    EntityUtils.setFieldValue(entity, field, collection);
+    return collection;
+  }
+
+  private static boolean shouldSetCollectionValueToEntity(int newSize, Object currentValue) {
+    try {
+      if (!EntityUtils.isObjectProxy(currentValue)
+          && currentValue != null
+          && newSize
+              == (currentValue instanceof Map
+                  ? ((Map) currentValue).size()
+                  : ((Collection) currentValue).size())) {
+        return false;
+      }
+    } catch (Throwable err) {
+      return true;
+    }
+    return true;
+  }
+
+  private static class IdentityKey {
+    private final Object value;
+
+    private IdentityKey(Object value) {
+      this.value = value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof IdentityKey && ((IdentityKey) o).value == value;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(value);
+    }
+  }
+}
@@ -1,10 +1,15 @@
 package com.learning.ftp.common.crud.repository;
 
+import com.learning.ftp.common.crud.bulk.BulkStatements;
+import com.learning.ftp.common.crud.condition.Condition;
 import com.learning.ftp.common.crud.repository.specification.FbSpec.FbCustomSpec;
+import com.learning.ftp.common.crud.telemetry.QueryTelemetry;
+import com.learning.ftp.common.crud.telemetry.QueryTelemetry.Kind;
 import com.learning.ftp.common.crud.util.TransactionHelper;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import static java.util.Optional.ofNullable;
@@ -37,6 +42,7 @@ import org.springframework.stereotype.Component;
 public class RepoHelper {
   private final Repositories repositories;
   private final TransactionHelper helper;
+  private final BulkStatements bulkStatements;
   @Getter private final EntityManager em;
 
   @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
@@ -44,10 +50,12 @@ public class RepoHelper {
       ApplicationContext context,
       Optional<List<IBaseRepository>> repos,
       EntityManager em,
-      TransactionHelper helper) {
+      TransactionHelper helper,
+      BulkStatements bulkStatements) {
     repositories = new Repositories(context);
     this.em = em;
     this.helper = helper;
+    this.bulkStatements = bulkStatements;
   }
 
   public <T> EntityGraph<T> createGraph(Class<T> clazz, String... paths) {
@@ -85,13 +93,24 @@ public class RepoHelper {
             .unwrap(NativeQuery.class);
     dto.getConfigs().forEach(config -> config.accept(query));
     query.setResultTransformer(dto.getTransformer());
-    List<T> result = query.getResultList();
+    List<T> result = QueryTelemetry.list(Kind.NATIVE, dto.getQuery(), query::getResultList);
     if (!dto.getEagerLoads().isEmpty()) {
       result.forEach(e -> dto.getEagerLoads().forEach(el -> el.accept(e)));
     }
     return result;
   }
 
+  /**
+   * Set the fields of the entities matching the condition with one statement and return their
+   * count.
+   *
+   * @see BulkStatements#update
+   */
+  public int updateWhere(
+      Class<?> entityClass, Condition condition, Map<String, Object> assignments) {
+    return bulkStatements.update(entityClass, condition, assignments);
+  }
+
   public <T> javax.persistence.criteria.Predicate toPredicate(
       Stream.Builder<FbCustomSpec<T>> streamBuilder,
       From<T, ?> attributes,
@@ -0,0 +1,84 @@
+package com.learning.ftp.common.crud.telemetry;
+
+import com.learning.ftp.common.cache.LatencyHistogram;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The counters of one query shape. Like the cache stats they only grow, so they map to Micrometer
+ * function counters, e.g. {@code query.duration{kind, fingerprint}} and {@code query.rows}.
+ */
+public class QueryStats {
+  private final QueryTelemetry.Kind kind;
+  private final String fingerprint;
+  private final String shape;
+  private final LatencyHistogram latency = new LatencyHistogram();
+  private final LongAdder rows = new LongAdder();
+  private final LongAccumulator maxRows = new LongAccumulator(Math::max, 0);
+  private final LongAdder failures = new LongAdder();
+  private final LongAdder slowQueries = new LongAdder();
+
+  QueryStats(QueryTelemetry.Kind kind, String fingerprint, String shape) {
+    this.kind = kind;
+    this.fingerprint = fingerprint;
+    this.shape = shape;
+  }
+
+  public QueryTelemetry.Kind getKind() {
+    return kind;
+  }
+
+  /** The hash of the shape, {@code other} for the shapes over the limit of the telemetry. */
+  public String getFingerprint() {
+    return fingerprint;
+  }
+
+  /** The text of the query without its values. */
+  public String getShape() {
+    return shape;
+  }
+
+  /** The time of the executions, failed ones included. */
+  public LatencyHistogram getLatency() {
+    return latency;
+  }
+
+  public long getExecutions() {
+    return latency.getCount();
+  }
+
+  /** The rows returned by the successful executions. */
+  public long getRows() {
+    return rows.sum();
+  }
+
+  public long getMaxRows() {
+    return maxRows.get();
+  }
+
+  public long getFailures() {
+    return failures.sum();
+  }
+
+  /** The executions which took at least the slow query threshold. */
+  public long getSlowQueries() {
+    return slowQueries.sum();
+  }
+
+  void record(long nanos, int rowCount, boolean isSlow) {
+    latency.record(nanos);
+    rows.add(rowCount);
+    maxRows.accumulate(rowCount);
+    if (isSlow) {
+      slowQueries.increment();
+    }
+  }
+
+  void recordFailure(long nanos, boolean isSlow) {
+    latency.record(nanos);
+    failures.increment();
+    if (isSlow) {
+      slowQueries.increment();
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package com.learning.ftp.common.crud.telemetry;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import javax.persistence.Query;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The execution time and row count of the native and criteria queries of {@code RepoService},
+ * {@code RepoHelper} and the find handlers, and of the bulk statements, counted per query shape. A
+ * query taking the slow query threshold or longer is logged with its shape, never with its values.
+ *
+ * <p>The number of shapes is bounded, the executions of the shapes over the limit are counted
+ * together under {@code other}.
+ */
+public final class QueryTelemetry {
+  private static final Logger LOG = LoggerFactory.getLogger(QueryTelemetry.class);
+  static final int MAX_SHAPES = 1024;
+  private static final String OTHER = "other";
+  private static final Map<String, QueryStats> stats = new ConcurrentHashMap<>();
+  private static volatile boolean enabled = true;
+  private static volatile long slowQueryNanos = Duration.ofSeconds(1).toNanos();
+
+  public enum Kind {
+    NATIVE,
+    CRITERIA
+  }
+
+  private QueryTelemetry() {}
+
+  /** Run a query returning a list, its size is the row count. */
+  public static <R> List<R> list(Kind kind, String sql, Supplier<List<R>> query) {
+    return execute(kind, sql, query, List::size);
+  }
+
+  public static <R> List<R> list(Kind kind, Query query, Supplier<List<R>> execution) {
+    return list(kind, getQueryString(query), execution);
+  }
+
+  /** Run a query returning one row, e.g. a count. */
+  public static <R> R single(Kind kind, Query query, Supplier<R> execution) {
+    return execute(kind, getQueryString(query), execution, result -> result == null ? 0 : 1);
+  }
+
+  /** Run an update or delete statement, the affected rows are the row count. */
+  public static int update(Kind kind, Query query, Supplier<Integer> execution) {
+    return execute(kind, getQueryString(query), execution, Integer::intValue);
+  }
+
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  public static void setEnabled(boolean isEnabled) {
+    enabled = isEnabled;
+  }
+
+  public static Duration getSlowQueryThreshold() {
+    return Duration.ofNanos(slowQueryNanos);
+  }
+
+  /** The time from which a query is logged as slow, zero or negative logs none. */
+  public static void setSlowQueryThreshold(Duration threshold) {
+    slowQueryNanos = threshold.isNegative() || threshold.isZero() ? 0 : threshold.toNanos();
+  }
+
+  public static Collection<QueryStats> getStats() {
+    return Collections.unmodifiableCollection(stats.values());
+  }
+
+  public static void clear() {
+    stats.clear();
+  }
+
+  private static <R> R execute(
+      Kind kind, String sql, Supplier<R> query, ToIntFunction<R> countRows) {
+    if (!enabled || sql == null) {
+      return query.get();
+    }
+    long start = System.nanoTime();
+    R result;
+    try {
+      result = query.get();
+    } catch (RuntimeException e) {
+      long nanos = System.nanoTime() - start;
+      SqlFingerprint fingerprint = SqlFingerprint.of(sql);
+      boolean isSlow = isSlow(nanos);
+      getStats(kind, fingerprint).recordFailure(nanos, isSlow);
+      if (isSlow) {
+        LOG.warn(
+            "Slow {} query {} failed after {} ms: {}",
+            kind,
+            fingerprint.getId(),
+            nanos / 1_000_000,
+            fingerprint.getShape());
+      }
+      throw e;
+    }
+    long nanos = System.nanoTime() - start;
+    SqlFingerprint fingerprint = SqlFingerprint.of(sql);
+    int rowCount = countRows.applyAsInt(result);
+    boolean isSlow = isSlow(nanos);
+    getStats(kind, fingerprint).record(nanos, rowCount, isSlow);
+    if (isSlow) {
+      LOG.warn(
+          "Slow {} query {} took {} ms for {} rows: {}",
+          kind,
+          fingerprint.getId(),
+          nanos / 1_000_000,
+          rowCount,
+          fingerprint.getShape());
+    }
+    return result;
+  }
+
+  private static boolean isSlow(long nanos) {
+    long threshold = slowQueryNanos;
+    return threshold > 0 && nanos >= threshold;
+  }
+
+  private static QueryStats getStats(Kind kind, SqlFingerprint fingerprint) {
+    String key = kind + ":" + fingerprint.getShape();
+    QueryStats result = stats.get(key);
+    if (result != null) {
+      return result;
+    }
+    if (stats.size() >= MAX_SHAPES) {
+      return stats.computeIfAbsent(kind + ":" + OTHER, k -> new QueryStats(kind, OTHER, OTHER));
+    }
+    return stats.computeIfAbsent(
+        key, k -> new QueryStats(kind, fingerprint.getId(), fingerprint.getShape()));
+  }
+
+  // the rendered jpql of a criteria query, the sql of a native one
+  private static String getQueryString(Query query) {
+    try {
+      return query.unwrap(org.hibernate.query.Query.class).getQueryString();
+    } catch (RuntimeException e) {
+      return null;
+    }
+  }
+}
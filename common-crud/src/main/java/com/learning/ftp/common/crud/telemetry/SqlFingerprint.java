@@ -0,0 +1,64 @@
+package com.learning.ftp.common.crud.telemetry;
+
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * The shape of a query: its text without literals, parameter names, comments and layout, so the
+ * executions of one statement with different values are counted together and no value is logged.
+ * The id is a short hash of the shape to find it in the logs.
+ */
+final class SqlFingerprint {
+  private static final int MAX_CACHED = 2048;
+  private static final Map<String, SqlFingerprint> CACHE = new ConcurrentHashMap<>();
+  // in one pass, a quote in a comment or dashes in a string do not start the other
+  private static final Pattern STRING_OR_COMMENT =
+      Pattern.compile("'(?:[^']|'')*'|--[^\\n]*|/\\*.*?\\*/", Pattern.DOTALL);
+  // a postgres cast like ::text is not a named parameter
+  private static final Pattern PARAMETER =
+      Pattern.compile("(?<!:):(?!:)[A-Za-z_]\\w*|\\?\\d+|\\b\\d+(?:\\.\\d+)?\\b");
+  private static final Pattern LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+  private static final Pattern SPACE = Pattern.compile("\\s+");
+
+  private final String id;
+  private final String shape;
+
+  private SqlFingerprint(String shape) {
+    this.shape = shape;
+    this.id =
+        Hashing.sha256().hashString(shape, StandardCharsets.UTF_8).toString().substring(0, 12);
+  }
+
+  static SqlFingerprint of(String sql) {
+    SqlFingerprint fingerprint = CACHE.get(sql);
+    if (fingerprint != null) {
+      return fingerprint;
+    }
+    fingerprint = new SqlFingerprint(normalize(sql));
+    // the texts come from code, except the native queries concatenating their values
+    if (CACHE.size() < MAX_CACHED) {
+      CACHE.putIfAbsent(sql, fingerprint);
+    }
+    return fingerprint;
+  }
+
+  static String normalize(String sql) {
+    String shape =
+        STRING_OR_COMMENT.matcher(sql).replaceAll(m -> m.group().startsWith("'") ? "?" : " ");
+    shape = PARAMETER.matcher(shape).replaceAll("?");
+    // an in list of any length is one shape, like the padded lists of hibernate
+    shape = LIST.matcher(shape).replaceAll("(?+)");
+    return SPACE.matcher(shape).replaceAll(" ").trim().toLowerCase();
+  }
+
+  String getId() {
+    return id;
+  }
+
+  String getShape() {
+    return shape;
+  }
+}
@@ -1,8 +1,15 @@
 package com.learning.ftp.common.crud.util;
 
 import com.learning.ftp.common.util.UUIDUtils;
+import java.math.BigDecimal;
 import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.Objects;
 import java.util.function.Function;
 import java.util.stream.Stream;
@@ -26,6 +33,26 @@ public class DataTypeUtil {
           return (T) UUIDUtils.fromStringSafe(value.toString());
         case "Timestamp":
           return (T) convertTimestampValue(value);
+        case "Date":
+          return (T) convertDateValue(value, valType);
+        case "Instant":
+          return value instanceof Instant ? (T) value : (T) Instant.parse(value.toString());
+        case "ZonedDateTime":
+          return value instanceof ZonedDateTime
+              ? (T) value
+              : (T) ZonedDateTime.parse(value.toString());
+        case "OffsetDateTime":
+          return value instanceof OffsetDateTime
+              ? (T) value
+              : (T) OffsetDateTime.parse(value.toString());
+        case "LocalDateTime":
+          return value instanceof LocalDateTime
+              ? (T) value
+              : (T) LocalDateTime.parse(value.toString());
+        case "LocalDate":
+          return value instanceof LocalDate ? (T) value : (T) LocalDate.parse(value.toString());
+        case "BigDecimal":
+          return value instanceof BigDecimal ? (T) value : (T) new BigDecimal(value.toString());
         case "Boolean":
           return !StringUtils.isEmpty(value) ? (T) Boolean.valueOf(value.toString()) : null;
         case "Integer":
@@ -105,6 +132,23 @@ public class DataTypeUtil {
         .orElse(null);
   }
 
+  // a java.util.Date from an ISO instant, e.g. a page cursor, or like a timestamp otherwise
+  private static java.util.Date convertDateValue(Object val, Class valType) {
+    if (valType == java.sql.Date.class) {
+      return val instanceof java.sql.Date
+          ? (java.sql.Date) val
+          : java.sql.Date.valueOf(val.toString());
+    }
+    if (val instanceof java.util.Date) {
+      return (java.util.Date) val;
+    }
+    try {
+      return java.util.Date.from(Instant.parse(val.toString()));
+    } catch (DateTimeParseException ex) {
+      return convertTimestampValue(val);
+    }
+  }
+
   private static Object getEnumValue(Class enumType, Object value) throws Exception {
     if (enumType.isAssignableFrom(value.getClass())) {
       return value;
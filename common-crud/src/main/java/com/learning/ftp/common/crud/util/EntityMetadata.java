@@ -0,0 +1,245 @@
+package com.learning.ftp.common.crud.util;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.util.ReflectionUtils;
+
+import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Id;
+import javax.persistence.ManyToMany;
+import javax.persistence.ManyToOne;
+import javax.persistence.MappedSuperclass;
+import javax.persistence.OneToMany;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The reflection data {@link EntityUtils} needs about a class, computed once per class. It is
+ * immutable after creation except the resolved field paths, which are kept in a concurrent map, so
+ * the lookups never lock.
+ */
+public final class EntityMetadata {
+  private static final ClassValue<EntityMetadata> METADATA =
+      new ClassValue<>() {
+        @Override
+        protected EntityMetadata computeValue(Class<?> type) {
+          return new EntityMetadata(type);
+        }
+      };
+
+  private final Class<?> type;
+  private final boolean isEntity;
+  private final List<Field> declaredFields;
+  private final Map<String, Field> fields;
+  private final Field idField;
+  private final Map<String, PropertyAccessor> fieldAccessors;
+  private volatile Map<String, PropertyAccessor> properties;
+  private final List<String> lazyFieldNames;
+  private final Set<String> collectionEntityFieldNames;
+  private final Map<String, Class> argumentTypes;
+  private final Map<String, Field> pathFields = new ConcurrentHashMap<>();
+
+  private EntityMetadata(Class<?> type) {
+    this.type = type;
+    this.isEntity = type.getAnnotation(Entity.class) != null;
+    this.declaredFields =
+        Stream.of(type.getDeclaredFields())
+            .map(EntityMetadata::makeAccessible)
+            .collect(Collectors.toUnmodifiableList());
+    this.fields = Collections.unmodifiableMap(collectFields(type));
+    this.idField =
+        fields.values().stream()
+            .filter(
+                f -> f.getAnnotation(Id.class) != null || f.getAnnotation(EmbeddedId.class) != null)
+            .findFirst()
+            .orElse(null);
+    this.fieldAccessors =
+        fields.values().stream()
+            .collect(Collectors.toUnmodifiableMap(Field::getName, PropertyAccessor::ofField));
+    this.lazyFieldNames =
+        fields.values().stream()
+            .filter(EntityMetadata::isLazy)
+            .map(Field::getName)
+            .collect(Collectors.toUnmodifiableList());
+    this.collectionEntityFieldNames =
+        fields.values().stream()
+            .filter(
+                f ->
+                    f.getAnnotation(OneToMany.class) != null
+                        || f.getAnnotation(ManyToMany.class) != null)
+            .map(Field::getName)
+            .collect(Collectors.toUnmodifiableSet());
+    Map<String, Class> arguments = new HashMap<>();
+    fields.values().forEach(f -> arguments.put(f.getName(), resolveArgumentType(f)));
+    this.argumentTypes = arguments;
+  }
+
+  public static EntityMetadata of(Class<?> type) {
+    return METADATA.get(type);
+  }
+
+  public Class<?> getType() {
+    return type;
+  }
+
+  public boolean isEntity() {
+    return isEntity;
+  }
+
+  /** The fields declared by the class itself, already accessible. */
+  public List<Field> getDeclaredFields() {
+    return declaredFields;
+  }
+
+  /** The fields of the class and its entity or mapped super classes, already accessible. */
+  public Map<String, Field> getFields() {
+    return fields;
+  }
+
+  public Field getField(String fieldName) {
+    return fields.get(fieldName);
+  }
+
+  /** Resolve a dotted path through the field types and the element type of collections. */
+  public Field getPathField(String fieldPath) {
+    Field field = pathFields.get(fieldPath);
+    if (field != null) {
+      return field;
+    }
+    field = resolvePathField(fieldPath);
+    if (field != null) {
+      pathFields.putIfAbsent(fieldPath, field);
+    }
+    return field;
+  }
+
+  public Field getIdField() {
+    return idField;
+  }
+
+  public String getIdFieldName() {
+    return idField == null ? null : idField.getName();
+  }
+
+  /** The accessor of a field, which reads and writes the field itself. */
+  public PropertyAccessor getFieldAccessor(String fieldName) {
+    return fieldAccessors.get(fieldName);
+  }
+
+  /**
+   * The accessors of the bean properties, which go through their getters and setters. They are
+   * only generated when a class is first used as a bean, e.g. by {@link EntityUtils#merge}.
+   */
+  public Map<String, PropertyAccessor> getProperties() {
+    Map<String, PropertyAccessor> result = properties;
+    if (result == null) {
+      // racing threads generate the same accessors, the last one is kept
+      result =
+          Stream.of(BeanUtils.getPropertyDescriptors(type))
+              .collect(
+                  Collectors.toUnmodifiableMap(
+                      PropertyDescriptor::getName, PropertyAccessor::ofProperty));
+      properties = result;
+    }
+    return result;
+  }
+
+  /** The bean property of the id field, {@code null} when there is no id field. */
+  public PropertyAccessor getIdProperty() {
+    return idField == null ? null : getProperties().get(idField.getName());
+  }
+
+  public List<String> getLazyFieldNames() {
+    return lazyFieldNames;
+  }
+
+  public Set<String> getCollectionEntityFieldNames() {
+    return collectionEntityFieldNames;
+  }
+
+  /** The element type of a collection field or the value type of a map field. */
+  public Class getArgumentType(String fieldName) {
+    return argumentTypes.get(fieldName);
+  }
+
+  private Field resolvePathField(String fieldPath) {
+    if (!fieldPath.contains(".")) {
+      return fields.get(fieldPath);
+    }
+    String[] parts = fieldPath.split("\\s*\\.\\s*");
+    EntityMetadata metadata = this;
+    Field result = null;
+    for (int i = 0; i < parts.length; ++i) {
+      result = metadata.getField(parts[i]);
+      Class clazz = result.getType();
+      if (i < parts.length - 1
+          && (Map.class.isAssignableFrom(clazz) || Collection.class.isAssignableFrom(clazz))) {
+        clazz = metadata.getArgumentType(parts[i]);
+      }
+      metadata = of(clazz);
+    }
+    return result;
+  }
+
+  private static Map<String, Field> collectFields(Class<?> clazz) {
+    Map<String, Field> fields = new LinkedHashMap<>();
+    Class parent = clazz;
+    do {
+      Stream.of(parent.getDeclaredFields())
+          .filter(f -> !fields.containsKey(f.getName()))
+          .forEach(f -> fields.put(f.getName(), makeAccessible(f)));
+      parent = parent.getSuperclass();
+    } while (parent != null
+        && (parent.getAnnotation(Entity.class) != null
+            || parent.getAnnotation(MappedSuperclass.class) != null));
+    return fields;
+  }
+
+  private static boolean isLazy(Field f) {
+    ManyToOne manyToOne = f.getAnnotation(ManyToOne.class);
+    OneToMany oneToMany = f.getAnnotation(OneToMany.class);
+    ManyToMany manyToMany = f.getAnnotation(ManyToMany.class);
+    return manyToOne != null && manyToOne.fetch() == FetchType.LAZY
+        || oneToMany != null && oneToMany.fetch() == FetchType.LAZY
+        || manyToMany != null && manyToMany.fetch() == FetchType.LAZY;
+  }
+
+  private static Class resolveArgumentType(Field field) {
+    Class containerType = field.getType();
+    Type genericType = field.getGenericType();
+    if (!(genericType instanceof ParameterizedType)) {
+      return null;
+    }
+    Type[] arguments = ((ParameterizedType) genericType).getActualTypeArguments();
+    Type argument = null;
+    if (containerType.isAssignableFrom(Set.class) || containerType.isAssignableFrom(List.class)) {
+      argument = arguments[0];
+    } else if (containerType.isAssignableFrom(Map.class)) {
+      argument = arguments[1];
+    }
+    return argument instanceof Class ? (Class) argument : null;
+  }
+
+  // fields of the JDK modules cannot be opened, they fail later when they are accessed
+  private static Field makeAccessible(Field field) {
+    try {
+      ReflectionUtils.makeAccessible(field);
+    } catch (RuntimeException ex) {
+      // keep the field as it is
+    }
+    return field;
+  }
+}
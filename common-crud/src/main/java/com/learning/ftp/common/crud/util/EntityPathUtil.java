@@ -80,6 +80,16 @@ public class EntityPathUtil {
     return true;
   }
 
+  /** Whether a join of the path, directly or through another join, is a collection. */
+  public static boolean hasCollectionJoin(From<?, ?> from) {
+    for (Join<?, ?> join : from.getJoins()) {
+      if (join.getAttribute().isCollection() || hasCollectionJoin(join)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   public static boolean isJsonField(String fieldName) {
     return fieldName.contains("->");
   }
@@ -5,24 +5,12 @@ import org.hibernate.Hibernate;
 import org.hibernate.proxy.HibernateProxy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.BeanUtils;
-import org.springframework.beans.BeanWrapper;
-import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.ReflectionUtils;
 import org.springframework.util.StringUtils;
 
-import javax.persistence.EmbeddedId;
-import javax.persistence.Entity;
-import javax.persistence.FetchType;
-import javax.persistence.Id;
-import javax.persistence.ManyToMany;
-import javax.persistence.ManyToOne;
-import javax.persistence.MappedSuperclass;
-import javax.persistence.OneToMany;
-import java.beans.PropertyDescriptor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
-import java.lang.reflect.ParameterizedType;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -35,16 +23,13 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 public class EntityUtils {
   private static final Logger LOG = LoggerFactory.getLogger(EntityUtils.class);
-  private static final Map<Class, Map<String, Field>> clazzFields = new HashMap<>();
 
   public static void trim(Object entity) {
-    for (Field f : entity.getClass().getDeclaredFields()) {
+    for (Field f : EntityMetadata.of(entity.getClass()).getDeclaredFields()) {
       try {
-        ReflectionUtils.makeAccessible(f);
         if ((f.getType() != String.class && f.getType() != StringBuilder.class)
             || f.get(entity) == null) {
           continue;
@@ -58,9 +43,8 @@ public class EntityUtils {
   }
 
   public static <T> T fill(T entity, Map<String, ?> values) {
-    for (Field f : entity.getClass().getDeclaredFields()) {
+    for (Field f : EntityMetadata.of(entity.getClass()).getDeclaredFields()) {
       try {
-        ReflectionUtils.makeAccessible(f);
         if (!values.containsKey(f.getName())
             || values.get(f.getName()) == null
             || !f.getType().isPrimitive()
@@ -94,7 +78,6 @@ public class EntityUtils {
           continue;
         }
         Field f = fields.get(fieldNames[i]);
-        ReflectionUtils.makeAccessible(f);
         f.set(entity, DataTypeUtil.convertData(items[j], f.getType()));
       } catch (Exception ex) {
         LOG.error(ex.getMessage(), ex);
@@ -104,9 +87,8 @@ public class EntityUtils {
 
   public static void fillNull(Object entity, String... ignoreFields) {
     List<String> excludeFields = Arrays.asList(ignoreFields);
-    for (Field f : entity.getClass().getDeclaredFields()) {
+    for (Field f : EntityMetadata.of(entity.getClass()).getDeclaredFields()) {
       try {
-        ReflectionUtils.makeAccessible(f);
         if (excludeFields.contains(f.getName())) {
           continue;
         }
@@ -118,13 +100,12 @@ public class EntityUtils {
   }
 
   public static void fill(Object entity, List<String> fields, Object value) {
-    for (Field f : entity.getClass().getDeclaredFields()) {
+    for (Field f : EntityMetadata.of(entity.getClass()).getDeclaredFields()) {
       try {
         if (!fields.contains(f.getName())) {
           continue;
         }
-        ReflectionUtils.makeAccessible(f);
-        f.set(entity, value);
+        getFieldAccessor(f).set(entity, value);
       } catch (Exception ex) {
         LOG.error(ex.getMessage(), ex);
       }
@@ -132,25 +113,7 @@ public class EntityUtils {
   }
 
   public static List<String> getLazyEntityFields(Class entityClazz) {
-    return getFields(entityClazz).values().stream()
-        .filter(
-            f -> {
-              if (f.getAnnotation(ManyToOne.class) != null
-                  && f.getAnnotation(ManyToOne.class).fetch() == FetchType.LAZY) {
-                return true;
-              }
-              if (f.getAnnotation(OneToMany.class) != null
-                  && f.getAnnotation(OneToMany.class).fetch() == FetchType.LAZY) {
-                return true;
-              }
-              if (f.getAnnotation(ManyToMany.class) != null
-                  && f.getAnnotation(ManyToMany.class).fetch() == FetchType.LAZY) {
-                return true;
-              }
-              return false;
-            })
-        .map(Field::getName)
-        .collect(Collectors.toList());
+    return EntityMetadata.of(entityClazz).getLazyFieldNames();
   }
 
   public static Object fillNullForLazyFields(Object entity) {
@@ -207,11 +170,7 @@ public class EntityUtils {
     if (entityClass == null) {
       return null;
     }
-    return Stream.of(entityClass.getDeclaredFields())
-        .filter(f -> f.getAnnotation(Id.class) != null || f.getAnnotation(EmbeddedId.class) != null)
-        .map(Field::getName)
-        .findFirst()
-        .orElse(null);
+    return EntityMetadata.of(entityClass).getIdFieldName();
   }
 
   public static Class getFieldType(Class clazz, String fieldName) {
@@ -219,24 +178,11 @@ public class EntityUtils {
   }
 
   public static Field getField(Class clazz, String fieldName) {
-    if (!fieldName.contains(".")) {
-      return getFields(clazz).get(fieldName);
-    }
-    String[] parts = fieldName.split("\\s*\\.\\s*");
-    Field result = null;
-    for (int i = 0; i < parts.length; ++i) {
-      result = getField(clazz, parts[i]);
-      clazz = result.getType();
-      if (i < parts.length - 1
-          && (Map.class.isAssignableFrom(clazz) || Collection.class.isAssignableFrom(clazz))) {
-        clazz = getEntityArgumentType(result);
-      }
-    }
-    return result;
+    return EntityMetadata.of(clazz).getPathField(fieldName);
   }
 
   public static boolean isEntityClass(Class<?> clazz) {
-    return clazz.getAnnotation(Entity.class) != null;
+    return EntityMetadata.of(clazz).isEntity();
   }
 
   public static boolean isEntity(Object obj) {
@@ -260,22 +206,12 @@ public class EntityUtils {
       if (entity instanceof String) {
         return UUIDUtils.fromStringSafe(entity.toString());
       }
-      Field idField =
-          Stream.of(entity.getClass().getDeclaredFields())
-              .filter(
-                  f ->
-                      f.getAnnotation(Id.class) != null
-                          || f.getAnnotation(EmbeddedId.class) != null)
-              .findFirst()
-              .orElse(null);
-      if (idField == null) {
-        return null;
+      if (entity instanceof HibernateProxy) {
+        // read the id without initializing the proxy
+        return ((HibernateProxy) entity).getHibernateLazyInitializer().getIdentifier();
       }
-      return ReflectionUtils.invokeMethod(
-          entity
-              .getClass()
-              .getMethod(String.format("get%s", StringUtils.capitalize(idField.getName()))),
-          entity);
+      PropertyAccessor idProperty = EntityMetadata.of(entity.getClass()).getIdProperty();
+      return idProperty == null || !idProperty.isReadable() ? null : idProperty.get(entity);
     } catch (Exception ex) {
       LOG.error(ex.getMessage(), ex);
     }
@@ -287,51 +223,55 @@ public class EntityUtils {
       return;
     }
     try {
-      Field idField =
-          Stream.of(entity.getClass().getDeclaredFields())
-              .filter(f -> f.getAnnotation(Id.class) != null)
-              .findFirst()
-              .orElse(null);
-      if (idField == null) {
+      PropertyAccessor idProperty = EntityMetadata.of(entity.getClass()).getIdProperty();
+      if (idProperty == null || !idProperty.isWritable()) {
         return;
       }
-      ReflectionUtils.invokeMethod(
-          entity
-              .getClass()
-              .getMethod(
-                  String.format("set%s", StringUtils.capitalize(idField.getName())),
-                  newId.getClass()),
-          entity,
-          newId);
+      idProperty.set(entity, newId);
     } catch (Exception ex) {
       LOG.error(ex.getMessage(), ex);
     }
   }
 
   public static Object merge(Object source, Object target, String... ignoreProps) {
+    Map<String, PropertyAccessor> sourceProperties =
+        EntityMetadata.of(source.getClass()).getProperties();
+    Map<String, PropertyAccessor> targetProperties =
+        EntityMetadata.of(target.getClass()).getProperties();
     Set<String> ignoreProperties = new HashSet<>(Arrays.asList(ignoreProps));
-    ignoreProperties.addAll(getNullPropertyNames(source));
     if (EntityUtils.isEntity(source) || EntityUtils.isEntity(target)) {
       // Default doesn't merge OneToMany field in the source entity
       ignoreProperties.addAll(getCollectionEntityFields(source));
       ignoreProperties.addAll(getCollectionEntityFields(target));
     }
-    BeanUtils.copyProperties(
-        source, target, ignoreProperties.toArray(new String[ignoreProperties.size()]));
-    PropertyDescriptor[] props = BeanUtils.getPropertyDescriptors(target.getClass());
-    for (PropertyDescriptor prop : props) {
-      Method propReadMethod = prop.getReadMethod();
-      if (propReadMethod == null) {
+    // read each source property once, a null one is ignored like the ignored properties
+    Map<String, Object> sourceValues = new HashMap<>();
+    for (PropertyAccessor prop : sourceProperties.values()) {
+      if (prop.isReadable()) {
+        Object value = prop.get(source);
+        if (value == null) {
+          ignoreProperties.add(prop.getName());
+        } else {
+          sourceValues.put(prop.getName(), value);
+        }
+      }
+    }
+    for (PropertyAccessor prop : targetProperties.values()) {
+      Object sourceValue = sourceValues.get(prop.getName());
+      if (sourceValue == null) {
+        continue;
+      }
+      if (prop.isWritable()
+          && !ignoreProperties.contains(prop.getName())
+          && ClassUtils.isAssignable(
+              prop.getType(), sourceProperties.get(prop.getName()).getType())) {
+        prop.set(target, sourceValue);
         continue;
       }
       try {
-        Object sourceValue = source.getClass().getMethod(propReadMethod.getName()).invoke(source);
-        Object targetValue = propReadMethod.invoke(target);
-        if (sourceValue != null && targetValue == null) {
+        if (prop.isReadable() && prop.get(target) == null) {
           EntityUtils.setFieldValue(
-              target,
-              prop.getName(),
-              DataTypeUtil.convertData(sourceValue, prop.getPropertyType()));
+              target, prop.getName(), DataTypeUtil.convertData(sourceValue, prop.getType()));
         }
       } catch (Exception ex) {
         continue;
@@ -364,61 +304,25 @@ public class EntityUtils {
       return;
     }
     try {
-      ReflectionUtils.makeAccessible(field);
-      ReflectionUtils.setField(field, obj, value);
+      getFieldAccessor(field).set(obj, value);
     } catch (Exception ex) {
       LOG.error(ex.getMessage(), ex);
     }
   }
 
   private static Set<String> getCollectionEntityFields(Object entity) {
-    if (entity == null || entity.getClass().getAnnotation(Entity.class) == null) {
+    if (entity == null || !isEntityClass(entity.getClass())) {
       return Collections.emptySet();
     }
-    return Stream.of(entity.getClass().getDeclaredFields())
-        .filter(
-            f ->
-                f.getAnnotation(OneToMany.class) != null
-                    || f.getAnnotation(ManyToMany.class) != null)
-        .map(f -> f.getName())
-        .collect(Collectors.toSet());
-  }
-
-  private static Set<String> getNullPropertyNames(Object source) {
-    final BeanWrapper src = new BeanWrapperImpl(source);
-    PropertyDescriptor[] pds = src.getPropertyDescriptors();
-
-    Set<String> emptyNames = new HashSet<>();
-    for (PropertyDescriptor pd : pds) {
-      Object srcValue = src.getPropertyValue(pd.getName());
-      if (srcValue == null) {
-        emptyNames.add(pd.getName());
-      }
-    }
-    return emptyNames;
+    return EntityMetadata.of(entity.getClass()).getCollectionEntityFieldNames();
   }
 
   private static Map<String, Field> getFields(Class clazz) {
-    if (clazzFields.containsKey(clazz)) {
-      return clazzFields.get(clazz);
-    }
-    Map fields = new HashMap<>();
-    Class parent = clazz;
-    do {
-      Stream.of(parent.getDeclaredFields())
-          .filter(f -> !fields.containsKey(f.getName()))
-          .forEach(f -> fields.put(f.getName(), f));
-      parent = parent.getSuperclass();
-    } while (parent != null
-        && (parent.getAnnotation(Entity.class) != null
-            || parent.getAnnotation(MappedSuperclass.class) != null));
-
-    clazzFields.put(clazz, fields);
-    return fields;
+    return EntityMetadata.of(clazz).getFields();
   }
 
   public static List<String> getDeclaredFields(Class clazz) {
-    return Arrays.asList(clazz.getDeclaredFields()).stream()
+    return EntityMetadata.of(clazz).getDeclaredFields().stream()
         .map(f -> f.getName())
         .collect(Collectors.toList());
   }
@@ -448,14 +352,17 @@ public class EntityUtils {
       if (o == null || f == null) {
         return null;
       }
-      ReflectionUtils.makeAccessible(f);
-      return f.get(o);
+      return getFieldAccessor(f).get(o);
     } catch (Exception ex) {
       LOG.error(ex.getMessage(), ex);
     }
     return null;
   }
 
+  private static PropertyAccessor getFieldAccessor(Field field) {
+    return EntityMetadata.of(field.getDeclaringClass()).getFieldAccessor(field.getName());
+  }
+
   public static Object getProperty(Object o, String propName) {
     try {
       if (o == null) {
@@ -470,18 +377,7 @@ public class EntityUtils {
   }
 
   public static Class getEntityArgumentType(Field field) {
-    Class containerType = field.getType();
-
-    if (containerType.isAssignableFrom(Set.class)) {
-      return (Class) ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
-    }
-    if (containerType.isAssignableFrom(List.class)) {
-      return (Class) ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
-    }
-    if (containerType.isAssignableFrom(Map.class)) {
-      return (Class) ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[1];
-    }
-    return null;
+    return EntityMetadata.of(field.getDeclaringClass()).getArgumentType(field.getName());
   }
 
   public static List<String> getEmptiedValueFields(Object entity) {
@@ -0,0 +1,169 @@
+package com.learning.ftp.common.crud.util;
+
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * A generated getter and setter of a field or a bean property. A field is accessed through method
+ * handles, the accessor methods of a property are bound to lambdas by the {@link LambdaMetafactory}
+ * so they are called like a direct call. When a class cannot be looked up privately, e.g. a JDK
+ * class, the accessors fall back to reflection.
+ */
+@SuppressWarnings("unchecked")
+public final class PropertyAccessor {
+  private final String name;
+  private final Class<?> type;
+  private final Function<Object, Object> getter;
+  private final BiConsumer<Object, Object> setter;
+
+  private PropertyAccessor(
+      String name,
+      Class<?> type,
+      Function<Object, Object> getter,
+      BiConsumer<Object, Object> setter) {
+    this.name = name;
+    this.type = type;
+    this.getter = getter;
+    this.setter = setter;
+  }
+
+  /** Access the field itself, like {@link Field#get} and {@link Field#set} do. */
+  public static PropertyAccessor ofField(Field field) {
+    return new PropertyAccessor(
+        field.getName(), field.getType(), createFieldGetter(field), createFieldSetter(field));
+  }
+
+  /** Access a bean property through its read and write methods. */
+  public static PropertyAccessor ofProperty(PropertyDescriptor property) {
+    Method readMethod = property.getReadMethod();
+    Method writeMethod = property.getWriteMethod();
+    return new PropertyAccessor(
+        property.getName(),
+        property.getPropertyType(),
+        readMethod == null ? null : createMethodGetter(readMethod),
+        writeMethod == null ? null : createMethodSetter(writeMethod));
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public Class<?> getType() {
+    return type;
+  }
+
+  public boolean isReadable() {
+    return getter != null;
+  }
+
+  public boolean isWritable() {
+    return setter != null;
+  }
+
+  public Object get(Object target) {
+    return getter.apply(target);
+  }
+
+  public void set(Object target, Object value) {
+    setter.accept(target, value);
+  }
+
+  private static Function<Object, Object> createFieldGetter(Field field) {
+    try {
+      MethodHandle handle = lookup(field.getDeclaringClass()).unreflectGetter(field);
+      if (Modifier.isStatic(field.getModifiers())) {
+        handle = MethodHandles.dropArguments(handle, 0, Object.class);
+      }
+      MethodHandle getter = handle.asType(MethodType.methodType(Object.class, Object.class));
+      return target -> {
+        try {
+          return (Object) getter.invokeExact(target);
+        } catch (Throwable ex) {
+          ReflectionUtils.rethrowRuntimeException(ex);
+          return null;
+        }
+      };
+    } catch (IllegalAccessException ex) {
+      return target -> ReflectionUtils.getField(field, target);
+    }
+  }
+
+  private static BiConsumer<Object, Object> createFieldSetter(Field field) {
+    try {
+      MethodHandle handle = lookup(field.getDeclaringClass()).unreflectSetter(field);
+      if (Modifier.isStatic(field.getModifiers())) {
+        handle = MethodHandles.dropArguments(handle, 0, Object.class);
+      }
+      MethodHandle setter =
+          handle.asType(MethodType.methodType(void.class, Object.class, Object.class));
+      return (target, value) -> {
+        try {
+          setter.invokeExact(target, value);
+        } catch (Throwable ex) {
+          ReflectionUtils.rethrowRuntimeException(ex);
+        }
+      };
+    } catch (IllegalAccessException ex) {
+      // e.g. a final field, reflection can still write it once it is accessible
+      return (target, value) -> ReflectionUtils.setField(field, target, value);
+    }
+  }
+
+  private static Function<Object, Object> createMethodGetter(Method method) {
+    try {
+      MethodHandles.Lookup lookup = lookup(method.getDeclaringClass());
+      MethodHandle handle = lookup.unreflect(method);
+      CallSite site =
+          LambdaMetafactory.metafactory(
+              lookup,
+              "apply",
+              MethodType.methodType(Function.class),
+              MethodType.methodType(Object.class, Object.class),
+              handle,
+              MethodType.methodType(
+                  ClassUtils.resolvePrimitiveIfNecessary(method.getReturnType()),
+                  method.getDeclaringClass()));
+      return (Function<Object, Object>) site.getTarget().invokeExact();
+    } catch (Throwable ex) {
+      return target -> ReflectionUtils.invokeMethod(method, target);
+    }
+  }
+
+  private static BiConsumer<Object, Object> createMethodSetter(Method method) {
+    try {
+      MethodHandles.Lookup lookup = lookup(method.getDeclaringClass());
+      // the result of a fluent setter is discarded by the void method of BiConsumer
+      MethodHandle handle = lookup.unreflect(method);
+      CallSite site =
+          LambdaMetafactory.metafactory(
+              lookup,
+              "accept",
+              MethodType.methodType(BiConsumer.class),
+              MethodType.methodType(void.class, Object.class, Object.class),
+              handle,
+              MethodType.methodType(
+                  void.class,
+                  method.getDeclaringClass(),
+                  ClassUtils.resolvePrimitiveIfNecessary(method.getParameterTypes()[0])));
+      return (BiConsumer<Object, Object>) site.getTarget().invokeExact();
+    } catch (Throwable ex) {
+      return (target, value) -> ReflectionUtils.invokeMethod(method, target, value);
+    }
+  }
+
+  private static MethodHandles.Lookup lookup(Class<?> type) throws IllegalAccessException {
+    return MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+  }
+}
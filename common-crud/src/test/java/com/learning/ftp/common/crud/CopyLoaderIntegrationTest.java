@@ -0,0 +1,48 @@
+package com.learning.ftp.common.crud;
+
+import com.learning.ftp.common.crud.bulk.CopyLoader;
+import com.learning.ftp.common.crud.entity.Address;
+import com.learning.ftp.common.exception.FtpServiceException;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(classes = TestApplication.class)
+class CopyLoaderIntegrationTest {
+  @Autowired private CopyLoader copyLoader;
+
+  @Test
+  void givenEntities_whenWriteTo_thenQuotedCsvWithNullsEmpty() {
+    UUID id = UUID.randomUUID();
+    Address address = new Address();
+    address.setId(id);
+    address.setCity("Say \"Hi\", Hanoi");
+    Address empty = new Address();
+    empty.setId(UUID.randomUUID());
+    empty.setStreet("");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    copyLoader.copy(Address.class).writeTo(out, List.of(address, empty));
+
+    String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+    assertThat(lines.length, equalTo(2));
+    assertThat(lines[0], equalTo(String.format("\"%s\",\"Say \"\"Hi\"\", Hanoi\",,", id)));
+    assertThat(lines[1], equalTo(String.format("\"%s\",,,\"\"", empty.getId())));
+  }
+
+  @Test
+  void givenNotPostgres_whenExecute_thenThrow() {
+    Address address = new Address();
+    address.setId(UUID.randomUUID());
+
+    assertThrows(
+        FtpServiceException.class, () -> copyLoader.copy(Address.class).execute(List.of(address)));
+  }
+}
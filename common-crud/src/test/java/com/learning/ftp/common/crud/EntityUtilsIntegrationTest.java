@@ -0,0 +1,83 @@
+package com.learning.ftp.common.crud;
+
+import com.learning.ftp.common.crud.entity.Employee;
+import com.learning.ftp.common.crud.entity.Phone;
+import com.learning.ftp.common.crud.entity.SmallProject;
+import com.learning.ftp.common.crud.entity.UserDegree;
+import com.learning.ftp.common.crud.util.EntityMetadata;
+import com.learning.ftp.common.crud.util.EntityUtils;
+import com.learning.ftp.common.crud.util.TransactionHelper;
+import java.util.UUID;
+import javax.persistence.EntityManager;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.nullValue;
+import org.hibernate.Hibernate;
+import org.hibernate.proxy.HibernateProxy;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(classes = TestApplication.class)
+class EntityUtilsIntegrationTest {
+  @Autowired private EntityManager entityManager;
+  @Autowired private TransactionHelper transactionHelper;
+
+  @Test
+  void givenIdInEntitySuperclass_whenGetIdFieldName_thenInheritedId() {
+    assertThat(EntityUtils.getIdFieldName(SmallProject.class), equalTo("id"));
+    assertThat(
+        EntityMetadata.of(SmallProject.class).getIdField().getDeclaringClass().getSimpleName(),
+        equalTo("Project"));
+  }
+
+  @Test
+  void givenEmbeddedId_whenGetIdFieldName_thenEmbeddedIdField() {
+    assertThat(EntityUtils.getIdFieldName(UserDegree.class), equalTo("id"));
+  }
+
+  @Test
+  void givenNoIdField_whenGetIdFieldName_thenNull() {
+    assertThat(EntityUtils.getIdFieldName(String.class), nullValue());
+    assertThat(EntityUtils.getId("not an id"), nullValue());
+  }
+
+  @Test
+  void givenHibernateProxy_whenGetId_thenIdReadWithoutInitializing() {
+    UUID id = UUID.randomUUID();
+    transactionHelper.doInTransaction(
+        () -> {
+          Employee proxy = entityManager.getReference(Employee.class, id);
+
+          assertThat(proxy, instanceOf(HibernateProxy.class));
+          assertThat(EntityUtils.getId(proxy), equalTo(id));
+          assertThat(EntityUtils.isEntity(proxy), equalTo(true));
+          assertThat(Hibernate.isInitialized(proxy), equalTo(false));
+        });
+  }
+
+  @Test
+  void givenCollectionField_whenGetEntityArgumentType_thenElementType() {
+    assertThat(
+        EntityUtils.getEntityArgumentType(EntityUtils.getField(Employee.class, "phones")),
+        equalTo(Phone.class));
+  }
+
+  @Test
+  void givenNotParameterizedField_whenGetEntityArgumentType_thenNull() {
+    assertThat(
+        EntityUtils.getEntityArgumentType(EntityUtils.getField(Employee.class, "firstName")),
+        nullValue());
+    assertThat(
+        EntityUtils.getEntityArgumentType(EntityUtils.getField(Employee.class, "manager")),
+        nullValue());
+  }
+
+  @Test
+  void givenInheritedField_whenGetEntityArgumentType_thenResolvedOnDeclaringClass() {
+    assertThat(
+        EntityUtils.getEntityArgumentType(EntityUtils.getField(SmallProject.class, "employees")),
+        equalTo(Employee.class));
+  }
+}
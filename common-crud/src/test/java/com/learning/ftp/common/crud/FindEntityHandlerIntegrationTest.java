@@ -0,0 +1,569 @@
+package com.learning.ftp.common.crud;
+
+import com.learning.ftp.common.crud.condition.Condition;
+import com.learning.ftp.common.crud.condition.Conditions;
+import com.learning.ftp.common.crud.entity.Address;
+import com.learning.ftp.common.crud.entity.Employee;
+import com.learning.ftp.common.crud.entity.EmployeePeriod;
+import com.learning.ftp.common.crud.entity.Phone;
+import com.learning.ftp.common.crud.entity.Project;
+import static com.learning.ftp.common.crud.entity.Employee.Fields.address;
+import static com.learning.ftp.common.crud.entity.Employee.Fields.employees;
+import static com.learning.ftp.common.crud.entity.Employee.Fields.firstName;
+import static com.learning.ftp.common.crud.entity.Employee.Fields.hired;
+import static com.learning.ftp.common.crud.entity.Employee.Fields.id;
+import static com.learning.ftp.common.crud.entity.Employee.Fields.lastName;
+import static com.learning.ftp.common.crud.entity.Employee.Fields.period;
+import static com.learning.ftp.common.crud.entity.Employee.Fields.phones;
+import static com.learning.ftp.common.crud.entity.Employee.Fields.projects;
+import static com.learning.ftp.common.crud.entity.Employee.Fields.salary;
+import com.learning.ftp.common.crud.finding.CursorPage;
+import com.learning.ftp.common.crud.finding.FindAllEntityHandler;
+import com.learning.ftp.common.crud.finding.FindPageEntityHandler;
+import com.learning.ftp.common.crud.finding.FindQueryPlanCache;
+import com.learning.ftp.common.crud.finding.QueryContext;
+import com.learning.ftp.common.crud.finding.Sort;
+import com.learning.ftp.common.crud.repository.AddressRepository;
+import com.learning.ftp.common.crud.repository.EmployeeRepository;
+import com.learning.ftp.common.crud.repository.PhoneRepository;
+import com.learning.ftp.common.crud.repository.ProjectRepository;
+import com.learning.ftp.common.crud.util.TransactionHelper;
+import com.learning.ftp.common.exception.FtpServiceException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.test.context.TestContext;
+import org.springframework.test.context.TestExecutionListener;
+import org.springframework.test.context.TestExecutionListeners;
+import static org.springframework.test.context.TestExecutionListeners.MergeMode.MERGE_WITH_DEFAULTS;
+
+@SpringBootTest(classes = TestApplication.class)
+@TestExecutionListeners(
+    value = FindEntityHandlerIntegrationTest.class,
+    mergeMode = MERGE_WITH_DEFAULTS)
+class FindEntityHandlerIntegrationTest implements TestExecutionListener {
+  private static final String LAST_NAME = "Finder";
+  private static final Condition OWN_EMPLOYEES = Condition.field(lastName).equal(LAST_NAME);
+  private static final String TEAM_NAME = "Assembler";
+  private static final Instant HIRED = Instant.parse("2020-01-01T08:30:15.123Z");
+
+  @Autowired private EmployeeRepository employeeRepository;
+  @Autowired private PhoneRepository phoneRepository;
+  @Autowired private ProjectRepository projectRepository;
+  @Autowired private AddressRepository addressRepository;
+  @SuppressWarnings("deprecation")
+  @Autowired
+  private RepoService repoService;
+  @Autowired private TransactionHelper transactionHelper;
+
+  @Override
+  public void beforeTestClass(TestContext testContext) {
+    testContext.getApplicationContext().getAutowireCapableBeanFactory().autowireBean(this);
+    employeeRepository.deleteAll(
+        repoService.findAll(Employee.class).withCondition(OWN_EMPLOYEES).execute());
+    Stream.of(10.0, 10.0, 10.0, 20.0, 20.0, 30.0, 40.0, 40.0, 50.0, 60.0)
+        .forEach(this::createEmployee);
+    createTeam();
+  }
+
+  private void createEmployee(Double salary) {
+    Employee employee = new Employee();
+    employee.setId(UUID.randomUUID());
+    employee.setFirstName("Employee " + salary);
+    employee.setLastName(LAST_NAME);
+    employee.setSalary(salary);
+    employee.setHired(Date.from(HIRED.plus(salary.longValue(), ChronoUnit.DAYS)));
+    employeeRepository.save(employee);
+  }
+
+  // a manager with members owning 0, 1 and 2 phones
+  private void createTeam() {
+    Employee manager = new Employee();
+    manager.setId(UUID.randomUUID());
+    manager.setFirstName("Manager");
+    manager.setLastName(TEAM_NAME);
+    employeeRepository.save(manager);
+    for (int i = 0; i < 3; ++i) {
+      Employee member = new Employee();
+      member.setId(UUID.randomUUID());
+      member.setFirstName("Member " + i);
+      member.setLastName(TEAM_NAME);
+      member.setManager(manager);
+      EmployeePeriod period = new EmployeePeriod();
+      period.setStart(HIRED.plus(i, ChronoUnit.DAYS));
+      member.setPeriod(period);
+      employeeRepository.save(member);
+      for (int j = 0; j < i; ++j) {
+        Phone phone = new Phone();
+        phone.setId(UUID.randomUUID());
+        phone.setNumber(String.format("%d-%d", i, j));
+        phone.setOwner(member);
+        phoneRepository.save(phone);
+      }
+    }
+  }
+
+  @Test
+  void givenSortWithDuplicatedValues_whenPagingByCursor_thenSameOrderAsFindAll() {
+    List<UUID> expected =
+        repoService
+            .findAll(Employee.class)
+            .withCondition(OWN_EMPLOYEES)
+            .sortBy(Sort.desc(salary), Sort.asc(id))
+            .execute()
+            .stream()
+            .map(Employee::getId)
+            .collect(toList());
+
+    List<UUID> actual = new ArrayList<>();
+    List<Integer> sliceSizes = new ArrayList<>();
+    String cursor = null;
+    do {
+      CursorPage<Employee> slice =
+          repoService
+              .findPage(Employee.class)
+              .withCondition(OWN_EMPLOYEES)
+              .sortBy(Sort.desc(salary))
+              .withPageable(0, 4)
+              .withCursor(cursor)
+              .executeCursor();
+      slice.forEach(e -> actual.add(e.getId()));
+      sliceSizes.add(slice.getNumberOfElements());
+      cursor = slice.getNextCursor();
+    } while (cursor != null);
+
+    assertThat(actual, equalTo(expected));
+    assertThat(sliceSizes, equalTo(List.of(4, 4, 2)));
+  }
+
+  @Test
+  void givenDateSort_whenPagingByCursor_thenCursorDecodedToDate() {
+    List<UUID> expected =
+        repoService
+            .findAll(Employee.class)
+            .withCondition(OWN_EMPLOYEES)
+            .sortBy(Sort.asc(hired), Sort.asc(id))
+            .execute()
+            .stream()
+            .map(Employee::getId)
+            .collect(toList());
+
+    assertThat(findIdsByCursor(Sort.asc(hired), 4), equalTo(expected));
+  }
+
+  @Test
+  void givenCursorValues_whenPagingByCursor_thenReadAfterThatRow() {
+    CursorPage<Employee> slice =
+        repoService
+            .findPage(Employee.class)
+            .withCondition(OWN_EMPLOYEES)
+            .sortBy(Sort.asc(salary))
+            .withPageable(0, 10)
+            .withCursorValues(45.0, UUID.randomUUID())
+            .executeCursor();
+
+    assertThat(slice.getContent(), hasSize(2));
+    assertThat(slice.getContent().get(0).getSalary(), equalTo(50.0));
+    assertThat(slice.getNextCursor(), nullValue());
+  }
+
+  @Test
+  void givenOffsetPage_whenFindPage_thenPageContentAndTotalCorrect() {
+    Page<Employee> page =
+        repoService
+            .findPage(Employee.class)
+            .withCondition(OWN_EMPLOYEES)
+            .sortBy(Sort.asc(salary), Sort.asc(id))
+            .withPageable(1, 4)
+            .execute();
+
+    assertThat(page.getTotalElements(), equalTo(10L));
+    assertThat(
+        page.getContent().stream().map(Employee::getSalary).collect(toList()),
+        equalTo(List.of(20.0, 30.0, 40.0, 40.0)));
+  }
+
+  @Test
+  void givenWindowCount_whenFindPage_thenTotalReadFromIdsQuery() {
+    Page<Employee> page =
+        repoService
+            .findPage(Employee.class)
+            .withCondition(OWN_EMPLOYEES)
+            .sortBy(Sort.desc(salary), Sort.asc(id))
+            .withPageable(1, 3)
+            .withWindowCount()
+            .execute();
+
+    assertThat(page.getTotalElements(), equalTo(10L));
+    assertThat(page.getTotalPages(), equalTo(4));
+    assertThat(
+        page.getContent().stream().map(Employee::getSalary).collect(toList()),
+        equalTo(List.of(40.0, 30.0, 20.0)));
+  }
+
+  @Test
+  void givenReusedHandler_whenPagePastLastRow_thenTotalCountedForNewCondition() {
+    FindPageEntityHandler<Employee> handler =
+        repoService
+            .findPage(Employee.class)
+            .withCondition(OWN_EMPLOYEES)
+            .sortBy(Sort.asc(salary), Sort.asc(id))
+            .withPageable(0, 3)
+            .withWindowCount();
+    assertThat(handler.execute().getTotalElements(), equalTo(10L));
+
+    Page<Employee> page =
+        handler
+            .withCondition(Conditions.and(OWN_EMPLOYEES, Condition.field(salary).greaterThan(30.0)))
+            .withPageable(5, 3)
+            .execute();
+
+    assertThat(page.getContent(), hasSize(0));
+    assertThat(page.getTotalElements(), equalTo(4L));
+  }
+
+  @Test
+  void givenHandlerPagedByCursor_whenExecute_thenOffsetPageAndTotal() {
+    FindPageEntityHandler<Employee> handler =
+        repoService
+            .findPage(Employee.class)
+            .withCondition(OWN_EMPLOYEES)
+            .sortBy(Sort.asc(salary), Sort.asc(id))
+            .withPageable(1, 4)
+            .withWindowCount();
+    assertThat(handler.executeCursor().getContent(), hasSize(4));
+
+    Page<Employee> page = handler.execute();
+
+    assertThat(page.getTotalElements(), equalTo(10L));
+    assertThat(
+        page.getContent().stream().map(Employee::getSalary).collect(toList()),
+        equalTo(List.of(20.0, 30.0, 40.0, 40.0)));
+  }
+
+  @Test
+  void givenMoreIdsThanOneChunk_whenFindAllByIdParameters_thenAllMatched() {
+    List<UUID> ids =
+        repoService.findAll(Employee.class).withCondition(OWN_EMPLOYEES).execute().stream()
+            .map(Employee::getId)
+            .collect(toList());
+    List<UUID> range = new ArrayList<>(ids);
+    IntStream.range(0, 2500).forEach(i -> range.add(UUID.randomUUID()));
+
+    List<Employee> results =
+        repoService
+            .findAll(Employee.class)
+            .withCondition(Condition.field(id).inParameters(range))
+            .execute();
+
+    assertThat(results, hasSize(ids.size()));
+  }
+
+  @Test
+  void givenSameShapeWithOtherValues_whenFindAll_thenPlanReusedWithNewValues() {
+    List<Double> first = findSalaries(Conditions.and(OWN_EMPLOYEES, salaryBetween(15.0, 35.0)));
+    long hits = FindQueryPlanCache.getHits();
+    List<Double> second = findSalaries(Conditions.and(OWN_EMPLOYEES, salaryBetween(35.0, 55.0)));
+
+    assertThat(first, equalTo(List.of(20.0, 20.0, 30.0)));
+    assertThat(second, equalTo(List.of(40.0, 40.0, 50.0)));
+    assertThat(FindQueryPlanCache.getHits(), greaterThan(hits));
+  }
+
+  @Test
+  void givenCachedFieldsPlan_whenFindAllAgain_thenTuplesReadByAlias() {
+    FindQueryPlanCache.setEnabled(true);
+    Condition manager = Condition.field(firstName).equal("Manager");
+    List<Employee> first =
+        repoService.findAll(Employee.class, employees).withCondition(manager).execute();
+    long hits = FindQueryPlanCache.getHits();
+    List<Employee> second =
+        repoService.findAll(Employee.class, employees).withCondition(manager).execute();
+
+    assertThat(FindQueryPlanCache.getHits(), greaterThan(hits));
+    assertThat(second, hasSize(1));
+    assertThat(memberNames(second.get(0)), equalTo(memberNames(first.get(0))));
+    assertThat(memberNames(second.get(0)), equalTo(List.of("Member 0", "Member 1", "Member 2")));
+  }
+
+  @Test
+  @SuppressWarnings("deprecation")
+  void givenQueryContextCriteria_whenFindAllTwice_thenCriteriaAppliedEachTime() {
+    FindQueryPlanCache.setEnabled(true);
+    for (int i = 0; i < 2; ++i) {
+      List<Employee> employees =
+          new FindAllEntityHandler<Employee>(Employee.class, new String[] {}, repoService) {
+            @Override
+            protected Condition getMoreCriteria(QueryContext qc) {
+              return Condition.field(salary).greaterThan(45.0);
+            }
+          }.withCondition(OWN_EMPLOYEES).sortBy(Sort.asc(salary)).execute();
+
+      assertThat(salariesOf(employees), equalTo(List.of(50.0, 60.0)));
+    }
+  }
+
+  @Test
+  void givenParameterizedOperations_whenFindAll_thenValuesBound() {
+    assertThat(
+        findSalaries(
+            Conditions.and(
+                OWN_EMPLOYEES,
+                Condition.field(salary).greaterThan(30.0),
+                Condition.field(salary).notIn(List.of(40.0)),
+                Condition.field("firstName").like("employee 5"),
+                Condition.field("manager").isNull())),
+        equalTo(List.of(50.0)));
+  }
+
+  @Test
+  void givenNestedCollectionFields_whenFindAll_thenChildrenAssembledToTheirParents() {
+    List<Employee> managers =
+        repoService
+            .findAll(Employee.class, employees, employees + "." + phones)
+            .withCondition(Condition.field(firstName).equal("Manager"))
+            .execute();
+
+    assertThat(managers, hasSize(1));
+    Map<String, Integer> phoneCounts =
+        managers.get(0).getEmployees().stream()
+            .collect(toMap(Employee::getFirstName, e -> e.getPhones().size()));
+    assertThat(phoneCounts, equalTo(Map.of("Member 0", 0, "Member 1", 1, "Member 2", 2)));
+  }
+
+  @Test
+  void givenEmbeddableFieldsAcrossRows_whenFindAll_thenEmbeddableFilledOnce() {
+    List<Employee> members =
+        repoService
+            .findAll(Employee.class, phones, period, period + ".start")
+            .withCondition(Condition.field(lastName).equal(TEAM_NAME))
+            .sortBy(Sort.asc(firstName))
+            .execute();
+
+    assertThat(members, hasSize(4));
+    Employee member = members.get(3);
+    assertThat(member.getFirstName(), equalTo("Member 2"));
+    assertThat(member.getPhones(), hasSize(2));
+    assertThat(member.getPeriod().getStart(), equalTo(HIRED.plus(2, ChronoUnit.DAYS)));
+  }
+
+  @Test
+  void givenBatchSize_whenForEachBatch_thenAllEntitiesInOrderedBatches() {
+    List<List<Double>> batches = new ArrayList<>();
+    transactionHelper.doInTransaction(
+        () ->
+            repoService
+                .findAll(Employee.class)
+                .withCondition(OWN_EMPLOYEES)
+                .sortBy(Sort.asc(salary))
+                .forEachBatch(3, batch -> batches.add(salariesOf(batch))));
+
+    assertThat(
+        batches,
+        equalTo(
+            List.of(
+                List.of(10.0, 10.0, 10.0),
+                List.of(20.0, 20.0, 30.0),
+                List.of(40.0, 40.0, 50.0),
+                List.of(60.0))));
+  }
+
+  @Test
+  void givenFields_whenExecuteStream_thenFieldsLoadedPerBatch() {
+    Map<String, Integer> phoneCounts =
+        transactionHelper.doInTransaction(
+            () -> {
+              try (Stream<Employee> members =
+                  repoService
+                      .findAll(Employee.class, phones)
+                      .withCondition(Condition.field(firstName).in(List.of("Member 1", "Member 2")))
+                      .withFetchSize(1)
+                      .executeStream()) {
+                return members.collect(toMap(Employee::getFirstName, e -> e.getPhones().size()));
+              }
+            });
+
+    assertThat(phoneCounts, equalTo(Map.of("Member 1", 1, "Member 2", 2)));
+  }
+
+  @Test
+  void givenConsumerModifyingEntities_whenForEachBatch_thenChangesSaved() {
+    Instant start = Instant.parse("2021-06-01T00:00:00Z");
+    Condition team = Condition.field(lastName).equal(TEAM_NAME);
+    transactionHelper.doInTransaction(
+        () ->
+            repoService
+                .findAll(Employee.class)
+                .withCondition(team)
+                .forEachBatch(2, batch -> batch.forEach(e -> e.setStart(start))));
+
+    List<Employee> members = repoService.findAll(Employee.class).withCondition(team).execute();
+    assertThat(members, hasSize(4));
+    members.forEach(e -> assertThat(e.getStart(), equalTo(start)));
+  }
+
+  @Test
+  void givenEmptyLazyFields_whenExecuteStreamInBatches_thenAssociationsKeptInDatabase() {
+    Condition staffed = Condition.field(lastName).equal("Staffed");
+    createStaffedEmployees(3);
+
+    List<Employee> streamed = streamWithEmptyLazyFields(staffed);
+    List<Employee> streamedWithPhones = streamWithEmptyLazyFields(staffed, phones);
+
+    assertThat(streamed, hasSize(3));
+    streamed.forEach(e -> assertThat(e.getProjects(), nullValue()));
+    assertThat(streamedWithPhones, hasSize(3));
+    streamedWithPhones.forEach(e -> assertThat(e.getProjects(), nullValue()));
+    List<Employee> saved =
+        repoService.findAll(Employee.class, projects, address).withCondition(staffed).execute();
+    assertThat(saved, hasSize(3));
+    saved.forEach(
+        e -> {
+          assertThat(e.getProjects(), hasSize(1));
+          assertThat(e.getAddress(), notNullValue());
+        });
+  }
+
+  @Test
+  void givenConditionOnFetchedCollection_whenExecuteStream_thenSameChildrenAsExecute() {
+    Condition phoneNumber = Condition.field(phones + ".number").equal("2-1");
+    List<Employee> listed =
+        repoService.findAll(Employee.class, phones).withCondition(phoneNumber).execute();
+    List<Employee> streamed =
+        transactionHelper.doInTransaction(
+            () -> {
+              try (Stream<Employee> members =
+                  repoService
+                      .findAll(Employee.class, phones)
+                      .withCondition(phoneNumber)
+                      .executeStream()) {
+                return members.collect(toList());
+              }
+            });
+
+    assertThat(streamed, hasSize(1));
+    assertThat(phoneNumbers(streamed.get(0)), equalTo(List.of("2-1")));
+    assertThat(phoneNumbers(streamed.get(0)), equalTo(phoneNumbers(listed.get(0))));
+  }
+
+  @Test
+  void givenCollectionSort_whenForEachBatch_thenRejected() {
+    assertThrows(
+        FtpServiceException.class,
+        () ->
+            transactionHelper.doInTransaction(
+                () ->
+                    repoService
+                        .findAll(Employee.class)
+                        .withCondition(Condition.field(lastName).equal(TEAM_NAME))
+                        .sortBy(Sort.asc(phones + ".number"))
+                        .forEachBatch(2, batch -> {})));
+  }
+
+  @Test
+  void givenNoTransaction_whenExecuteStream_thenRejected() {
+    assertThrows(
+        FtpServiceException.class,
+        () -> repoService.findAll(Employee.class).withCondition(OWN_EMPLOYEES).executeStream());
+  }
+
+  private List<Employee> streamWithEmptyLazyFields(Condition condition, String... fields) {
+    return transactionHelper.doInTransaction(
+        () -> {
+          try (Stream<Employee> employees =
+              repoService
+                  .findAll(Employee.class, fields)
+                  .withCondition(condition)
+                  .setEmptyLazyFields()
+                  .withFetchSize(1)
+                  .executeStream()) {
+            return employees.collect(toList());
+          }
+        });
+  }
+
+  // employees working on one project, each with an address
+  private void createStaffedEmployees(int count) {
+    Project project = new Project();
+    project.setId(UUID.randomUUID());
+    project.setName("Staffing");
+    projectRepository.save(project);
+    for (int i = 0; i < count; ++i) {
+      Address home = new Address();
+      home.setId(UUID.randomUUID());
+      home.setCity("Hanoi");
+      addressRepository.save(home);
+      Employee employee = new Employee();
+      employee.setId(UUID.randomUUID());
+      employee.setFirstName("Staffed " + i);
+      employee.setLastName("Staffed");
+      employee.setAddress(home);
+      employee.setProjects(List.of(project));
+      employeeRepository.save(employee);
+    }
+  }
+
+  private static List<Double> salariesOf(List<Employee> employees) {
+    return employees.stream().map(Employee::getSalary).collect(toList());
+  }
+
+  private static List<String> phoneNumbers(Employee employee) {
+    return employee.getPhones().stream().map(Phone::getNumber).sorted().collect(toList());
+  }
+
+  private static List<String> memberNames(Employee manager) {
+    return manager.getEmployees().stream().map(Employee::getFirstName).sorted().collect(toList());
+  }
+
+  private static Condition salaryBetween(Double start, Double end) {
+    return Condition.field(salary).between(start, end);
+  }
+
+  private List<UUID> findIdsByCursor(Sort sort, int size) {
+    List<UUID> ids = new ArrayList<>();
+    String cursor = null;
+    do {
+      CursorPage<Employee> slice =
+          repoService
+              .findPage(Employee.class)
+              .withCondition(OWN_EMPLOYEES)
+              .sortBy(sort)
+              .withPageable(0, size)
+              .withCursor(cursor)
+              .executeCursor();
+      slice.forEach(e -> ids.add(e.getId()));
+      cursor = slice.getNextCursor();
+    } while (cursor != null);
+    return ids;
+  }
+
+  private List<Double> findSalaries(Condition condition) {
+    return repoService
+        .findAll(Employee.class)
+        .withCondition(condition)
+        .sortBy(Sort.asc(salary), Sort.asc(id))
+        .execute()
+        .stream()
+        .map(Employee::getSalary)
+        .collect(toList());
+  }
+}
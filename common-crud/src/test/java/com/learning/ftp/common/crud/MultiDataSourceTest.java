@@ -0,0 +1,498 @@
+package com.learning.ftp.common.crud;
+
+import com.learning.ftp.common.crud.configuration.property.ConnectionProperties;
+import com.learning.ftp.common.crud.configuration.property.ConnectionProperties.DataSourceProp;
+import com.learning.ftp.common.crud.datasource.MultiDataSource;
+import com.learning.ftp.common.crud.datasource.PoolStats;
+import com.learning.ftp.common.crud.datasource.ReplicaRouting;
+import com.learning.ftp.common.security.TenantContext;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Logger;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasKey;
+import static org.junit.jupiter.api.Assertions.fail;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class MultiDataSourceTest {
+  // short enough for the reaper to close the retired pools within a test, too long for idle ones
+  private static final Duration REAPED = Duration.ofSeconds(2);
+  private static final String SCHEMAS_URL = "jdbc:h2:mem:pools_schemas;DB_CLOSE_DELAY=-1";
+  private static final String SCHEMAS_POOL = "sa@jdbc:h2:mem:pools_schemas";
+  private static final String MOVED_URL = "jdbc:h2:mem:pools_moved;DB_CLOSE_DELAY=-1";
+  private static final String REPLICA_URL = "jdbc:h2:mem:pools_replica;DB_CLOSE_DELAY=-1";
+  private final List<MultiDataSource> dataSources = new ArrayList<>();
+
+  @BeforeEach
+  void syncReplica() throws SQLException {
+    setReplicaLag(0.0);
+  }
+
+  @AfterEach
+  void close() {
+    dataSources.forEach(MultiDataSource::close);
+  }
+
+  @Test
+  void givenTenants_whenNoConnection_thenNoPoolCreated() throws SQLException {
+    var dataSource = create(Duration.ZERO, tenant("default", 2), tenant("acme", 2));
+
+    assertThat(dataSource.getPoolStats().isEmpty(), equalTo(true));
+    connectAndClose(dataSource, "acme");
+
+    Map<String, PoolStats> stats = dataSource.getPoolStats();
+    assertThat(stats.keySet(), equalTo(Set.of("acme")));
+    assertThat(stats.get("acme").isStarted(), equalTo(true));
+    assertThat(stats.get("acme").getTenants(), equalTo(Set.of("acme")));
+  }
+
+  @Test
+  void givenIdleTimeout_whenPoolsIdle_thenClosedExceptDefault() throws Exception {
+    var dataSource = create(Duration.ofMillis(100), tenant("default", 2), tenant("acme", 2));
+
+    connectAndClose(dataSource, null);
+    connectAndClose(dataSource, "acme");
+    awaitUntil(() -> !dataSource.getPoolStats().containsKey("acme"));
+
+    assertThat(dataSource.getPoolStats().keySet(), equalTo(Set.of("default")));
+    connectAndClose(dataSource, "acme");
+    assertThat(dataSource.getPoolStats(), hasKey("acme"));
+  }
+
+  @Test
+  void givenBorrowedConnection_whenTenantChanged_thenOldPoolClosedOnceReturned()
+      throws Exception {
+    var dataSource = create(REAPED, tenant("default", 2), tenant("acme", 2));
+    Connection borrowed = connect(dataSource, "acme");
+
+    dataSource.addTenant(tenant("acme", 3));
+
+    PoolStats retired = dataSource.getPoolStats().get("acme");
+    assertThat(retired.getTenants(), equalTo(Set.of()));
+    assertThat(retired.getActiveConnections(), equalTo(1));
+    assertThat(borrowed.isValid(1), equalTo(true));
+    connectAndClose(dataSource, "acme");
+    assertThat(dataSource.getPoolStats().get("acme").getMaximumPoolSize(), equalTo(3));
+
+    borrowed.close();
+    awaitUntil(() -> !retired.isStarted());
+  }
+
+  @Test
+  void givenTenantRemoved_whenConnect_thenDefaultDataSource() throws Exception {
+    var dataSource = create(REAPED, tenant("default", 2), tenant("acme", 2));
+    connectAndClose(dataSource, "acme");
+
+    dataSource.removeTenant("acme");
+
+    assertThat(dataSource.getTenants(), equalTo(Set.of("default")));
+    assertThat(url(dataSource, "acme"), equalTo(url(dataSource, null)));
+    awaitUntil(() -> !dataSource.getPoolStats().containsKey("acme"));
+  }
+
+  @Test
+  void givenNewTenantList_whenSetTenants_thenOnlyChangedPoolsRetired() throws Exception {
+    var dataSource =
+        create(REAPED, tenant("default", 2), tenant("acme", 2), tenant("globex", 2));
+    connectAndClose(dataSource, "acme");
+    connectAndClose(dataSource, "globex");
+    PoolStats acme = dataSource.getPoolStats().get("acme");
+
+    dataSource.setTenants(List.of(tenant("default", 2), tenant("acme", 2), tenant("initech", 2)));
+
+    assertThat(dataSource.getTenants(), equalTo(Set.of("default", "acme", "initech")));
+    awaitUntil(() -> !dataSource.getPoolStats().containsKey("globex"));
+    assertThat(dataSource.getPoolStats().get("acme").isStarted(), equalTo(true));
+    assertThat(dataSource.getPoolStats().get("acme").getMaximumPoolSize(), equalTo(2));
+    assertThat(acme.isStarted(), equalTo(true));
+  }
+
+  @Test
+  void givenTenantsInSchemas_whenConnect_thenOnePoolSwitchedToEachSchema() throws SQLException {
+    createSchemas(SCHEMAS_URL, "acme", "globex");
+    var dataSource =
+        create(
+            Duration.ZERO,
+            tenant("default", 2),
+            inSchema(tenant("acme", 1), "acme"),
+            inSchema(tenant("globex", 1), "globex"));
+
+    for (int i = 0; i < 2; ++i) {
+      assertThat(companyOf(dataSource, "acme"), equalTo("ACME"));
+      assertThat(companyOf(dataSource, "globex"), equalTo("GLOBEX"));
+    }
+
+    Map<String, PoolStats> stats = dataSource.getPoolStats();
+    assertThat(stats.keySet(), equalTo(Set.of(SCHEMAS_POOL)));
+    assertThat(stats.values().iterator().next().getTenants(), equalTo(Set.of("acme", "globex")));
+    assertThat(stats.values().iterator().next().getTotalConnections(), equalTo(1));
+  }
+
+  @Test
+  void givenSwitchedConnection_whenRolledBack_thenSchemaKept() throws SQLException {
+    createSchemas(SCHEMAS_URL, "acme", "globex");
+    var dataSource =
+        create(
+            Duration.ZERO,
+            tenant("default", 2),
+            inSchema(tenant("acme", 1), "acme"),
+            inSchema(tenant("globex", 1), "globex"));
+    companyOf(dataSource, "acme");
+
+    try (Connection connection = connect(dataSource, "globex")) {
+      connection.rollback();
+      assertThat(connection.getSchema(), equalTo("globex"));
+    }
+    assertThat(companyOf(dataSource, "globex"), equalTo("GLOBEX"));
+    assertThat(companyOf(dataSource, "acme"), equalTo("ACME"));
+  }
+
+  @Test
+  void givenNewReplica_whenReadBeforeLagCheck_thenPrimaryServes() throws Exception {
+    var dataSource = create(Duration.ZERO, tenant("default", 2), withReplica(tenant("acme", 2)));
+
+    assertThat(readOnlyUrl(dataSource, "acme"), containsString("pools_acme"));
+    assertThat(replicaStats(dataSource).isAvailable(), equalTo(false));
+    awaitUntil(() -> replicaStats(dataSource).isAvailable());
+    assertThat(readOnlyUrl(dataSource, "acme"), containsString("pools_replica"));
+  }
+
+  @Test
+  void givenReplicaInSync_whenMarkedReadOnly_thenReplicaServes() throws Exception {
+    var dataSource = createWithAvailableReplica();
+
+    try (var ignored = TenantContext.bind("acme");
+        Connection connection = ReplicaRouting.readOnly(() -> getConnection(dataSource))) {
+      assertThat(connection.getMetaData().getURL(), containsString("pools_replica"));
+    }
+    assertThat(url(dataSource, "acme"), containsString("pools_acme"));
+  }
+
+  @Test
+  void givenReplicaLagging_whenReadOnly_thenPrimaryServes() throws Exception {
+    var dataSource = createWithAvailableReplica();
+
+    setReplicaLag(100.0);
+    awaitUntil(() -> !replicaStats(dataSource).isAvailable());
+
+    assertThat(readOnlyUrl(dataSource, "acme"), containsString("pools_acme"));
+    setReplicaLag(0.0);
+    awaitUntil(() -> replicaStats(dataSource).isAvailable());
+    assertThat(readOnlyUrl(dataSource, "acme"), containsString("pools_replica"));
+  }
+
+  @Test
+  void givenReplicaLagUnknown_whenReadOnly_thenPrimaryServes() throws Exception {
+    var dataSource = createWithAvailableReplica();
+
+    setReplicaLag(null);
+    awaitUntil(() -> !replicaStats(dataSource).isAvailable());
+    assertThat(readOnlyUrl(dataSource, "acme"), containsString("pools_acme"));
+
+    setReplicaLag(0.0);
+    awaitUntil(() -> replicaStats(dataSource).isAvailable());
+    clearReplicaLag();
+    awaitUntil(() -> !replicaStats(dataSource).isAvailable());
+    assertThat(readOnlyUrl(dataSource, "acme"), containsString("pools_acme"));
+  }
+
+  @Test
+  void givenTransactions_whenConnect_thenOnlyReadOnlyOnesOnReplica() throws Exception {
+    var dataSource = createWithAvailableReplica();
+
+    try {
+      TransactionSynchronizationManager.setActualTransactionActive(true);
+      assertThat(readOnlyUrl(dataSource, "acme"), containsString("pools_acme"));
+      TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+      assertThat(url(dataSource, "acme"), containsString("pools_replica"));
+    } finally {
+      TransactionSynchronizationManager.clear();
+    }
+  }
+
+  @Test
+  void givenTenantMovedWhileOnReplica_whenReplicaFails_thenServedByNewSettings()
+      throws Exception {
+    createSchemas(SCHEMAS_URL, "acme");
+    createSchemas(MOVED_URL, "acme");
+    // the replica is only used by the reader, the lag checks do not switch schemas
+    HookDriver.arm();
+    var dataSource =
+        create(
+            REAPED,
+            tenant("default", 2),
+            withReplica(inSchema(tenant("acme", 2), "acme"), HookDriver.URL));
+    readOnlyUrl(dataSource, "acme");
+    awaitUntil(() -> replicaStats(dataSource).isAvailable());
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<String> reader = executor.submit(() -> readOnlyUrl(dataSource, "acme"));
+      // the reader resolved the old route and is switching its replica connection to the schema
+      HookDriver.await(HookDriver.entered);
+      var moved = withReplica(inSchema(tenant("acme", 2), "acme"), HookDriver.URL);
+      moved.setJdbcUrl(MOVED_URL);
+      dataSource.addTenant(moved);
+      HookDriver.release.countDown();
+
+      // the old route would create the retired pool again and read the old database
+      assertThat(reader.get(10, SECONDS), containsString("pools_moved"));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private MultiDataSource createWithAvailableReplica() throws Exception {
+    var dataSource = create(Duration.ZERO, tenant("default", 2), withReplica(tenant("acme", 2)));
+    readOnlyUrl(dataSource, "acme");
+    awaitUntil(() -> replicaStats(dataSource).isAvailable());
+    return dataSource;
+  }
+
+  private MultiDataSource create(Duration poolIdleTimeout, DataSourceProp... tenants) {
+    var properties = new ConnectionProperties();
+    properties.setDatasources(List.of(tenants));
+    properties.setPoolIdleTimeout(poolIdleTimeout);
+    properties.setReplicaLagCheckInterval(Duration.ofMillis(50));
+    properties.setReplicaLagQuery("SELECT seconds FROM lag");
+    var dataSource = new MultiDataSource(properties);
+    dataSources.add(dataSource);
+    return dataSource;
+  }
+
+  private static DataSourceProp tenant(String company, int maximumPoolSize) {
+    var prop = new DataSourceProp();
+    prop.setCompany(company);
+    prop.setJdbcUrl("jdbc:h2:mem:pools_" + company + ";DB_CLOSE_DELAY=-1");
+    prop.setUsername("sa");
+    prop.setPassword("");
+    prop.setMaximumPoolSize(maximumPoolSize);
+    prop.setMinimumIdle(0);
+    return prop;
+  }
+
+  private static DataSourceProp inSchema(DataSourceProp prop, String schema) {
+    prop.setJdbcUrl(SCHEMAS_URL);
+    prop.setSchema(schema);
+    return prop;
+  }
+
+  private static void createSchemas(String url, String... schemas) throws SQLException {
+    try (Connection connection = DriverManager.getConnection(url, "sa", "");
+        Statement statement = connection.createStatement()) {
+      // quoted, the names stay lower case like those of Postgres
+      for (String schema : schemas) {
+        String table = "\"" + schema + "\".company";
+        statement.execute("CREATE SCHEMA IF NOT EXISTS \"" + schema + "\"");
+        statement.execute("CREATE TABLE IF NOT EXISTS " + table + " (name VARCHAR)");
+        statement.execute("DELETE FROM " + table);
+        statement.execute("INSERT INTO " + table + " VALUES ('" + schema.toUpperCase() + "')");
+      }
+    }
+  }
+
+  // the unqualified table is the one of the schema of the connection
+  private static String companyOf(MultiDataSource dataSource, String tenant)
+      throws SQLException {
+    try (Connection connection = connect(dataSource, tenant);
+        Statement statement = connection.createStatement();
+        ResultSet rs = statement.executeQuery("SELECT name FROM company")) {
+      rs.next();
+      return rs.getString(1);
+    }
+  }
+
+  private static DataSourceProp withReplica(DataSourceProp prop) {
+    return withReplica(prop, REPLICA_URL);
+  }
+
+  private static DataSourceProp withReplica(DataSourceProp prop, String replicaUrl) {
+    prop.setReplicaUrls(List.of(replicaUrl));
+    return prop;
+  }
+
+  // a null lag is unknown, like the one of a replica which never replayed a transaction
+  private static void setReplicaLag(Double seconds) throws SQLException {
+    clearReplicaLag();
+    try (Connection connection = DriverManager.getConnection(REPLICA_URL, "sa", "");
+        Statement statement = connection.createStatement()) {
+      statement.execute("INSERT INTO lag VALUES (" + seconds + ")");
+    }
+  }
+
+  private static void clearReplicaLag() throws SQLException {
+    try (Connection connection = DriverManager.getConnection(REPLICA_URL, "sa", "");
+        Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE IF NOT EXISTS lag (seconds DOUBLE)");
+      statement.execute("DELETE FROM lag");
+    }
+  }
+
+  private static PoolStats replicaStats(MultiDataSource dataSource) {
+    return dataSource.getPoolStats().values().stream()
+        .filter(PoolStats::isReplica)
+        .findFirst()
+        .orElseThrow();
+  }
+
+  private static Connection connect(MultiDataSource dataSource, String tenant)
+      throws SQLException {
+    try (var ignored = TenantContext.bind(tenant)) {
+      return dataSource.getConnection();
+    }
+  }
+
+  private static void connectAndClose(MultiDataSource dataSource, String tenant)
+      throws SQLException {
+    connect(dataSource, tenant).close();
+  }
+
+  private static String url(MultiDataSource dataSource, String tenant) throws SQLException {
+    try (Connection connection = connect(dataSource, tenant)) {
+      return connection.getMetaData().getURL();
+    }
+  }
+
+  private static String readOnlyUrl(MultiDataSource dataSource, String tenant)
+      throws SQLException {
+    try (var ignored = TenantContext.bind(tenant);
+        Connection connection = ReplicaRouting.readOnly(() -> getConnection(dataSource))) {
+      return connection.getMetaData().getURL();
+    }
+  }
+
+  private static Connection getConnection(MultiDataSource dataSource) {
+    try {
+      return dataSource.getConnection();
+    } catch (SQLException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + SECONDS.toNanos(10);
+    while (!condition.getAsBoolean()) {
+      if (System.nanoTime() - deadline > 0) {
+        fail("Condition not met in time");
+      }
+      Thread.sleep(10);
+    }
+  }
+
+  /**
+   * A driver of the {@code jdbc:hook:} urls opening the H2 database of the rest of the url. Once
+   * armed, the next schema switch of one of its connections waits for the test, then fails.
+   */
+  public static class HookDriver implements Driver {
+    private static final String PREFIX = "jdbc:hook:";
+    private static final String URL = PREFIX + "mem:pools_replica;DB_CLOSE_DELAY=-1";
+    private static final AtomicBoolean isArmed = new AtomicBoolean();
+    private static CountDownLatch entered;
+    private static CountDownLatch release;
+
+    static {
+      try {
+        DriverManager.registerDriver(new HookDriver());
+      } catch (SQLException e) {
+        throw new ExceptionInInitializerError(e);
+      }
+    }
+
+    static void arm() {
+      entered = new CountDownLatch(1);
+      release = new CountDownLatch(1);
+      isArmed.set(true);
+    }
+
+    static void await(CountDownLatch latch) {
+      try {
+        if (!latch.await(10, SECONDS)) {
+          throw new IllegalStateException("Latch not released");
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(e);
+      }
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+      if (!acceptsURL(url)) {
+        return null;
+      }
+      String h2Url = "jdbc:h2:" + url.substring(PREFIX.length());
+      Connection h2 = DriverManager.getConnection(h2Url, info);
+      return (Connection)
+          Proxy.newProxyInstance(
+              getClass().getClassLoader(),
+              new Class<?>[] {Connection.class},
+              (proxy, method, args) -> {
+                if (method.getName().equals("setSchema") && isArmed.compareAndSet(true, false)) {
+                  entered.countDown();
+                  await(release);
+                  throw new SQLException("Replica is down");
+                }
+                try {
+                  return method.invoke(h2, args);
+                } catch (InvocationTargetException e) {
+                  throw e.getCause();
+                }
+              });
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+      return url.startsWith(PREFIX);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+      return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+      return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+      return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+      return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+      throw new SQLFeatureNotSupportedException();
+    }
+  }
+}
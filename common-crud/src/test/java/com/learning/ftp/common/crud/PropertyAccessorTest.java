@@ -0,0 +1,230 @@
+package com.learning.ftp.common.crud;
+
+import com.learning.ftp.common.crud.entity.Employee;
+import com.learning.ftp.common.crud.entity.Phone;
+import com.learning.ftp.common.crud.entity.UserDegree;
+import com.learning.ftp.common.crud.entity.UserDegreeId;
+import com.learning.ftp.common.crud.util.EntityMetadata;
+import com.learning.ftp.common.crud.util.EntityUtils;
+import com.learning.ftp.common.crud.util.PropertyAccessor;
+import java.awt.Point;
+import java.beans.PropertyDescriptor;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.BeanUtils;
+
+class PropertyAccessorTest {
+
+  @Test
+  void givenPrivateField_whenAccessByField_thenReadAndWritten() throws Exception {
+    Bean bean = new Bean();
+    PropertyAccessor accessor = PropertyAccessor.ofField(Bean.class.getDeclaredField("name"));
+
+    accessor.set(bean, "written");
+
+    assertThat(bean.name, equalTo("written"));
+    assertThat(accessor.get(bean), equalTo("written"));
+  }
+
+  @Test
+  void givenPrimitiveField_whenAccessByField_thenBoxedValue() throws Exception {
+    Bean bean = new Bean();
+    PropertyAccessor accessor = PropertyAccessor.ofField(Bean.class.getDeclaredField("size"));
+
+    accessor.set(bean, 3);
+
+    assertThat(bean.size, equalTo(3));
+    assertThat(accessor.get(bean), equalTo(3));
+  }
+
+  @Test
+  void givenFinalField_whenSetByFieldAccessor_thenWrittenByReflection() {
+    Bean bean = new Bean();
+    PropertyAccessor accessor = EntityMetadata.of(Bean.class).getFieldAccessor("code");
+
+    accessor.set(bean, "changed");
+
+    assertThat(accessor.get(bean), equalTo("changed"));
+  }
+
+  @Test
+  void givenBeanProperties_whenAccessByProperty_thenGettersAndSettersCalled() {
+    Bean bean = new Bean();
+    PropertyAccessor name = EntityMetadata.of(Bean.class).getProperties().get("name");
+    PropertyAccessor count = EntityMetadata.of(Bean.class).getProperties().get("count");
+
+    name.set(bean, "set");
+    count.set(bean, 5);
+
+    assertThat(bean.nameSetterCalls, equalTo(1));
+    assertThat(name.get(bean), equalTo("set"));
+    assertThat(count.get(bean), equalTo(5));
+  }
+
+  @Test
+  void givenFluentSetter_whenAccessByProperty_thenResultDiscarded() {
+    Bean bean = new Bean();
+    PropertyAccessor label = EntityMetadata.of(Bean.class).getProperties().get("label");
+
+    label.set(bean, "fluent");
+
+    assertThat(label.isWritable(), equalTo(true));
+    assertThat(bean.getLabel(), equalTo("fluent"));
+  }
+
+  @Test
+  void givenReadOnlyProperty_whenAccessByProperty_thenNotWritable() {
+    PropertyAccessor code = EntityMetadata.of(Bean.class).getProperties().get("code");
+
+    assertThat(code.isReadable(), equalTo(true));
+    assertThat(code.isWritable(), equalTo(false));
+  }
+
+  @Test
+  void givenJdkClass_whenAccessed_thenFallBackToReflection() throws Exception {
+    Date date = new Date(0);
+    PropertyDescriptor time = BeanUtils.getPropertyDescriptor(Date.class, "time");
+    PropertyAccessor timeAccessor = PropertyAccessor.ofProperty(time);
+    Point point = new Point();
+    PropertyAccessor x = PropertyAccessor.ofField(Point.class.getField("x"));
+
+    timeAccessor.set(date, 1000L);
+    x.set(point, 7);
+
+    assertThat(timeAccessor.get(date), equalTo(1000L));
+    assertThat(x.get(point), equalTo(7));
+    assertThat(point.x, equalTo(7));
+  }
+
+  @Test
+  void givenEmbeddedId_whenSetId_thenIdReplaced() {
+    UserDegree userDegree = new UserDegree();
+    UserDegreeId id = new UserDegreeId(UUID.randomUUID(), UUID.randomUUID());
+
+    EntityUtils.setId(userDegree, id);
+
+    assertThat(userDegree.getId(), sameInstance(id));
+    assertThat(EntityUtils.getId(userDegree), equalTo(id));
+  }
+
+  @Test
+  void givenNullSourceValues_whenMerge_thenTargetValuesKept() {
+    Bean source = new Bean();
+    source.setCount(9);
+    Bean target = new Bean();
+    target.setName("kept");
+    target.setLabel("kept label");
+
+    EntityUtils.merge(source, target);
+
+    assertThat(target.getName(), equalTo("kept"));
+    assertThat(target.getLabel(), equalTo("kept label"));
+    assertThat(target.getCount(), equalTo(9));
+  }
+
+  @Test
+  void givenIgnoredAndOtherTypedProperties_whenMerge_thenConvertedOrSkipped() {
+    TextBean source = new TextBean();
+    source.setName("ignored");
+    source.setCount("12");
+    Bean target = new Bean();
+    target.setName("target");
+
+    EntityUtils.merge(source, target, "name");
+
+    assertThat(target.getName(), equalTo("target"));
+    assertThat(target.getCount(), equalTo(12));
+  }
+
+  // like before the accessors, a null target value is still filled from the source
+  @Test
+  void givenIgnoredPropertyNullInTarget_whenMerge_thenFilledFromSource() {
+    TextBean source = new TextBean();
+    source.setName("filled");
+    Bean target = new Bean();
+
+    EntityUtils.merge(source, target, "name");
+
+    assertThat(target.getName(), equalTo("filled"));
+  }
+
+  @Test
+  void givenEntityCollections_whenMerge_thenTargetCollectionKept() {
+    Employee source = new Employee();
+    source.setFirstName("Merged");
+    source.setPhones(List.of(new Phone(), new Phone()));
+    Employee target = new Employee();
+    List<Phone> targetPhones = List.of(new Phone());
+    target.setPhones(targetPhones);
+
+    EntityUtils.merge(source, target);
+
+    assertThat(target.getFirstName(), equalTo("Merged"));
+    assertThat(target.getPhones(), sameInstance(targetPhones));
+  }
+
+  private static class Bean {
+    private final String code = "initial";
+    private String name;
+    private Integer count;
+    private int size;
+    private String label;
+    private int nameSetterCalls;
+
+    public String getCode() {
+      return code;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+      nameSetterCalls++;
+    }
+
+    public Integer getCount() {
+      return count;
+    }
+
+    public void setCount(Integer count) {
+      this.count = count;
+    }
+
+    public String getLabel() {
+      return label;
+    }
+
+    public Bean setLabel(String label) {
+      this.label = label;
+      return this;
+    }
+  }
+
+  private static class TextBean {
+    private String name;
+    private String count;
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public String getCount() {
+      return count;
+    }
+
+    public void setCount(String count) {
+      this.count = count;
+    }
+  }
+}
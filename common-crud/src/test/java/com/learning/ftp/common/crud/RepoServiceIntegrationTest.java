@@ -0,0 +1,240 @@
+package com.learning.ftp.common.crud;
+
+import com.learning.ftp.common.crud.bulk.BulkWriteResult;
+import com.learning.ftp.common.crud.condition.Condition;
+import com.learning.ftp.common.crud.entity.Address;
+import com.learning.ftp.common.crud.entity.Employee;
+import com.learning.ftp.common.crud.entity.Ticket;
+import static com.learning.ftp.common.crud.entity.Employee.Fields.lastName;
+import com.learning.ftp.common.exception.FtpServiceException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import static java.util.stream.Collectors.toList;
+import java.util.stream.IntStream;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(classes = TestApplication.class)
+class RepoServiceIntegrationTest {
+  @SuppressWarnings("deprecation")
+  @Autowired
+  private RepoService repoService;
+
+  @Test
+  void givenMoreEntitiesThanOneBatch_whenBulkInsert_thenAllInsertedByType() {
+    String name = "BulkInsert";
+    List<Object> entities = new ArrayList<>();
+    IntStream.range(0, 1201)
+        .forEach(
+            i -> {
+              Address address = new Address();
+              address.setId(UUID.randomUUID());
+              address.setCity(name);
+              entities.add(address);
+              entities.add(createEmployee(name, i, address));
+            });
+
+    BulkWriteResult result = repoService.bulkInsert(entities, 500);
+
+    assertThat(result.getRows(), equalTo(2402));
+    assertThat(result.getRowsByType(), equalTo(Map.of(Address.class, 1201, Employee.class, 1201)));
+    assertThat(result.getRowsPerSecond(), greaterThan(0.0));
+    assertThat(findEmployees(name), hasSize(1201));
+  }
+
+  @Test
+  void givenDetachedEntities_whenBulkUpdate_thenAllUpdated() {
+    String name = "BulkUpdate";
+    List<Employee> employees = createEmployees(name, 30);
+    repoService.bulkInsert(employees);
+    employees.forEach(e -> e.setSalary(e.getSalary() + 1000));
+
+    BulkWriteResult result = repoService.bulkUpdate(employees, 7);
+
+    assertThat(result.getRows(), equalTo(30));
+    assertThat(
+        findEmployees(name).stream().map(Employee::getSalary).collect(toList()),
+        everyItem(greaterThan(999.0)));
+  }
+
+  @Test
+  void givenNotAnEntity_whenBulkInsert_thenThrow() {
+    assertThrows(FtpServiceException.class, () -> repoService.bulkInsert(List.of("text")));
+  }
+
+  @Test
+  void givenCondition_whenDeleteBy_thenMatchingRowsDeleted() {
+    String name = "DeleteBy";
+    repoService.bulkInsert(createEmployees(name, 12));
+    repoService.bulkInsert(createEmployees(name + "Kept", 3));
+
+    int rows = repoService.deleteBy(Employee.class, Condition.field(lastName).equal(name));
+
+    assertThat(rows, equalTo(12));
+    assertThat(findEmployees(name), hasSize(0));
+    assertThat(findEmployees(name + "Kept"), hasSize(3));
+  }
+
+  @Test
+  void givenConditionOnJoinedEntity_whenDeleteBy_thenMatchingRowsDeleted() {
+    String name = "DeleteByJoin";
+    Address address = new Address();
+    address.setId(UUID.randomUUID());
+    address.setCity(name);
+    List<Object> entities = new ArrayList<>(List.of(address));
+    IntStream.range(0, 5).forEach(i -> entities.add(createEmployee(name, i, address)));
+    repoService.bulkInsert(entities);
+
+    int rows = repoService.deleteBy(Employee.class, Condition.field("address.city").equal(name));
+
+    assertThat(rows, equalTo(5));
+    assertThat(findEmployees(name), hasSize(0));
+  }
+
+  @Test
+  void givenChunkSize_whenDeleteBy_thenAllMatchingRowsDeleted() {
+    String name = "DeleteByChunk";
+    repoService.bulkInsert(createEmployees(name, 25));
+
+    int rows = repoService.deleteBy(Employee.class, Condition.field(lastName).equal(name), 10);
+
+    assertThat(rows, equalTo(25));
+    assertThat(findEmployees(name), hasSize(0));
+  }
+
+  @Test
+  void givenIds_whenDeleteAllByIds_thenDeletedInChunks() {
+    String name = "DeleteAllByIds";
+    List<Employee> employees = createEmployees(name, 30);
+    repoService.bulkInsert(employees);
+    List<Object> ids = employees.stream().map(Employee::getId).collect(toList());
+
+    int rows = repoService.deleteAllByIds(Employee.class, ids.subList(0, 23), 7);
+
+    assertThat(rows, equalTo(23));
+    assertThat(findEmployees(name), hasSize(7));
+  }
+
+  @Test
+  void givenNoCondition_whenDeleteBy_thenThrow() {
+    assertThrows(
+        FtpServiceException.class, () -> repoService.deleteBy(Employee.class, lastName, null));
+  }
+
+  @Test
+  void givenVersionedEntities_whenUpdateWhere_thenSetAndVersionIncremented() {
+    String title = "UpdateWhere";
+    List<Ticket> tickets =
+        IntStream.range(0, 6)
+            .mapToObj(
+                i -> {
+                  Ticket ticket = new Ticket();
+                  ticket.setId(UUID.randomUUID());
+                  ticket.setTitle(i < 4 ? title : title + "Kept");
+                  ticket.setStatus("open");
+                  ticket.setUpdatedBy("alice");
+                  return ticket;
+                })
+            .collect(toList());
+    repoService.bulkInsert(tickets);
+
+    int rows =
+        repoService.updateWhere(
+            Ticket.class,
+            Condition.field(Ticket.Fields.title).equal(title),
+            Map.of(Ticket.Fields.status, "closed"));
+
+    assertThat(rows, equalTo(4));
+    List<Ticket> updated =
+        repoService
+            .findAll(Ticket.class)
+            .withCondition(Condition.field(Ticket.Fields.status).equal("closed"))
+            .execute();
+    assertThat(updated, hasSize(4));
+    assertThat(updated.stream().map(Ticket::getVersion).collect(toList()), everyItem(equalTo(1L)));
+    assertThat(
+        updated.stream().map(Ticket::getUpdatedTime).collect(toList()),
+        everyItem(notNullValue()));
+    assertThat(
+        updated.stream().map(Ticket::getUpdatedBy).collect(toList()), everyItem(equalTo("alice")));
+
+    repoService.updateWhere(
+        Ticket.class,
+        Condition.field(Ticket.Fields.title).equal(title),
+        Map.of(Ticket.Fields.status, "done", "updatedBy", "bob"));
+
+    List<Ticket> reassigned =
+        repoService
+            .findAll(Ticket.class)
+            .withCondition(Condition.field("updatedBy").equal("bob"))
+            .execute();
+    assertThat(reassigned, hasSize(4));
+  }
+
+  @Test
+  void givenConditionOnJoinedEntity_whenUpdateWhere_thenValuesConverted() {
+    String name = "UpdateWhereJoin";
+    Address address = new Address();
+    address.setId(UUID.randomUUID());
+    address.setCity(name);
+    List<Object> entities = new ArrayList<>(List.of(address));
+    IntStream.range(0, 5).forEach(i -> entities.add(createEmployee(name, i, address)));
+    repoService.bulkInsert(entities);
+
+    int rows =
+        repoService.updateWhere(
+            Employee.class,
+            Condition.field("address.city").equal(name),
+            Map.of(Employee.Fields.salary, "2000"));
+
+    assertThat(rows, equalTo(5));
+    assertThat(
+        findEmployees(name).stream().map(Employee::getSalary).collect(toList()),
+        everyItem(equalTo(2000.0)));
+  }
+
+  @Test
+  void givenVersionAssigned_whenUpdateWhere_thenThrow() {
+    Condition condition = Condition.field(Ticket.Fields.title).equal("UpdateWhereVersion");
+
+    assertThrows(
+        FtpServiceException.class,
+        () -> repoService.updateWhere(Ticket.class, condition, Map.of("version", 5L)));
+    assertThrows(
+        FtpServiceException.class,
+        () -> repoService.updateWhere(Ticket.class, condition, Map.of()));
+  }
+
+  private static List<Employee> createEmployees(String name, int count) {
+    return IntStream.range(0, count)
+        .mapToObj(i -> createEmployee(name, i, null))
+        .collect(toList());
+  }
+
+  private static Employee createEmployee(String name, int index, Address address) {
+    Employee employee = new Employee();
+    employee.setId(UUID.randomUUID());
+    employee.setFirstName(name + " " + index);
+    employee.setLastName(name);
+    employee.setSalary((double) index);
+    employee.setAddress(address);
+    return employee;
+  }
+
+  private List<Employee> findEmployees(String name) {
+    return repoService
+        .findAll(Employee.class)
+        .withCondition(Condition.field(lastName).equal(name))
+        .execute();
+  }
+}
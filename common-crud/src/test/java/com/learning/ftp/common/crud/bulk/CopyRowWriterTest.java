@@ -0,0 +1,133 @@
+package com.learning.ftp.common.crud.bulk;
+
+import com.learning.ftp.common.exception.FtpServiceException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+class CopyRowWriterTest {
+  private static final String HEADER = "5047434f50590aff0d0a00 00000000 00000000";
+  private static final String TRAILER = "ffff";
+  private static final int FIELD_START = 21;
+
+  @Test
+  void givenRowWithNull_whenWriteBinary_thenHeaderFieldCountAndTrailer() throws IOException {
+    var out = new ByteArrayOutputStream();
+    var writer =
+        CopyRowWriter.of(
+            CopyFormat.BINARY, List.of("id", "name"), new String[] {"int4", "text"}, out);
+
+    writer.writeRow(new Object[] {7, null});
+    writer.finish();
+
+    assertThat(
+        toHex(out.toByteArray()),
+        equalTo(hex(HEADER, "0002 00000004 00000007 ffffffff", TRAILER)));
+  }
+
+  @Test
+  void givenNumerics_whenWriteBinary_thenBase10000DigitsWeightSignAndScale() throws IOException {
+    // length, digit count, weight, sign, scale and the digits from the most significant
+    assertThat(
+        field("numeric", new BigDecimal("12345.678")),
+        equalTo(hex("0000000e 0003 0001 0000 0003 0001 0929 1a7c")));
+    assertThat(
+        field("numeric", new BigDecimal("-0.5")),
+        equalTo(hex("0000000a 0001 ffff 4000 0001 1388")));
+    assertThat(
+        field("numeric", new BigDecimal("10000")),
+        equalTo(hex("0000000a 0001 0001 0000 0000 0001")));
+    assertThat(field("numeric", 100L), equalTo(hex("0000000a 0001 0000 0000 0000 0064")));
+    assertThat(field("numeric", BigDecimal.ZERO), equalTo(hex("00000008 0000 0000 0000 0000")));
+  }
+
+  @Test
+  void givenTimestamps_whenWriteBinary_thenMicrosFromPostgresEpoch() throws IOException {
+    var dayAndMicro = LocalDateTime.of(2000, 1, 2, 0, 0, 0, 1000);
+
+    assertThat(field("timestamp", dayAndMicro), equalTo(hex("00000008 000000141dd76001")));
+    assertThat(
+        field("timestamptz", OffsetDateTime.of(2000, 1, 1, 1, 0, 0, 0, ZoneOffset.ofHours(1))),
+        equalTo(hex("00000008 0000000000000000")));
+    assertThat(
+        field("timestamptz", Instant.parse("1999-12-31T23:59:59Z")),
+        equalTo(hex("00000008 fffffffffff0bdc0")));
+  }
+
+  @Test
+  void givenDates_whenWriteBinary_thenDaysFromPostgresEpoch() throws IOException {
+    assertThat(field("date", LocalDate.of(2000, 1, 1)), equalTo(hex("00000004 00000000")));
+    assertThat(field("date", LocalDate.of(1999, 12, 31)), equalTo(hex("00000004 ffffffff")));
+    assertThat(field("date", LocalDate.of(2024, 1, 1)), equalTo(hex("00000004 0000223e")));
+  }
+
+  @Test
+  void givenUuidOrItsBytes_whenWriteBinary_thenSixteenBytesInOrder() throws IOException {
+    var uuid = UUID.fromString("00112233-4455-6677-8899-aabbccddeeff");
+    String expected = hex("00000010 00112233445566778899aabbccddeeff");
+
+    assertThat(field("uuid", uuid), equalTo(expected));
+    assertThat(field("uuid", fromHex("00112233445566778899aabbccddeeff")), equalTo(expected));
+    assertThat(field("uuid", uuid.toString()), equalTo(expected));
+  }
+
+  @Test
+  void givenJson_whenWriteBinary_thenJsonbPrefixedWithVersion() throws IOException {
+    assertThat(field("jsonb", "{\"a\":1}"), equalTo(hex("00000008 01 7b2261223a317d")));
+    assertThat(field("json", "{\"a\":1}"), equalTo(hex("00000007 7b2261223a317d")));
+  }
+
+  @Test
+  void givenUnsupportedType_whenWriteBinary_thenThrow() throws IOException {
+    var writer =
+        CopyRowWriter.of(
+            CopyFormat.BINARY,
+            List.of("shape"),
+            new String[] {"polygon"},
+            new ByteArrayOutputStream());
+
+    assertThrows(FtpServiceException.class, () -> writer.writeRow(new Object[] {"(0,0)"}));
+  }
+
+  // the bytes of the only field of a row, without the header, the field count and the trailer
+  private static String field(String type, Object value) throws IOException {
+    var out = new ByteArrayOutputStream();
+    var writer = CopyRowWriter.of(CopyFormat.BINARY, List.of("value"), new String[] {type}, out);
+    writer.writeRow(new Object[] {value});
+    writer.finish();
+    byte[] bytes = out.toByteArray();
+    return toHex(Arrays.copyOfRange(bytes, FIELD_START, bytes.length - 2));
+  }
+
+  private static String hex(String... parts) {
+    return String.join("", parts).replace(" ", "");
+  }
+
+  private static String toHex(byte[] bytes) {
+    var hex = new StringBuilder();
+    for (byte b : bytes) {
+      hex.append(String.format("%02x", b));
+    }
+    return hex.toString();
+  }
+
+  private static byte[] fromHex(String hex) {
+    byte[] bytes = new byte[hex.length() / 2];
+    for (int i = 0; i < bytes.length; ++i) {
+      bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+    }
+    return bytes;
+  }
+}
@@ -2,8 +2,12 @@ package com.learning.ftp.common.crud.entity;
 
 import java.time.Instant;
 import java.time.ZonedDateTime;
+import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import javax.persistence.AttributeOverride;
+import javax.persistence.Column;
+import javax.persistence.Embedded;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.Id;
@@ -13,6 +17,8 @@ import javax.persistence.ManyToMany;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
@@ -39,6 +45,14 @@ public class Employee {
 
   private ZonedDateTime birthday;
 
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date hired;
+
+  @Embedded
+  @AttributeOverride(name = "start", column = @Column(name = "PERIOD_START"))
+  @AttributeOverride(name = "end", column = @Column(name = "PERIOD_END"))
+  private EmployeePeriod period;
+
   @OneToOne(fetch = FetchType.LAZY)
   @JoinColumn(name= "ADDRESS_ID")
   private Address address;
@@ -3,8 +3,10 @@ package com.learning.ftp.common.crud.entity;
 import lombok.Data;
 
 import java.time.Instant;
+import javax.persistence.Embeddable;
 
 @Data
+@Embeddable
 public class EmployeePeriod {
 
   private Instant start;
@@ -0,0 +1,23 @@
+package com.learning.ftp.common.crud.entity;
+
+import com.learning.ftp.common.crud.BaseEntity;
+import java.util.UUID;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.FieldNameConstants;
+
+@Entity
+@Getter
+@Setter
+@FieldNameConstants
+public class Ticket extends BaseEntity {
+
+  @Id
+  private UUID id;
+
+  private String title;
+
+  private String status;
+}
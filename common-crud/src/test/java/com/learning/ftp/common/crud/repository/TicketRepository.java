@@ -0,0 +1,8 @@
+package com.learning.ftp.common.crud.repository;
+
+import com.learning.ftp.common.crud.entity.Ticket;
+
+import java.util.UUID;
+
+public interface TicketRepository extends IBaseRepository<Ticket, UUID> {
+}
@@ -0,0 +1,141 @@
+package com.learning.ftp.common.crud.telemetry;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.learning.ftp.common.crud.telemetry.QueryTelemetry.Kind;
+import java.time.Duration;
+import java.util.List;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+class QueryTelemetryTest {
+  private static final String SQL = "SELECT * FROM users WHERE email = 'alice@example.com'";
+  private static final String SHAPE = "select * from users where email = ?";
+
+  private final Logger logger = (Logger) LoggerFactory.getLogger(QueryTelemetry.class);
+  private final ListAppender<ILoggingEvent> logs = new ListAppender<>();
+  private final Duration slowQueryThreshold = QueryTelemetry.getSlowQueryThreshold();
+
+  @BeforeEach
+  void setUp() {
+    QueryTelemetry.clear();
+    logs.start();
+    logger.addAppender(logs);
+  }
+
+  @AfterEach
+  void tearDown() {
+    logger.detachAppender(logs);
+    QueryTelemetry.setSlowQueryThreshold(slowQueryThreshold);
+    QueryTelemetry.setEnabled(true);
+    QueryTelemetry.clear();
+  }
+
+  @Test
+  void givenExecutionsWithOtherValues_whenList_thenCountedUnderOneShape() {
+    QueryTelemetry.list(Kind.NATIVE, SQL, () -> List.of(1, 2));
+    QueryTelemetry.list(Kind.NATIVE, SQL.replace("alice", "bob"), () -> List.of(3));
+
+    QueryStats stats = statsOf(Kind.NATIVE, SHAPE);
+    assertThat(stats.getExecutions(), equalTo(2L));
+    assertThat(stats.getRows(), equalTo(3L));
+    assertThat(stats.getMaxRows(), equalTo(2L));
+    assertThat(stats.getFingerprint(), equalTo(SqlFingerprint.of(SQL).getId()));
+    assertThat(QueryTelemetry.getStats(), hasSize(1));
+  }
+
+  @Test
+  void givenFailingQuery_whenList_thenFailureRecordedAndRethrown() {
+    assertThrows(
+        IllegalStateException.class,
+        () ->
+            QueryTelemetry.list(
+                Kind.CRITERIA,
+                SQL,
+                () -> {
+                  throw new IllegalStateException("broken");
+                }));
+
+    QueryStats stats = statsOf(Kind.CRITERIA, SHAPE);
+    assertThat(stats.getFailures(), equalTo(1L));
+    assertThat(stats.getExecutions(), equalTo(1L));
+    assertThat(stats.getRows(), equalTo(0L));
+  }
+
+  @Test
+  void givenSlowQuery_whenList_thenWarnedWithShapeWithoutValues() {
+    QueryTelemetry.setSlowQueryThreshold(Duration.ofNanos(1));
+
+    QueryTelemetry.list(Kind.NATIVE, SQL, () -> List.of(1));
+    assertThrows(
+        IllegalStateException.class,
+        () ->
+            QueryTelemetry.list(
+                Kind.NATIVE,
+                SQL,
+                () -> {
+                  throw new IllegalStateException("broken");
+                }));
+
+    assertThat(logs.list, hasSize(2));
+    for (ILoggingEvent event : logs.list) {
+      assertThat(event.getLevel(), equalTo(Level.WARN));
+      assertThat(event.getFormattedMessage(), containsString(SHAPE));
+      assertThat(event.getFormattedMessage(), not(containsString("alice")));
+    }
+    assertThat(logs.list.get(0).getFormattedMessage(), containsString("for 1 rows"));
+    assertThat(logs.list.get(1).getFormattedMessage(), containsString("failed"));
+    assertThat(statsOf(Kind.NATIVE, SHAPE).getSlowQueries(), equalTo(2L));
+  }
+
+  @Test
+  void givenNoSlowThreshold_whenList_thenNothingLogged() {
+    QueryTelemetry.setSlowQueryThreshold(Duration.ZERO);
+
+    QueryTelemetry.list(Kind.NATIVE, SQL, () -> List.of(1));
+
+    assertThat(logs.list, empty());
+    assertThat(statsOf(Kind.NATIVE, SHAPE).getSlowQueries(), equalTo(0L));
+  }
+
+  @Test
+  void givenMoreShapesThanLimit_whenList_thenOverflowCountedAsOther() {
+    int overflow = 5;
+    for (int i = 0; i < QueryTelemetry.MAX_SHAPES + overflow; ++i) {
+      QueryTelemetry.list(Kind.NATIVE, "SELECT col_" + i + " FROM t", List::of);
+    }
+    QueryTelemetry.list(Kind.NATIVE, "SELECT col_0 FROM t", List::of);
+
+    assertThat(QueryTelemetry.getStats(), hasSize(QueryTelemetry.MAX_SHAPES + 1));
+    QueryStats other = statsOf(Kind.NATIVE, "other");
+    assertThat(other.getFingerprint(), equalTo("other"));
+    assertThat(other.getExecutions(), equalTo((long) overflow));
+    assertThat(statsOf(Kind.NATIVE, "select col_0 from t").getExecutions(), equalTo(2L));
+  }
+
+  @Test
+  void givenDisabled_whenList_thenRunWithoutStats() {
+    QueryTelemetry.setEnabled(false);
+
+    assertThat(QueryTelemetry.list(Kind.NATIVE, SQL, () -> List.of(1)), equalTo(List.of(1)));
+    assertThat(QueryTelemetry.getStats(), empty());
+  }
+
+  private static QueryStats statsOf(Kind kind, String shape) {
+    return QueryTelemetry.getStats().stream()
+        .filter(s -> s.getKind() == kind && s.getShape().equals(shape))
+        .findFirst()
+        .orElseThrow();
+  }
+}
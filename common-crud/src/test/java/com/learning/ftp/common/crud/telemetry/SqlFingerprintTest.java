@@ -0,0 +1,67 @@
+package com.learning.ftp.common.crud.telemetry;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import org.junit.jupiter.api.Test;
+
+class SqlFingerprintTest {
+
+  @Test
+  void givenStringsWithEscapedQuotes_whenNormalize_thenOneParameterEach() {
+    assertThat(
+        SqlFingerprint.normalize("SELECT * FROM t WHERE a = 'it''s' AND b = ''"),
+        equalTo("select * from t where a = ? and b = ?"));
+  }
+
+  @Test
+  void givenDashesInString_whenNormalize_thenNotComment() {
+    assertThat(
+        SqlFingerprint.normalize("SELECT * FROM t WHERE a = 'a--b' AND c = 1"),
+        equalTo("select * from t where a = ? and c = ?"));
+  }
+
+  @Test
+  void givenCastsAndNamedParameters_whenNormalize_thenOnlyParametersReplaced() {
+    assertThat(
+        SqlFingerprint.normalize("SELECT a::text FROM t WHERE b = :name AND c = CAST(:c AS int)"),
+        equalTo("select a::text from t where b = ? and c = cast(? as int)"));
+  }
+
+  @Test
+  void givenComments_whenNormalize_thenRemovedWithQuotesInThem() {
+    assertThat(
+        SqlFingerprint.normalize(
+            "SELECT a -- it's the id\nFROM t /* don't\n log */ WHERE b = 'x'"),
+        equalTo("select a from t where b = ?"));
+  }
+
+  @Test
+  void givenInListsOfAnyLength_whenNormalize_thenOneShape() {
+    String positional = SqlFingerprint.normalize("SELECT * FROM t WHERE id IN (?1, ?2, ?3)");
+    String named = SqlFingerprint.normalize("SELECT * FROM t WHERE id IN (:ids)");
+    String literals = SqlFingerprint.normalize("SELECT * FROM t WHERE id in ( 1 ,2 )");
+
+    assertThat(positional, equalTo("select * from t where id in (?+)"));
+    assertThat(named, equalTo(positional));
+    assertThat(literals, equalTo(positional));
+  }
+
+  @Test
+  void givenDigitsInNames_whenNormalize_thenOnlyNumbersReplaced() {
+    assertThat(
+        SqlFingerprint.normalize("SELECT t1.col_2 FROM table1 t1 WHERE t1.x > 10.5"),
+        equalTo("select t1.col_2 from table1 t1 where t1.x > ?"));
+  }
+
+  @Test
+  void givenSameShapeWithOtherValues_whenFingerprint_thenSameId() {
+    SqlFingerprint first = SqlFingerprint.of("SELECT * FROM t WHERE a = 'x'  AND b = 1");
+    SqlFingerprint second = SqlFingerprint.of("select * from t\nwhere a = 'y' and b = 2");
+    SqlFingerprint other = SqlFingerprint.of("SELECT * FROM t WHERE c = 'x'");
+
+    assertThat(first.getId(), equalTo(second.getId()));
+    assertThat(first.getId().length(), equalTo(12));
+    assertThat(other.getId(), not(equalTo(first.getId())));
+  }
+}
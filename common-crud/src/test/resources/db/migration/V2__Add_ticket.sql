@@ -0,0 +1,11 @@
+CREATE TABLE IF NOT EXISTS ticket (
+    id           UUID NOT NULL,
+    title        VARCHAR(255),
+    status       VARCHAR(32),
+    created_time TIMESTAMP,
+    updated_time TIMESTAMP,
+    version      BIGINT,
+    created_by   VARCHAR(255),
+    updated_by   VARCHAR(255),
+    CONSTRAINT pk_ticket PRIMARY KEY (id)
+);
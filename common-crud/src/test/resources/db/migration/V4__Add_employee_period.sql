@@ -0,0 +1,2 @@
+ALTER TABLE employee ADD COLUMN IF NOT EXISTS period_start TIMESTAMP;
+ALTER TABLE employee ADD COLUMN IF NOT EXISTS period_end TIMESTAMP;
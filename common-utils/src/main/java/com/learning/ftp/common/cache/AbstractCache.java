@@ -1,18 +1,45 @@
 package com.learning.ftp.common.cache;
 
 import com.google.common.collect.Maps;
+import com.google.protobuf.MessageLite;
+import com.learning.ftp.common.cache.CacheProperties.CircuitBreakerSpec;
+import com.learning.ftp.common.cache.CacheProperties.NearCacheSpec;
+import com.learning.ftp.common.security.TenantContext;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Objects;
+import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 import java.util.Optional;
 import static java.util.Optional.empty;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 import lombok.extern.log4j.Log4j2;
 import org.redisson.api.LocalCachedMapOptions;
+import org.redisson.api.RLock;
 import static org.redisson.api.LocalCachedMapOptions.EvictionPolicy.LFU;
 import static org.redisson.api.LocalCachedMapOptions.ReconnectionStrategy.LOAD;
 import static org.redisson.api.LocalCachedMapOptions.SyncStrategy.INVALIDATE;
 import org.redisson.api.RMap;
+import org.redisson.api.RMapCache;
 import org.redisson.api.RSetCache;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
 
 @Log4j2
 public abstract class AbstractCache {
@@ -22,6 +49,23 @@ public abstract class AbstractCache {
   @SuppressWarnings("rawtypes")
   protected final Map<String, RSetCache> sets = Maps.newConcurrentMap();
 
+  @SuppressWarnings("rawtypes")
+  private final Map<String, CompletableFuture> loads = Maps.newConcurrentMap();
+
+  private final Map<String, CacheStats> stats = Maps.newConcurrentMap();
+
+  @SuppressWarnings("rawtypes")
+  private final Map<String, NearCache> nearCaches = Maps.newConcurrentMap();
+
+  private final Map<String, CircuitBreaker> circuitBreakers = Maps.newConcurrentMap();
+
+  private CacheProperties cacheProperties;
+
+  @Autowired(required = false)
+  public void setCacheProperties(CacheProperties cacheProperties) {
+    this.cacheProperties = cacheProperties;
+  }
+
   protected <K, V> LocalCachedMapOptions<K, V> defaults() {
     return LocalCachedMapOptions.<K, V>defaults()
         .cacheSize(1000)
@@ -31,12 +75,19 @@ public abstract class AbstractCache {
   }
 
   protected <T> T compute(String key, Supplier<T> supplier, RMap<String, T> cache) {
-    T old = cache.get(key);
+    var cacheStats = getStats(cache.getName());
+    if (!getCircuitBreaker(cache.getName()).tryAcquire()) {
+      cacheStats.recordShortCircuit();
+      return timeLoad(supplier, cacheStats);
+    }
+    T old = callRedis(cache.getName(), () -> cache.get(key));
     if (nonNull(old)) {
+      cacheStats.recordHit();
       return old;
     }
 
-    var value = supplier.get();
+    cacheStats.recordMiss();
+    var value = timeLoad(supplier, cacheStats);
     if (nonNull(value)) {
       cache.putAsync(key, value);
     }
@@ -44,17 +95,546 @@ public abstract class AbstractCache {
     return value;
   }
 
-  protected <T> Optional<T> safeOperate(Supplier<Optional<T>> supplier) {
+  /**
+   * Like {@link #compute}, but the concurrent misses of a key on this pod share one supplier call:
+   * the first caller loads the value and the others wait for it. When {@link #loadLockTimeout} is
+   * set for the cache, the loader also holds the Redis lock of the key for up to {@link
+   * #loadLockLease}, so the other pods wait for the stored value instead of loading it again. While
+   * the circuit breaker of the cache is open, the misses of this pod still share their supplier
+   * calls but Redis is not called.
+   */
+  protected <T> T computeIfAbsent(String key, Supplier<T> supplier, RMap<String, T> cache) {
+    var cacheStats = getStats(cache.getName());
+    if (!getCircuitBreaker(cache.getName()).tryAcquire()) {
+      cacheStats.recordShortCircuit();
+      return singleFlight(loadKey(cache, key), cacheStats, () -> timeLoad(supplier, cacheStats));
+    }
+    T old = callRedis(cache.getName(), () -> cache.get(key));
+    if (nonNull(old)) {
+      cacheStats.recordHit();
+      return old;
+    }
+
+    cacheStats.recordMiss();
+    return singleFlight(
+        loadKey(cache, key),
+        cacheStats,
+        () -> load(key, supplier, cache, cacheStats, Objects::nonNull, 0));
+  }
+
+  /**
+   * Like {@link #computeIfAbsent} for many keys in a few round trips: the cached values are read
+   * with one {@code getAll}, the misses are loaded by one call of the batch loader and written back
+   * with one {@code putAll}. The keys of the misses already loading on this pod wait for those
+   * loads instead. The result has the keys in the given order and no entry for a key without a
+   * value.
+   */
+  protected <T> Map<String, T> computeAll(
+      Collection<String> keys,
+      Function<Set<String>, Map<String, T>> batchLoader,
+      RMap<String, T> cache) {
+    Set<String> keySet = new LinkedHashSet<>(keys);
+    if (keySet.isEmpty()) {
+      return Collections.emptyMap();
+    }
+
+    var cacheStats = getStats(cache.getName());
+    if (!getCircuitBreaker(cache.getName()).tryAcquire()) {
+      cacheStats.recordShortCircuit();
+      Map<String, T> batch =
+          timeLoad(() -> batchLoader.apply(Collections.unmodifiableSet(keySet)), cacheStats);
+      Map<String, T> result = new LinkedHashMap<>();
+      if (nonNull(batch)) {
+        keySet.stream()
+            .filter(key -> nonNull(batch.get(key)))
+            .forEach(key -> result.put(key, batch.get(key)));
+      }
+      return result;
+    }
+
+    Map<String, T> values = new HashMap<>(callRedis(cache.getName(), () -> cache.getAll(keySet)));
+    values.values().removeIf(Objects::isNull);
+    cacheStats.recordHits(values.size());
+    cacheStats.recordMisses(keySet.size() - values.size());
+    Map<String, CompletableFuture<T>> ownLoads = new LinkedHashMap<>();
+    Map<String, CompletableFuture<T>> otherLoads = new HashMap<>();
+    keySet.stream()
+        .filter(key -> !values.containsKey(key))
+        .forEach(
+            key -> {
+              var load = new CompletableFuture<T>();
+              CompletableFuture<T> inFlight = startLoad(loadKey(cache, key), load);
+              if (nonNull(inFlight)) {
+                cacheStats.recordCoalescedLoad();
+                otherLoads.put(key, inFlight);
+              } else {
+                ownLoads.put(key, load);
+              }
+            });
+    if (!ownLoads.isEmpty()) {
+      values.putAll(loadAll(ownLoads, batchLoader, cache, cacheStats));
+    }
+    otherLoads.forEach(
+        (key, load) -> {
+          var value = join(load);
+          if (nonNull(value)) {
+            values.put(key, value);
+          }
+        });
+
+    Map<String, T> result = new LinkedHashMap<>();
+    keySet.stream().filter(values::containsKey).forEach(key -> result.put(key, values.get(key)));
+    return result;
+  }
+
+  /**
+   * Like {@link #computeIfAbsent} for a cache whose entries age by the {@link #cachePolicy} of the
+   * cache. An entry due for refresh, or expired but within the stale window, is returned as it is
+   * while one background load per key replaces it; the request only waits for a load when there is
+   * no servable entry. When the map is an {@link RMapCache}, Redis drops an entry once it is past
+   * the stale window.
+   */
+  protected <T> T computeEntry(
+      String key, Supplier<T> supplier, RMap<String, CacheEntry<T>> cache) {
+    var policy = cachePolicy(cache.getName());
+    var cacheStats = getStats(cache.getName());
+    var loadKey = loadKey(cache, key);
+    if (!getCircuitBreaker(cache.getName()).tryAcquire()) {
+      cacheStats.recordShortCircuit();
+      // the loads of the key on this pod share their result as an entry
+      CacheEntry<T> entry =
+          singleFlight(
+              loadKey,
+              cacheStats,
+              () -> {
+                var value = timeLoad(supplier, cacheStats);
+                return nonNull(value) ? new CacheEntry<>(value, System.currentTimeMillis()) : null;
+              });
+      return nonNull(entry) ? entry.getValue() : null;
+    }
+    var now = System.currentTimeMillis();
+    CacheEntry<T> old = callRedis(cache.getName(), () -> cache.get(key));
+    if (nonNull(old) && policy.isFresh(old, now)) {
+      cacheStats.recordHit();
+      if (policy.isDueForRefresh(old, now)) {
+        refresh(loadKey, cacheStats, () -> loadEntry(key, supplier, cache, policy, true));
+      }
+      return old.getValue();
+    }
+    if (nonNull(old) && policy.isServableStale(old, now)) {
+      cacheStats.recordHit();
+      cacheStats.recordStaleHit();
+      refresh(loadKey, cacheStats, () -> loadEntry(key, supplier, cache, policy, false));
+      return old.getValue();
+    }
+
+    cacheStats.recordMiss();
+    CacheEntry<T> entry =
+        singleFlight(loadKey, cacheStats, () -> loadEntry(key, supplier, cache, policy, false));
+    return nonNull(entry) ? entry.getValue() : null;
+  }
+
+  /**
+   * The two-tier cache of the name, created on first use with the {@link #nearCacheSpec} of the
+   * name. The local tiers of the pods are kept in sync by the topic {@code <name>:invalidations}.
+   */
+  @SuppressWarnings("unchecked")
+  protected <T> NearCache<T> nearCache(String cacheName, RedissonClient redisson) {
+    return nearCaches.computeIfAbsent(
+        cacheName,
+        name -> {
+          var nearCache =
+              new NearCache<T>(
+                  redisson.getMap(name),
+                  redisson.getTopic(name + ":invalidations"),
+                  Optional.ofNullable(nearCacheSpec(name)).orElseGet(NearCacheSpec::new),
+                  value -> weigh(name, value));
+          getStats(name).bindNearCache(nearCache);
+          return nearCache;
+        });
+  }
+
+  /**
+   * Like {@link #computeIfAbsent} with the local tier of the cache in front: a local hit makes no
+   * Redis call, a value read or loaded from Redis is kept locally unless the cache was invalidated
+   * during the read. While the circuit breaker of the cache is open, the local tier keeps serving
+   * and the misses are loaded into it.
+   */
+  protected <T> T computeNear(String key, Supplier<T> supplier, NearCache<T> cache) {
+    T local = cache.getLocal(key);
+    if (nonNull(local)) {
+      var cacheStats = getStats(cache.getName());
+      cacheStats.recordHit();
+      cacheStats.recordNearHit();
+      return local;
+    }
+
+    long sequence = cache.getInvalidationSequence();
+    var value = computeIfAbsent(key, supplier, cache.getMap());
+    if (nonNull(value)) {
+      cache.putLocal(key, value, sequence);
+    }
+    return value;
+  }
+
+  /** The local tier settings of a cache, {@code cache.near.<name>} by default. */
+  protected NearCacheSpec nearCacheSpec(String cacheName) {
+    return nonNull(cacheProperties) ? cacheProperties.getNear().get(cacheName) : null;
+  }
+
+  /**
+   * The weight of a value in the local tier. It estimates the size of strings, byte arrays, proto
+   * messages and collections, other values weigh 1; a cache of large objects overrides it.
+   */
+  @SuppressWarnings("rawtypes")
+  protected int weigh(String cacheName, Object value) {
+    if (value instanceof CharSequence) {
+      return ((CharSequence) value).length();
+    }
+    if (value instanceof byte[]) {
+      return ((byte[]) value).length;
+    }
+    if (value instanceof MessageLite) {
+      return ((MessageLite) value).getSerializedSize();
+    }
+    if (value instanceof Collection) {
+      return ((Collection) value).size();
+    }
+    if (value instanceof Map) {
+      return ((Map) value).size();
+    }
+    return 1;
+  }
+
+  /**
+   * How long a miss waits for another pod loading the same key of the cache. It is zero by
+   * default, so the pods do not coordinate; a cache whose loads are expensive returns a wait a bit
+   * longer than a load.
+   */
+  protected Duration loadLockTimeout(String cacheName) {
+    return Duration.ZERO;
+  }
+
+  /**
+   * How long a pod loading a key of the cache holds its Redis lock, twice the {@link
+   * #loadLockTimeout} by default. The lock is released when the lease ends even if the load still
+   * runs, so a hung loader blocks the other pods for one lease at most.
+   */
+  protected Duration loadLockLease(String cacheName) {
+    return loadLockTimeout(cacheName).multipliedBy(2);
+  }
+
+  /** How the entries of a cache used by {@link #computeEntry} age, they never do by default. */
+  protected CachePolicy cachePolicy(String cacheName) {
+    return CachePolicy.NONE;
+  }
+
+  /** The circuit breaker settings of a cache, {@code cache.circuitBreaker} by default. */
+  protected CircuitBreakerSpec circuitBreakerSpec(String cacheName) {
+    return nonNull(cacheProperties) ? cacheProperties.getCircuitBreaker() : null;
+  }
+
+  /**
+   * Where the background loads of {@link #computeEntry} run. A load runs with the tenant and the
+   * security context of the request which started it, whatever thread the executor gives it.
+   */
+  protected Executor refreshExecutor() {
+    return ForkJoinPool.commonPool();
+  }
+
+  public CacheStats getStats(String cacheName) {
+    return stats.computeIfAbsent(cacheName, CacheStats::new);
+  }
+
+  public Collection<CacheStats> getStats() {
+    return Collections.unmodifiableCollection(stats.values());
+  }
+
+  /**
+   * The breaker of the Redis calls of a cache. The compute methods skip Redis and call the
+   * supplier while it is open, {@code safeOperate} answers nothing.
+   */
+  public CircuitBreaker getCircuitBreaker(String cacheName) {
+    return circuitBreakers.computeIfAbsent(
+        cacheName,
+        name -> {
+          var breaker =
+              new CircuitBreaker(
+                  name,
+                  Optional.ofNullable(circuitBreakerSpec(name)).orElseGet(CircuitBreakerSpec::new));
+          getStats(name).bindCircuitBreaker(breaker);
+          return breaker;
+        });
+  }
+
+  /**
+   * Call Redis for a cache and report how the call went to the circuit breaker of the cache. The
+   * compute methods call Redis through it; a subclass does the same for its own reads of a map.
+   */
+  protected <R> R callRedis(String cacheName, Supplier<R> call) {
+    var breaker = getCircuitBreaker(cacheName);
+    var start = System.nanoTime();
+    try {
+      R result = call.get();
+      breaker.onSuccess(System.nanoTime() - start);
+      return result;
+    } catch (RuntimeException e) {
+      breaker.onFailure();
+      throw e;
+    }
+  }
+
+  private <T> Map<String, T> loadAll(
+      Map<String, CompletableFuture<T>> ownLoads,
+      Function<Set<String>, Map<String, T>> batchLoader,
+      RMap<String, T> cache,
+      CacheStats cacheStats) {
+    try {
+      Map<String, T> loaded = new HashMap<>();
+      Map<String, T> batch =
+          timeLoad(
+              () -> batchLoader.apply(Collections.unmodifiableSet(ownLoads.keySet())), cacheStats);
+      if (nonNull(batch)) {
+        ownLoads.keySet().stream()
+            .filter(key -> nonNull(batch.get(key)))
+            .forEach(key -> loaded.put(key, batch.get(key)));
+      }
+      if (!loaded.isEmpty()) {
+        cache.putAllAsync(loaded);
+      }
+      ownLoads.forEach((key, load) -> load.complete(loaded.get(key)));
+      return loaded;
+    } catch (RuntimeException | Error e) {
+      ownLoads.values().forEach(load -> load.completeExceptionally(e));
+      throw e;
+    } finally {
+      ownLoads.forEach((key, load) -> loads.remove(loadKey(cache, key), load));
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> CompletableFuture<T> startLoad(String loadKey, CompletableFuture<T> load) {
+    return loads.putIfAbsent(loadKey, load);
+  }
+
+  @SuppressWarnings("rawtypes")
+  private static String loadKey(RMap cache, String key) {
+    return cache.getName() + ":" + key;
+  }
+
+  private <T> T singleFlight(String loadKey, CacheStats cacheStats, Supplier<T> loader) {
+    var load = new CompletableFuture<T>();
+    CompletableFuture<T> inFlight = startLoad(loadKey, load);
+    if (nonNull(inFlight)) {
+      cacheStats.recordCoalescedLoad();
+      return join(inFlight);
+    }
+    return run(loadKey, load, loader);
+  }
+
+  // a key already loading is not refreshed again, its load brings the new value
+  private <T> void refresh(String loadKey, CacheStats cacheStats, Supplier<T> loader) {
+    var load = new CompletableFuture<T>();
+    if (nonNull(startLoad(loadKey, load))) {
+      return;
+    }
+    cacheStats.recordRefresh();
+    Runnable task =
+        () -> {
+          try {
+            run(loadKey, load, loader);
+          } catch (RuntimeException e) {
+            log.warn("{} fail to refresh {}: {}", getClass(), loadKey, e.getMessage());
+          }
+        };
+    try {
+      // the supplier may read the tenant data of the request
+      refreshExecutor().execute(TenantContext.wrap(new DelegatingSecurityContextRunnable(task)));
+    } catch (RejectedExecutionException e) {
+      loads.remove(loadKey, load);
+      load.completeExceptionally(e);
+    }
+  }
+
+  private <T> T run(String loadKey, CompletableFuture<T> load, Supplier<T> loader) {
+    try {
+      var value = loader.get();
+      load.complete(value);
+      return value;
+    } catch (RuntimeException | Error e) {
+      load.completeExceptionally(e);
+      throw e;
+    } finally {
+      loads.remove(loadKey, load);
+    }
+  }
+
+  private <T> CacheEntry<T> loadEntry(
+      String key,
+      Supplier<T> supplier,
+      RMap<String, CacheEntry<T>> cache,
+      CachePolicy policy,
+      boolean isRefresh) {
+    Supplier<CacheEntry<T>> entrySupplier =
+        () -> {
+          var value = supplier.get();
+          return nonNull(value) ? new CacheEntry<>(value, System.currentTimeMillis()) : null;
+        };
+    // another pod holding the lock may have loaded the entry already
+    Predicate<CacheEntry<T>> isLoaded =
+        e -> {
+          var now = System.currentTimeMillis();
+          return nonNull(e)
+              && policy.isFresh(e, now)
+              && !(isRefresh && policy.isDueForRefresh(e, now));
+        };
+    return load(
+        key,
+        entrySupplier,
+        cache,
+        getStats(cache.getName()),
+        isLoaded,
+        policy.getRetentionMillis());
+  }
+
+  private <T> T load(
+      String key,
+      Supplier<T> supplier,
+      RMap<String, T> cache,
+      CacheStats cacheStats,
+      Predicate<T> isLoaded,
+      long ttlMillis) {
+    var lockTimeout = loadLockTimeout(cache.getName());
+    if (lockTimeout == null || lockTimeout.isZero() || lockTimeout.isNegative()) {
+      return loadValue(key, supplier, cache, cacheStats, false, ttlMillis);
+    }
+
+    var lease = loadLockLease(cache.getName());
+    // never the lease of the watchdog, it is renewed as long as the thread of a hung load lives
+    var leaseMillis =
+        nonNull(lease) && lease.toMillis() > 0 ? lease.toMillis() : 2 * lockTimeout.toMillis();
+    RLock lock = cache.getLock(key);
+    var isLocked = false;
+    try {
+      isLocked = lock.tryLock(lockTimeout.toMillis(), leaseMillis, MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (!isLocked) {
+      // the loading pod is slow or gone, a late value is better than a failed request
+      cacheStats.recordLockTimeout();
+      return loadValue(key, supplier, cache, cacheStats, false, ttlMillis);
+    }
+    try {
+      T loaded = callRedis(cache.getName(), () -> cache.get(key));
+      if (isLoaded.test(loaded)) {
+        cacheStats.recordCoalescedLoad();
+        return loaded;
+      }
+      return loadValue(key, supplier, cache, cacheStats, true, ttlMillis);
+    } finally {
+      if (lock.isHeldByCurrentThread()) {
+        lock.unlock();
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> T loadValue(
+      String key,
+      Supplier<T> supplier,
+      RMap<String, T> cache,
+      CacheStats cacheStats,
+      boolean isLocked,
+      long ttlMillis) {
+    var value = timeLoad(supplier, cacheStats);
+    if (isNull(value)) {
+      return null;
+    }
+    if (ttlMillis > 0 && cache instanceof RMapCache) {
+      var mapCache = (RMapCache<String, T>) cache;
+      if (isLocked) {
+        callRedis(cache.getName(), () -> mapCache.fastPut(key, value, ttlMillis, MILLISECONDS));
+      } else {
+        mapCache.fastPutAsync(key, value, ttlMillis, MILLISECONDS);
+      }
+    } else if (isLocked) {
+      // the pods waiting for the lock read the value as soon as it is released
+      callRedis(cache.getName(), () -> cache.fastPut(key, value));
+    } else {
+      cache.putAsync(key, value);
+    }
+    return value;
+  }
+
+  private static <T> T timeLoad(Supplier<T> supplier, CacheStats cacheStats) {
+    cacheStats.recordExecutedLoad();
+    var start = System.nanoTime();
     try {
       return supplier.get();
+    } catch (RuntimeException | Error e) {
+      cacheStats.recordFailedLoad();
+      throw e;
+    } finally {
+      cacheStats.recordLoadTime(System.nanoTime() - start);
+    }
+  }
+
+  private static <T> T join(CompletableFuture<T> load) {
+    try {
+      return load.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  protected <T> Optional<T> safeOperate(Supplier<Optional<T>> supplier) {
+    return safeOperate(getClass().getSimpleName(), supplier);
+  }
+
+  protected void safeOperate(Runnable runnable) {
+    safeOperate(getClass().getSimpleName(), runnable);
+  }
+
+  /**
+   * Like {@link #safeOperate(Supplier)}, the failures are counted in the stats of the cache and the
+   * failed or slow operations reported to its circuit breaker. While the breaker is open, it
+   * answers nothing right away; once the open duration has passed, one operation probes Redis.
+   */
+  protected <T> Optional<T> safeOperate(String cacheName, Supplier<Optional<T>> supplier) {
+    var breaker = getCircuitBreaker(cacheName);
+    if (!breaker.tryAcquire()) {
+      var cacheStats = getStats(cacheName);
+      cacheStats.recordShortCircuit();
+      cacheStats.recordFallback();
+      return empty();
+    }
+    var start = System.nanoTime();
+    try {
+      Optional<T> result = supplier.get();
+      breaker.onSuccess(System.nanoTime() - start);
+      return result;
     } catch (Exception e) {
+      breaker.onFailure();
       log.warn("{} fail to get cache: {}", getClass(), e.getLocalizedMessage());
+      var cacheStats = getStats(cacheName);
+      if (e instanceof RedisException) {
+        cacheStats.recordRedisError();
+      }
+      cacheStats.recordFallback();
       return empty();
     }
   }
 
-  protected void safeOperate(Runnable runnable) {
+  protected void safeOperate(String cacheName, Runnable runnable) {
     safeOperate(
+        cacheName,
         () -> {
           runnable.run();
           return empty();
@@ -0,0 +1,25 @@
+package com.learning.ftp.common.cache;
+
+import java.io.Serializable;
+
+/** A cached value with the time it was loaded, which the {@link CachePolicy} ages. */
+public class CacheEntry<T> implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  private final T value;
+  private final long loadedAt;
+
+  public CacheEntry(T value, long loadedAt) {
+    this.value = value;
+    this.loadedAt = loadedAt;
+  }
+
+  public T getValue() {
+    return value;
+  }
+
+  /** The epoch millis of the load, shared by the pods, so it is wall clock time. */
+  public long getLoadedAt() {
+    return loadedAt;
+  }
+}
@@ -0,0 +1,85 @@
+package com.learning.ftp.common.cache;
+
+import java.time.Duration;
+
+/**
+ * How the entries of a cache age, e.g. {@code expireAfter(ofMinutes(10)).refreshAfter(ofMinutes(8))
+ * .staleWhileRevalidate(ofMinutes(5))}.
+ *
+ * <ul>
+ *   <li>Before {@code refreshAfter} an entry is served as it is.
+ *   <li>Until {@code expireAfter} it is still served, but the first read reloads it in the
+ *       background (refresh-ahead).
+ *   <li>For {@code staleWhileRevalidate} more it is served stale while it is reloaded in the
+ *       background.
+ *   <li>After that it is a miss, loaded on the request path.
+ * </ul>
+ */
+public final class CachePolicy {
+  /** The entries never age. */
+  public static final CachePolicy NONE = new CachePolicy(null, null, null);
+
+  private final Duration expireAfter;
+  private final Duration refreshAfter;
+  private final Duration staleWhileRevalidate;
+
+  private CachePolicy(
+      Duration expireAfter, Duration refreshAfter, Duration staleWhileRevalidate) {
+    this.expireAfter = expireAfter;
+    this.refreshAfter = refreshAfter;
+    this.staleWhileRevalidate = staleWhileRevalidate;
+  }
+
+  public static CachePolicy expireAfter(Duration expireAfter) {
+    return new CachePolicy(expireAfter, null, null);
+  }
+
+  public CachePolicy refreshAfter(Duration refreshAfter) {
+    return new CachePolicy(expireAfter, refreshAfter, staleWhileRevalidate);
+  }
+
+  public CachePolicy staleWhileRevalidate(Duration staleWhileRevalidate) {
+    return new CachePolicy(expireAfter, refreshAfter, staleWhileRevalidate);
+  }
+
+  public Duration getExpireAfter() {
+    return expireAfter;
+  }
+
+  public Duration getRefreshAfter() {
+    return refreshAfter;
+  }
+
+  public Duration getStaleWhileRevalidate() {
+    return staleWhileRevalidate;
+  }
+
+  /** How long Redis keeps an entry, 0 when it is kept until it is removed. */
+  public long getRetentionMillis() {
+    if (!isPositive(expireAfter)) {
+      return 0;
+    }
+    return expireAfter.toMillis()
+        + (isPositive(staleWhileRevalidate) ? staleWhileRevalidate.toMillis() : 0);
+  }
+
+  boolean isFresh(CacheEntry<?> entry, long now) {
+    return !isPositive(expireAfter) || age(entry, now) < expireAfter.toMillis();
+  }
+
+  boolean isDueForRefresh(CacheEntry<?> entry, long now) {
+    return isPositive(refreshAfter) && age(entry, now) >= refreshAfter.toMillis();
+  }
+
+  boolean isServableStale(CacheEntry<?> entry, long now) {
+    return isPositive(staleWhileRevalidate) && age(entry, now) < getRetentionMillis();
+  }
+
+  private static long age(CacheEntry<?> entry, long now) {
+    return now - entry.getLoadedAt();
+  }
+
+  private static boolean isPositive(Duration duration) {
+    return duration != null && !duration.isZero() && !duration.isNegative();
+  }
+}
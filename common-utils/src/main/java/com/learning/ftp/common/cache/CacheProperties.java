@@ -0,0 +1,44 @@
+package com.learning.ftp.common.cache;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@ConfigurationProperties(prefix = "cache")
+@Configuration
+@Getter
+@Setter
+public class CacheProperties {
+  /** The in-process tier of a cache by its name, e.g. {@code cache.near.currencies.*}. */
+  private Map<String, NearCacheSpec> near = new HashMap<>();
+
+  /** The circuit breaker of every cache, {@code cache.circuitBreaker.*}. */
+  private CircuitBreakerSpec circuitBreaker = new CircuitBreakerSpec();
+
+  /** Serve {@code GET /cache/stats}, {@code cache.stats-endpoint}, off by default. */
+  private boolean statsEndpoint;
+
+  @Getter
+  @Setter
+  public static class NearCacheSpec {
+    /** The total weight of the local values, see {@link AbstractCache#weigh}. */
+    private long maximumWeight = 10_000;
+    /** Bounds how long a local value outlives an invalidation lost while the topic is down. */
+    private Duration expireAfterWrite = Duration.ofMinutes(10);
+    private Duration expireAfterAccess;
+  }
+
+  @Getter
+  @Setter
+  public static class CircuitBreakerSpec {
+    /** The consecutive failed or slow Redis calls which open the breaker, 0 never opens it. */
+    private int failureThreshold = 5;
+    private Duration slowCallThreshold = Duration.ofMillis(250);
+    /** How long the calls skip Redis before one probes it. */
+    private Duration openDuration = Duration.ofSeconds(10);
+  }
+}
@@ -0,0 +1,194 @@
+package com.learning.ftp.common.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * The counters of one cache of an {@link AbstractCache}, named by its Redis map. The counters only
+ * grow and the load latency buckets are cumulative, so they map one to one to Micrometer function
+ * counters and gauges, e.g. {@code cache.gets{result=hit|miss}} and {@code cache.load.duration}.
+ * The binding is left to the service: this library has no metrics dependency, its health check is
+ * a plain controller rather than an actuator, and registering meters here would make every service
+ * using the caches depend on Micrometer.
+ */
+public class CacheStats {
+  private final String name;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder executedLoads = new LongAdder();
+  private final LongAdder coalescedLoads = new LongAdder();
+  private final LongAdder failedLoads = new LongAdder();
+  private final LongAdder lockTimeouts = new LongAdder();
+  private final LongAdder refreshes = new LongAdder();
+  private final LongAdder staleHits = new LongAdder();
+  private final LongAdder nearHits = new LongAdder();
+  private final LongAdder redisErrors = new LongAdder();
+  private final LongAdder fallbacks = new LongAdder();
+  private final LongAdder shortCircuits = new LongAdder();
+  private final LatencyHistogram loadLatency = new LatencyHistogram();
+  private volatile LongSupplier localSize = () -> 0;
+  private volatile LongSupplier localEvictions = () -> 0;
+  private volatile Supplier<CircuitBreaker.State> circuitState = () -> CircuitBreaker.State.CLOSED;
+
+  CacheStats(String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /** The reads answered by the cache, stale and local answers included. */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /** The reads which found no usable value, whether they loaded it or waited for a load. */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public double getHitRatio() {
+    long requests = getHits() + getMisses();
+    return requests == 0 ? 0 : (double) getHits() / requests;
+  }
+
+  /** The supplier calls made on misses, a batch loader call counts once. */
+  public long getExecutedLoads() {
+    return executedLoads.sum();
+  }
+
+  /** The misses served by the load of another caller, on this pod or on another one. */
+  public long getCoalescedLoads() {
+    return coalescedLoads.sum();
+  }
+
+  /** The supplier calls which threw. */
+  public long getFailedLoads() {
+    return failedLoads.sum();
+  }
+
+  /** The loads which gave up waiting for the lock of the key and loaded without it. */
+  public long getLockTimeouts() {
+    return lockTimeouts.sum();
+  }
+
+  /** The background loads started for entries due for refresh or stale. */
+  public long getRefreshes() {
+    return refreshes.sum();
+  }
+
+  /** The reads answered with an expired entry while it was reloaded. */
+  public long getStaleHits() {
+    return staleHits.sum();
+  }
+
+  /** The reads answered by the local tier of a {@link NearCache}. */
+  public long getNearHits() {
+    return nearHits.sum();
+  }
+
+  /** The operations failed by Redis, e.g. a timeout or a lost connection. */
+  public long getRedisErrors() {
+    return redisErrors.sum();
+  }
+
+  /** The operations of {@code safeOperate} which failed and answered nothing. */
+  public long getFallbacks() {
+    return fallbacks.sum();
+  }
+
+  /** The operations which skipped Redis because the circuit breaker of the cache was open. */
+  public long getShortCircuits() {
+    return shortCircuits.sum();
+  }
+
+  public CircuitBreaker.State getCircuitState() {
+    return circuitState.get();
+  }
+
+  /** The time of the supplier calls, failed ones included. */
+  public LatencyHistogram getLoadLatency() {
+    return loadLatency;
+  }
+
+  /** The number of values in the local tier of a {@link NearCache}, 0 without one. */
+  public long getLocalSize() {
+    return localSize.getAsLong();
+  }
+
+  /** The values evicted from the local tier of a {@link NearCache} for its weight or expiry. */
+  public long getLocalEvictions() {
+    return localEvictions.getAsLong();
+  }
+
+  void recordHit() {
+    hits.increment();
+  }
+
+  void recordHits(int count) {
+    hits.add(count);
+  }
+
+  void recordMiss() {
+    misses.increment();
+  }
+
+  void recordMisses(int count) {
+    misses.add(count);
+  }
+
+  void recordExecutedLoad() {
+    executedLoads.increment();
+  }
+
+  void recordCoalescedLoad() {
+    coalescedLoads.increment();
+  }
+
+  void recordFailedLoad() {
+    failedLoads.increment();
+  }
+
+  void recordLockTimeout() {
+    lockTimeouts.increment();
+  }
+
+  void recordRefresh() {
+    refreshes.increment();
+  }
+
+  void recordStaleHit() {
+    staleHits.increment();
+  }
+
+  void recordNearHit() {
+    nearHits.increment();
+  }
+
+  void recordRedisError() {
+    redisErrors.increment();
+  }
+
+  void recordFallback() {
+    fallbacks.increment();
+  }
+
+  void recordShortCircuit() {
+    shortCircuits.increment();
+  }
+
+  void recordLoadTime(long nanos) {
+    loadLatency.record(nanos);
+  }
+
+  void bindNearCache(NearCache<?> nearCache) {
+    localSize = nearCache::getLocalSize;
+    localEvictions = nearCache::getLocalEvictions;
+  }
+
+  void bindCircuitBreaker(CircuitBreaker circuitBreaker) {
+    circuitState = circuitBreaker::getState;
+  }
+}
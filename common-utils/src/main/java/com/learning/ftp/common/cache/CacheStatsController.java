@@ -0,0 +1,31 @@
+package com.learning.ftp.common.cache;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Dump the stats of every cache of the service, to size the caches from their usage. It is served
+ * only when {@code cache.stats-endpoint} is set too; a service publishing metrics binds the {@link
+ * CacheStats} to its own registry instead.
+ */
+@SuppressWarnings("unused")
+@RequiredArgsConstructor
+@RestController
+@Lazy
+@ConditionalOnProperty(value = {"cache.enable", "cache.stats-endpoint"}, havingValue = "true")
+class CacheStatsController {
+  private final ObjectProvider<AbstractCache> caches;
+
+  @GetMapping("/cache/stats")
+  List<CacheStats> getStats() {
+    return caches.orderedStream()
+        .flatMap(cache -> cache.getStats().stream())
+        .collect(Collectors.toList());
+  }
+}
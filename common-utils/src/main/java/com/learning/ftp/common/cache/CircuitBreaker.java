@@ -0,0 +1,104 @@
+package com.learning.ftp.common.cache;
+
+import com.learning.ftp.common.cache.CacheProperties.CircuitBreakerSpec;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Stop calling Redis for a cache after consecutive failed or slow calls, so a Redis incident costs
+ * the requests nothing instead of a timeout each. Once the open duration has passed, one call
+ * probes Redis: it closes the breaker when it succeeds and opens it again when it fails. A probe
+ * which never reports, e.g. its thread died, is replaced after another open duration.
+ */
+@Log4j2
+public class CircuitBreaker {
+  public enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  private final String name;
+  private final int failureThreshold;
+  private final long slowCallNanos;
+  private final long openNanos;
+  private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+  private final AtomicInteger failures = new AtomicInteger();
+  private volatile long retryAt;
+
+  CircuitBreaker(String name, CircuitBreakerSpec spec) {
+    this.name = name;
+    this.failureThreshold = spec.getFailureThreshold();
+    this.slowCallNanos = spec.getSlowCallThreshold().toNanos();
+    this.openNanos = spec.getOpenDuration().toNanos();
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public State getState() {
+    return state.get();
+  }
+
+  /** Whether a call may go to Redis now, without taking the probe of an open breaker. */
+  public boolean isCallPermitted() {
+    return state.get() == State.CLOSED || System.nanoTime() - retryAt >= 0;
+  }
+
+  /**
+   * Whether a call may go to Redis now. The caller taking the probe of an open breaker must report
+   * the outcome of its first Redis call.
+   */
+  public boolean tryAcquire() {
+    var current = state.get();
+    if (current == State.CLOSED) {
+      return true;
+    }
+    var retryAt = this.retryAt;
+    var now = System.nanoTime();
+    if (now - retryAt < 0) {
+      return false;
+    }
+    // only one caller moves the probe time, it is the probe
+    synchronized (this) {
+      if (this.retryAt != retryAt || state.get() == State.CLOSED) {
+        return state.get() == State.CLOSED;
+      }
+      this.retryAt = now + openNanos;
+      state.set(State.HALF_OPEN);
+      return true;
+    }
+  }
+
+  /** A Redis call completed, it is a failure when slower than the slow call threshold. */
+  public void onSuccess(long nanos) {
+    if (nanos > slowCallNanos) {
+      onFailure();
+      return;
+    }
+    failures.set(0);
+    if (state.get() != State.CLOSED && state.getAndSet(State.CLOSED) != State.CLOSED) {
+      log.info("Circuit breaker of cache {} is closed", name);
+    }
+  }
+
+  public void onFailure() {
+    if (failureThreshold <= 0) {
+      return;
+    }
+    var count = failures.incrementAndGet();
+    var current = state.get();
+    if (current == State.HALF_OPEN || current == State.CLOSED && count >= failureThreshold) {
+      open();
+    }
+  }
+
+  private synchronized void open() {
+    retryAt = System.nanoTime() + openNanos;
+    if (state.getAndSet(State.OPEN) == State.CLOSED) {
+      log.warn("Circuit breaker of cache {} is open after {} failures", name, failures.get());
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package com.learning.ftp.common.cache;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import org.redisson.client.codec.BaseCodec;
+import org.redisson.client.codec.Codec;
+import org.redisson.client.protocol.Decoder;
+import org.redisson.client.protocol.Encoder;
+
+/**
+ * Compress the values of the inner codec from a size on, so large values take less memory in
+ * Redis and less time on the network. Smaller values are kept as they are, they would not shrink
+ * enough to pay for the compression. A value starts with a byte naming how it is stored, so other
+ * algorithms can be added without breaking the stored values.
+ */
+public class CompressionCodec extends BaseCodec {
+  private static final byte RAW = 0;
+  private static final byte DEFLATED = 1;
+
+  private final Codec inner;
+  private final int threshold;
+
+  private final Encoder encoder =
+      in -> {
+        ByteBuf encoded = getInner().getValueEncoder().encode(in);
+        if (encoded.readableBytes() < getThreshold()) {
+          return Unpooled.wrappedBuffer(Unpooled.wrappedBuffer(new byte[] {RAW}), encoded);
+        }
+        try {
+          return deflate(ByteBufUtil.getBytes(encoded));
+        } finally {
+          encoded.release();
+        }
+      };
+
+  private final Decoder<Object> decoder =
+      (buf, state) -> {
+        if (buf.readByte() == RAW) {
+          return getInner().getValueDecoder().decode(buf, state);
+        }
+        ByteBuf inflated = inflate(buf);
+        try {
+          return getInner().getValueDecoder().decode(inflated, state);
+        } finally {
+          inflated.release();
+        }
+      };
+
+  public CompressionCodec(Codec inner, int threshold) {
+    this.inner = inner;
+    this.threshold = threshold;
+  }
+
+  /** Used by Redisson to copy the codec for another class loader. */
+  public CompressionCodec(ClassLoader classLoader, CompressionCodec codec)
+      throws ReflectiveOperationException {
+    this(copy(classLoader, codec.inner), codec.threshold);
+  }
+
+  public Codec getInner() {
+    return inner;
+  }
+
+  /** The encoded size in bytes from which the values are compressed. */
+  public int getThreshold() {
+    return threshold;
+  }
+
+  @Override
+  public Decoder<Object> getValueDecoder() {
+    return decoder;
+  }
+
+  @Override
+  public Encoder getValueEncoder() {
+    return encoder;
+  }
+
+  @Override
+  public ClassLoader getClassLoader() {
+    return inner.getClassLoader();
+  }
+
+  private static ByteBuf deflate(byte[] input) {
+    var deflater = new Deflater(Deflater.BEST_SPEED);
+    try {
+      deflater.setInput(input);
+      deflater.finish();
+      ByteBuf out = Unpooled.buffer(5 + input.length / 2);
+      out.writeByte(DEFLATED);
+      out.writeInt(input.length);
+      byte[] chunk = new byte[Math.min(input.length, 8192)];
+      while (!deflater.finished()) {
+        int length = deflater.deflate(chunk);
+        out.writeBytes(chunk, 0, length);
+      }
+      return out;
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static ByteBuf inflate(ByteBuf buf) throws IOException {
+    byte[] output = new byte[buf.readInt()];
+    var inflater = new Inflater();
+    try {
+      inflater.setInput(ByteBufUtil.getBytes(buf));
+      int length = 0;
+      while (length < output.length && !inflater.finished()) {
+        int inflated = inflater.inflate(output, length, output.length - length);
+        if (inflated == 0 && inflater.needsInput()) {
+          break;
+        }
+        length += inflated;
+      }
+      if (length != output.length) {
+        throw new IOException("Truncated compressed value");
+      }
+      return Unpooled.wrappedBuffer(output);
+    } catch (DataFormatException e) {
+      throw new IOException(e);
+    } finally {
+      inflater.end();
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package com.learning.ftp.common.cache;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock free histogram of durations over fixed millisecond buckets. The buckets are read
+ * cumulatively, the way Prometheus and Micrometer publish them. Besides the cache loads it times
+ * the connection acquires and the queries of common-crud.
+ */
+public class LatencyHistogram {
+  private static final long[] BOUNDS_MILLIS = {
+    1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000
+  };
+  // compared in nanos, a fraction of a milli above a bound is past it
+  private static final long[] BOUNDS_NANOS =
+      Arrays.stream(BOUNDS_MILLIS).map(TimeUnit.MILLISECONDS::toNanos).toArray();
+
+  private final LongAdder[] buckets = new LongAdder[BOUNDS_MILLIS.length + 1];
+  private final LongAdder count = new LongAdder();
+  private final LongAdder totalNanos = new LongAdder();
+  private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+  public LatencyHistogram() {
+    for (int i = 0; i < buckets.length; ++i) {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  public void record(long nanos) {
+    int i = 0;
+    while (i < BOUNDS_NANOS.length && nanos > BOUNDS_NANOS[i]) {
+      ++i;
+    }
+    buckets[i].increment();
+    count.increment();
+    totalNanos.add(nanos);
+    maxNanos.accumulate(nanos);
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public double getTotalMillis() {
+    return totalNanos.sum() / 1e6;
+  }
+
+  public double getMaxMillis() {
+    return maxNanos.get() / 1e6;
+  }
+
+  /** The number of durations up to each bound in millis, the last bound is {@code +Inf}. */
+  public Map<String, Long> getBuckets() {
+    Map<String, Long> result = new LinkedHashMap<>();
+    long cumulative = 0;
+    for (int i = 0; i < buckets.length; ++i) {
+      cumulative += buckets[i].sum();
+      result.put(i < BOUNDS_MILLIS.length ? String.valueOf(BOUNDS_MILLIS[i]) : "+Inf", cumulative);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,172 @@
+package com.learning.ftp.common.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.learning.ftp.common.cache.CacheProperties.NearCacheSpec;
+import static java.util.Objects.nonNull;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
+import lombok.extern.log4j.Log4j2;
+import org.redisson.api.RMap;
+import org.redisson.api.RTopic;
+import org.redisson.api.listener.BaseStatusListener;
+
+/**
+ * A cache in two tiers: a bounded map in the process in front of the Redis map shared by the pods.
+ * A write through this cache publishes the key on the invalidation topic of the cache and every
+ * other pod drops its local copy; the local values are also dropped whenever the topic is
+ * subscribed again, as the invalidations sent meanwhile are lost.
+ *
+ * <p>A value read from Redis is kept locally only when no invalidation reached the pod since the
+ * read started, otherwise an invalidation arriving during the read would be undone by the old
+ * value.
+ */
+@Log4j2
+public class NearCache<T> {
+  private static final String ALL_KEYS = "*";
+  private static final String SEPARATOR = "|";
+
+  private final String instanceId = UUID.randomUUID().toString();
+  private final RMap<String, T> map;
+  private final RTopic topic;
+  private final Cache<String, T> local;
+  private final AtomicLong invalidations = new AtomicLong();
+  private final int messageListenerId;
+  private final int statusListenerId;
+
+  NearCache(
+      RMap<String, T> map, RTopic topic, NearCacheSpec spec, ToIntFunction<Object> weigher) {
+    this.map = map;
+    this.topic = topic;
+    CacheBuilder<String, Object> builder =
+        CacheBuilder.newBuilder()
+            .maximumWeight(spec.getMaximumWeight())
+            .weigher((String key, Object value) -> Math.max(0, weigher.applyAsInt(value)))
+            .recordStats();
+    if (nonNull(spec.getExpireAfterWrite())) {
+      builder.expireAfterWrite(spec.getExpireAfterWrite());
+    }
+    if (nonNull(spec.getExpireAfterAccess())) {
+      builder.expireAfterAccess(spec.getExpireAfterAccess());
+    }
+    this.local = builder.build();
+    this.messageListenerId =
+        topic.addListener(String.class, (channel, message) -> onMessage(message));
+    this.statusListenerId =
+        topic.addListener(
+            new BaseStatusListener() {
+              @Override
+              public void onSubscribe(String channel) {
+                invalidations.incrementAndGet();
+                local.invalidateAll();
+              }
+            });
+  }
+
+  public String getName() {
+    return map.getName();
+  }
+
+  /** The shared tier. A write to it directly is not seen by the local tiers until they expire. */
+  public RMap<String, T> getMap() {
+    return map;
+  }
+
+  public T get(String key) {
+    var value = local.getIfPresent(key);
+    if (nonNull(value)) {
+      return value;
+    }
+    long sequence = getInvalidationSequence();
+    value = map.get(key);
+    if (nonNull(value)) {
+      putLocal(key, value, sequence);
+    }
+    return value;
+  }
+
+  public T getLocal(String key) {
+    return local.getIfPresent(key);
+  }
+
+  public void put(String key, T value) {
+    map.fastPut(key, value);
+    invalidations.incrementAndGet();
+    local.put(key, value);
+    publish(key);
+  }
+
+  public void invalidate(String key) {
+    map.fastRemove(key);
+    invalidations.incrementAndGet();
+    local.invalidate(key);
+    publish(key);
+  }
+
+  public void invalidateAll() {
+    map.delete();
+    invalidations.incrementAndGet();
+    local.invalidateAll();
+    publish(ALL_KEYS);
+  }
+
+  public long getLocalSize() {
+    return local.size();
+  }
+
+  public long getLocalEvictions() {
+    return local.stats().evictionCount();
+  }
+
+  /** Stop listening to the other pods, the local tier is dropped. */
+  public void close() {
+    topic.removeListener(messageListenerId, statusListenerId);
+    local.invalidateAll();
+  }
+
+  /** Read before a Redis read whose value goes to {@link #putLocal}. */
+  long getInvalidationSequence() {
+    return invalidations.get();
+  }
+
+  /**
+   * Keep a value read from Redis locally unless the local values were invalidated since the
+   * sequence was read. An invalidation racing with the put drops the value again.
+   */
+  void putLocal(String key, T value, long sequence) {
+    if (invalidations.get() != sequence) {
+      return;
+    }
+    local.put(key, value);
+    if (invalidations.get() != sequence) {
+      local.invalidate(key);
+    }
+  }
+
+  private void publish(String key) {
+    topic
+        .publishAsync(instanceId + SEPARATOR + key)
+        .onComplete(
+            (receivers, e) -> {
+              if (nonNull(e)) {
+                log.warn("{} fail to publish invalidation: {}", getName(), e.getMessage());
+              }
+            });
+  }
+
+  // the pod writing a key has the new value locally already
+  private void onMessage(String message) {
+    int separator = message.indexOf(SEPARATOR);
+    if (separator < 0 || message.startsWith(instanceId + SEPARATOR)) {
+      return;
+    }
+    String key = message.substring(separator + 1);
+    invalidations.incrementAndGet();
+    if (ALL_KEYS.equals(key)) {
+      local.invalidateAll();
+    } else {
+      local.invalidate(key);
+    }
+  }
+}
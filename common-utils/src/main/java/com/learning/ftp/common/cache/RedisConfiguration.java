@@ -1,8 +1,11 @@
 package com.learning.ftp.common.cache;
 
+import java.util.List;
 import lombok.extern.log4j.Log4j2;
 import org.redisson.Redisson;
 import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.Codec;
+import org.redisson.codec.MarshallingCodec;
 import org.redisson.config.Config;
 import static org.redisson.config.ReadMode.MASTER_SLAVE;
 import org.springframework.beans.factory.annotation.Value;
@@ -23,7 +26,11 @@ class RedisConfiguration {
       @Value("${spring.application.name}") String clientName,
       @Value("${cache.host:redis-master}") String host,
       @Value("${cache.timeout:1000}") int timeout,
-      @Value("${cache.connectTimeout:10000}") int connectTimeout) {
+      @Value("${cache.connectTimeout:10000}") int connectTimeout,
+      @Value("${cache.retryAttempts:150}") int retryAttempts,
+      @Value("${cache.codec:marshalling}") String codec,
+      @Value("${cache.compressionThreshold:0}") int compressionThreshold,
+      @Value("${cache.protobufMessages:}") String[] protobufMessages) {
     log.info("Enable redis caching");
     Config config = new Config();
     config
@@ -36,10 +43,35 @@ class RedisConfiguration {
         .setMasterConnectionMinimumIdleSize(10)
         .setSlaveConnectionMinimumIdleSize(10)
         .setReadMode(MASTER_SLAVE)
-        .setRetryAttempts(150)
+        .setRetryAttempts(retryAttempts)
         .setRetryInterval(100)
         .setClientName(clientName);
+    if (!"marshalling".equals(codec) || compressionThreshold > 0) {
+      config.setCodec(createCodec(codec, compressionThreshold, List.of(protobufMessages)));
+    }
 
     return Redisson.create(config);
   }
+
+  /**
+   * The codec of the cached values: {@code marshalling}, the Redisson default, or {@code protobuf}
+   * which stores the proto messages as their wire bytes. A positive compression threshold deflates
+   * the values from that encoded size on. The stored values are not readable by another codec. The
+   * protobuf codec only reads the listed message classes, any proto message when none is listed.
+   */
+  static Codec createCodec(String name, int compressionThreshold, List<String> protobufMessages) {
+    Codec codec;
+    switch (name) {
+      case "marshalling":
+        codec = new MarshallingCodec();
+        break;
+      case "protobuf":
+        codec = new ProtobufCodec(new MarshallingCodec(), protobufMessages);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown cache codec " + name);
+    }
+    log.info("Cache codec {}, compression threshold {}", name, compressionThreshold);
+    return compressionThreshold > 0 ? new CompressionCodec(codec, compressionThreshold) : codec;
+  }
 }
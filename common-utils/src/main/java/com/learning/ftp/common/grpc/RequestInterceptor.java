@@ -3,6 +3,7 @@ package com.learning.ftp.common.grpc;
 import static com.google.common.base.Strings.nullToEmpty;
 import com.google.common.collect.ImmutableMap;
 import com.learning.ftp.common.security.BaseUser;
+import com.learning.ftp.common.security.TenantContext;
 import static com.learning.ftp.common.security.BaseUser.CLAIM_PREFERRED_USERNAME;
 import static com.learning.ftp.common.security.BaseUser.CLAIM_ROLE;
 import static com.learning.ftp.common.security.BaseUser.USER_ATTR_COMPANY_SHORT_NAME;
@@ -66,7 +67,9 @@ public class RequestInterceptor implements ServerInterceptor {
         try {
           // unary calls may error out here
           SecurityContextHolder.getContext().setAuthentication(authentication);
-          super.onHalfClose();
+          try (TenantContext.Scope ignored = TenantContext.bind(user.getCompanyShortName())) {
+            super.onHalfClose();
+          }
         } catch (Exception aex) {
           if (aex instanceof AccessDeniedException) {
             call.close(
@@ -8,6 +8,7 @@ import static com.learning.ftp.common.security.BaseUser.USER_ATTR_HOST;
 import static com.learning.ftp.common.security.BaseUser.USER_ATTR_REQUEST_ID;
 import static com.learning.ftp.common.security.BaseUser.USER_ATTR_TENANT_CONTEXT;
 import static com.learning.ftp.common.security.BaseUser.USER_ATTR_TENANT_TOKEN;
+import com.learning.ftp.common.security.TenantContext;
 import java.io.IOException;
 import static java.util.Collections.emptySet;
 import static java.util.Collections.singletonList;
@@ -48,6 +49,7 @@ public class JwtRequestFilter extends OncePerRequestFilter {
     }
 
     String host = nullToEmpty(request.getHeader("Host"));
+    String tenant = null;
     ImmutableMap.Builder<String, Object> attributes = ImmutableMap.builder();
     attributes.put(USER_ATTR_REQUEST_ID, requestId);
     attributes.put(USER_ATTR_HOST, host);
@@ -62,10 +64,13 @@ public class JwtRequestFilter extends OncePerRequestFilter {
               extractHeaders(request));
       OAuth2AuthenticationToken token = new OAuth2AuthenticationToken(user, emptySet(), "finbase");
       SecurityContextHolder.getContext().setAuthentication(token);
+      tenant = user.getCompanyShortName();
     } catch (Exception ex) {
       LOG.error("Error when parsing JWT: " + ex.getMessage(), ex);
     }
-    chain.doFilter(request, response);
+    try (TenantContext.Scope ignored = TenantContext.bind(tenant)) {
+      chain.doFilter(request, response);
+    }
   }
 
   private String getTraceId() {
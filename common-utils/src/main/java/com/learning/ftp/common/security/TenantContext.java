@@ -0,0 +1,99 @@
+package com.learning.ftp.common.security;
+
+import com.learning.ftp.common.util.SecurityUtil;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+
+/**
+ * The tenant of the current thread, bound once per request by the HTTP filter and the gRPC
+ * interceptor so the data source routes a connection with one lookup. A thread outside a request,
+ * e.g. a batch job or a task of an executor, binds the tenant explicitly with {@link #bind} or
+ * {@link #run}, or takes the tenant of the submitting thread with {@link #wrap}.
+ *
+ * <p>The bound tenant takes precedence over the authenticated user: code replacing the
+ * authentication during a request keeps the tenant of the request unless it binds the tenant of the
+ * new user too, which {@link #impersonate} does.
+ */
+public final class TenantContext {
+  private static final ThreadLocal<String> TENANT = new ThreadLocal<>();
+
+  private TenantContext() {}
+
+  /**
+   * The bound tenant, else the company of the authenticated user; {@code null} when there is
+   * neither.
+   */
+  public static String getTenant() {
+    String tenant = TENANT.get();
+    if (tenant != null) {
+      return tenant;
+    }
+    BaseUser user = SecurityUtil.getCurrentUser();
+    return user != null ? user.getCompanyShortName() : null;
+  }
+
+  /** Bind a tenant to the thread until the scope is closed, the previous one is bound again. */
+  public static Scope bind(String tenant) {
+    String previous = TENANT.get();
+    TENANT.set(tenant);
+    return () -> {
+      if (previous == null) {
+        TENANT.remove();
+      } else {
+        TENANT.set(previous);
+      }
+    };
+  }
+
+  public static void run(String tenant, Runnable runnable) {
+    try (Scope ignored = bind(tenant)) {
+      runnable.run();
+    }
+  }
+
+  public static <T> T call(String tenant, Supplier<T> supplier) {
+    try (Scope ignored = bind(tenant)) {
+      return supplier.get();
+    }
+  }
+
+  /** Run the task with the tenant of the thread creating it, wherever it runs. */
+  public static Runnable wrap(Runnable runnable) {
+    String tenant = getTenant();
+    return () -> run(tenant, runnable);
+  }
+
+  public static <T> Callable<T> wrap(Callable<T> callable) {
+    String tenant = getTenant();
+    return () -> {
+      try (Scope ignored = bind(tenant)) {
+        return callable.call();
+      }
+    };
+  }
+
+  /**
+   * Act as another user until the scope is closed: the user is authenticated and its company bound
+   * as the tenant, then the previous authentication and tenant are restored.
+   */
+  public static Scope impersonate(BaseUser user) {
+    SecurityContext previous = SecurityContextHolder.getContext();
+    SecurityContext context = SecurityContextHolder.createEmptyContext();
+    context.setAuthentication(
+        new OAuth2AuthenticationToken(user, user.getAuthorities(), "finbase"));
+    SecurityContextHolder.setContext(context);
+    Scope tenant = bind(user.getCompanyShortName());
+    return () -> {
+      tenant.close();
+      SecurityContextHolder.setContext(previous);
+    };
+  }
+
+  public interface Scope extends AutoCloseable {
+    @Override
+    void close();
+  }
+}
@@ -0,0 +1,331 @@
+package com.learning.ftp.common.cache;
+
+import com.learning.ftp.common.security.TenantContext;
+import java.time.Duration;
+import static java.time.Duration.ofMillis;
+import static java.time.Duration.ofMinutes;
+import static java.time.Duration.ofSeconds;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+class AbstractCacheTest {
+  private static final int CALLERS = 8;
+  private static final long MINUTE = 60_000L;
+  private static final CachePolicy POLICY =
+      CachePolicy.expireAfter(ofMinutes(10))
+          .refreshAfter(ofMinutes(8))
+          .staleWhileRevalidate(ofMinutes(5));
+
+  private final AbstractCache cache = new AbstractCache() {};
+  private final FakeRMap<String> users = new FakeRMap<>("users");
+  private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+  private final ExecutorService refresher = Executors.newSingleThreadExecutor();
+  private final AbstractCache entryCache =
+      new AbstractCache() {
+        @Override
+        protected CachePolicy cachePolicy(String cacheName) {
+          return POLICY;
+        }
+
+        @Override
+        protected Executor refreshExecutor() {
+          return refresher;
+        }
+      };
+  private final FakeRMap<CacheEntry<String>> entries = new FakeRMap<>("entries");
+
+  @AfterEach
+  void shutdown() {
+    executor.shutdownNow();
+    refresher.shutdownNow();
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  void givenCachedValue_whenComputeIfAbsent_thenSupplierNotCalled() {
+    users.getValues().put("1", "cached");
+
+    String value = cache.computeIfAbsent("1", () -> fail("loaded"), users.proxy());
+
+    assertThat(value, equalTo("cached"));
+    assertThat(cache.getStats("users").getHits(), equalTo(1L));
+    assertThat(cache.getStats("users").getExecutedLoads(), equalTo(0L));
+  }
+
+  @Test
+  void givenConcurrentMisses_whenComputeIfAbsent_thenOneLoadShared() throws Exception {
+    var release = new CountDownLatch(1);
+    var calls = new AtomicInteger();
+    List<Future<String>> results =
+        computeConcurrently(
+            () -> {
+              calls.incrementAndGet();
+              await(release);
+              return "loaded";
+            });
+    awaitUntil(() -> cache.getStats("users").getCoalescedLoads() == CALLERS - 1);
+    release.countDown();
+
+    for (Future<String> result : results) {
+      assertThat(result.get(5, SECONDS), equalTo("loaded"));
+    }
+    assertThat(calls.get(), equalTo(1));
+    assertThat(users.getValues(), equalTo(Map.of("1", "loaded")));
+    assertThat(cache.getStats("users").getExecutedLoads(), equalTo(1L));
+  }
+
+  @Test
+  void givenFailingLoad_whenComputeIfAbsent_thenWaitersFailAndNextCallLoads() throws Exception {
+    var release = new CountDownLatch(1);
+    List<Future<String>> results =
+        computeConcurrently(
+            () -> {
+              await(release);
+              throw new IllegalStateException("load failed");
+            });
+    awaitUntil(() -> cache.getStats("users").getCoalescedLoads() == CALLERS - 1);
+    release.countDown();
+
+    for (Future<String> result : results) {
+      var error = assertThrows(ExecutionException.class, () -> result.get(5, SECONDS));
+      assertThat(error.getCause(), instanceOf(IllegalStateException.class));
+    }
+    assertThat(cache.getStats("users").getFailedLoads(), equalTo(1L));
+    assertThat(cache.computeIfAbsent("1", () -> "reloaded", users.proxy()), equalTo("reloaded"));
+  }
+
+  @Test
+  void givenNullLoaded_whenComputeIfAbsent_thenNothingStored() {
+    assertThat(cache.computeIfAbsent("1", () -> null, users.proxy()), equalTo(null));
+    assertThat(users.getValues().isEmpty(), equalTo(true));
+  }
+
+  @Test
+  void givenLoadLock_whenMissOnTwoPods_thenSecondPodReadsStoredValue() throws Exception {
+    AbstractCache loader = pod(ofSeconds(5));
+    AbstractCache waiter = pod(ofSeconds(5));
+    var entered = new CountDownLatch(1);
+    var release = new CountDownLatch(1);
+    Future<String> loaded =
+        executor.submit(
+            () ->
+                loader.computeIfAbsent(
+                    "1",
+                    () -> {
+                      entered.countDown();
+                      await(release);
+                      return "loaded";
+                    },
+                    users.proxy()));
+    await(entered);
+    Future<String> waited =
+        executor.submit(
+            () -> waiter.computeIfAbsent("1", () -> fail("loaded twice"), users.proxy()));
+    awaitUntil(() -> users.getLockWaiters("1") == 1);
+    release.countDown();
+
+    assertThat(loaded.get(5, SECONDS), equalTo("loaded"));
+    assertThat(waited.get(5, SECONDS), equalTo("loaded"));
+    assertThat(waiter.getStats("users").getCoalescedLoads(), equalTo(1L));
+    assertThat(waiter.getStats("users").getExecutedLoads(), equalTo(0L));
+  }
+
+  @Test
+  void givenHungLoaderOnOtherPod_whenItsLockLeaseEnds_thenLoadedWithoutLockTimeout()
+      throws Exception {
+    AbstractCache hung = pod(ofMillis(100));
+    AbstractCache other = pod(ofSeconds(5));
+    var entered = new CountDownLatch(1);
+    var release = new CountDownLatch(1);
+    executor.submit(
+        () ->
+            hung.computeIfAbsent(
+                "1",
+                () -> {
+                  entered.countDown();
+                  await(release);
+                  return "late";
+                },
+                users.proxy()));
+    await(entered);
+
+    try {
+      assertThat(other.computeIfAbsent("1", () -> "loaded", users.proxy()), equalTo("loaded"));
+      assertThat(other.getStats("users").getLockTimeouts(), equalTo(0L));
+      assertThat(other.getStats("users").getExecutedLoads(), equalTo(1L));
+    } finally {
+      release.countDown();
+    }
+  }
+
+  @Test
+  void givenSomeKeysCached_whenComputeAll_thenOneReadAndOneBatchForMisses() {
+    users.getValues().put("2", "cached");
+    List<Set<String>> batches = new ArrayList<>();
+
+    Map<String, String> values =
+        cache.computeAll(
+            List.of("1", "2", "3"),
+            keys -> {
+              batches.add(Set.copyOf(keys));
+              return Map.of("1", "loaded 1", "3", "loaded 3");
+            },
+            users.proxy());
+
+    assertThat(values, equalTo(Map.of("1", "loaded 1", "2", "cached", "3", "loaded 3")));
+    assertThat(users.getReads(), equalTo(1));
+    assertThat(batches, equalTo(List.of(Set.of("1", "3"))));
+    assertThat(users.getValues(), equalTo(values));
+    assertThat(cache.getStats("users").getHits(), equalTo(1L));
+    assertThat(cache.getStats("users").getMisses(), equalTo(2L));
+  }
+
+  @Test
+  void givenKeysWithoutValue_whenComputeAll_thenKeyOrderKeptAndMissingKeysAbsent() {
+    users.getValues().put("1", "cached");
+
+    Map<String, String> values =
+        cache.computeAll(
+            List.of("3", "1", "2", "3"),
+            keys -> Map.of("3", "loaded 3", "4", "not asked"),
+            users.proxy());
+
+    assertThat(values.keySet(), contains("3", "1"));
+    assertThat(users.getValues(), equalTo(Map.of("1", "cached", "3", "loaded 3")));
+  }
+
+  @Test
+  void givenAllKeysCached_whenComputeAll_thenBatchLoaderNotCalled() {
+    users.getValues().putAll(Map.of("1", "a", "2", "b"));
+
+    Map<String, String> values =
+        cache.computeAll(List.of("1", "2"), keys -> fail("loaded"), users.proxy());
+
+    assertThat(values, equalTo(Map.of("1", "a", "2", "b")));
+    assertThat(cache.getStats("users").getExecutedLoads(), equalTo(0L));
+  }
+
+  @Test
+  void givenEntryDueForRefresh_whenComputeEntry_thenServedAndReloadedInBackground()
+      throws Exception {
+    entries.getValues().put("1", loadedMinutesAgo("old", 9));
+
+    assertThat(entryCache.computeEntry("1", () -> "new", entries.proxy()), equalTo("old"));
+    awaitUntil(() -> "new".equals(entries.getValues().get("1").getValue()));
+    assertThat(entryCache.getStats("entries").getRefreshes(), equalTo(1L));
+    assertThat(entryCache.getStats("entries").getStaleHits(), equalTo(0L));
+  }
+
+  @Test
+  void givenExpiredEntryInStaleWindow_whenComputeEntry_thenStaleServedAndReloaded()
+      throws Exception {
+    entries.getValues().put("1", loadedMinutesAgo("old", 12));
+
+    assertThat(entryCache.computeEntry("1", () -> "new", entries.proxy()), equalTo("old"));
+    awaitUntil(() -> "new".equals(entries.getValues().get("1").getValue()));
+    assertThat(entryCache.getStats("entries").getStaleHits(), equalTo(1L));
+  }
+
+  @Test
+  void givenEntryPastStaleWindow_whenComputeEntry_thenLoadedOnRequest() {
+    entries.getValues().put("1", loadedMinutesAgo("old", 20));
+
+    assertThat(entryCache.computeEntry("1", () -> "new", entries.proxy()), equalTo("new"));
+    assertThat(entryCache.getStats("entries").getMisses(), equalTo(1L));
+    assertThat(entryCache.getStats("entries").getRefreshes(), equalTo(0L));
+  }
+
+  @Test
+  void givenRequestContext_whenRefreshInBackground_thenTenantAndUserPropagated()
+      throws Exception {
+    entries.getValues().put("1", loadedMinutesAgo("old", 9));
+    var tenant = new AtomicReference<String>();
+    var user = new AtomicReference<String>();
+    SecurityContextHolder.getContext()
+        .setAuthentication(new TestingAuthenticationToken("alice", null));
+
+    try (var ignored = TenantContext.bind("acme")) {
+      entryCache.computeEntry(
+          "1",
+          () -> {
+            Authentication authentication =
+                SecurityContextHolder.getContext().getAuthentication();
+            user.set(authentication != null ? authentication.getName() : null);
+            tenant.set(TenantContext.getTenant());
+            return "new";
+          },
+          entries.proxy());
+    }
+    awaitUntil(() -> "new".equals(entries.getValues().get("1").getValue()));
+
+    assertThat(tenant.get(), equalTo("acme"));
+    assertThat(user.get(), equalTo("alice"));
+  }
+
+  // a pod using the same Redis map as the others, waiting up to the wait for the lock of a key
+  private static AbstractCache pod(Duration wait) {
+    return new AbstractCache() {
+      @Override
+      protected Duration loadLockTimeout(String cacheName) {
+        return wait;
+      }
+    };
+  }
+
+  private static CacheEntry<String> loadedMinutesAgo(String value, long minutes) {
+    return new CacheEntry<>(value, System.currentTimeMillis() - minutes * MINUTE);
+  }
+
+  private List<Future<String>> computeConcurrently(Supplier<String> supplier) {
+    List<Future<String>> results = new ArrayList<>();
+    for (int i = 0; i < CALLERS; ++i) {
+      results.add(executor.submit(() -> cache.computeIfAbsent("1", supplier, users.proxy())));
+    }
+    return results;
+  }
+
+  static void await(CountDownLatch latch) {
+    try {
+      if (!latch.await(5, SECONDS)) {
+        throw new IllegalStateException("Latch not released");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+
+  static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      if (System.nanoTime() - deadline > 0) {
+        fail("Condition not met in time");
+      }
+      Thread.sleep(5);
+    }
+  }
+}
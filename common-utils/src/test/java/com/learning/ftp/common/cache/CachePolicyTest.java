@@ -0,0 +1,73 @@
+package com.learning.ftp.common.cache;
+
+import static java.time.Duration.ofMinutes;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import org.junit.jupiter.api.Test;
+
+class CachePolicyTest {
+  private static final long NOW = 1_000_000_000L;
+  private static final long MINUTE = 60_000L;
+  private static final CachePolicy POLICY =
+      CachePolicy.expireAfter(ofMinutes(10))
+          .refreshAfter(ofMinutes(8))
+          .staleWhileRevalidate(ofMinutes(5));
+
+  @Test
+  void givenYoungEntry_whenAged_thenFreshAndNotDueForRefresh() {
+    CacheEntry<String> entry = loadedMinutesAgo(7);
+
+    assertThat(POLICY.isFresh(entry, NOW), equalTo(true));
+    assertThat(POLICY.isDueForRefresh(entry, NOW), equalTo(false));
+  }
+
+  @Test
+  void givenEntryPastRefreshAfter_whenAged_thenFreshButDueForRefresh() {
+    CacheEntry<String> entry = loadedMinutesAgo(8);
+
+    assertThat(POLICY.isFresh(entry, NOW), equalTo(true));
+    assertThat(POLICY.isDueForRefresh(entry, NOW), equalTo(true));
+  }
+
+  @Test
+  void givenExpiredEntryInStaleWindow_whenAged_thenServableStale() {
+    CacheEntry<String> entry = loadedMinutesAgo(14);
+
+    assertThat(POLICY.isFresh(entry, NOW), equalTo(false));
+    assertThat(POLICY.isServableStale(entry, NOW), equalTo(true));
+  }
+
+  @Test
+  void givenEntryPastStaleWindow_whenAged_thenNotServable() {
+    CacheEntry<String> entry = loadedMinutesAgo(15);
+
+    assertThat(POLICY.isFresh(entry, NOW), equalTo(false));
+    assertThat(POLICY.isServableStale(entry, NOW), equalTo(false));
+  }
+
+  @Test
+  void givenNoStaleWindow_whenExpired_thenNotServable() {
+    CachePolicy policy = CachePolicy.expireAfter(ofMinutes(10));
+
+    assertThat(policy.isServableStale(loadedMinutesAgo(10), NOW), equalTo(false));
+    assertThat(policy.getRetentionMillis(), equalTo(10 * MINUTE));
+  }
+
+  @Test
+  void givenPolicies_whenGetRetention_thenExpiryPlusStaleWindow() {
+    assertThat(POLICY.getRetentionMillis(), equalTo(15 * MINUTE));
+    assertThat(CachePolicy.NONE.getRetentionMillis(), equalTo(0L));
+  }
+
+  @Test
+  void givenNoPolicy_whenAged_thenAlwaysFresh() {
+    CacheEntry<String> entry = loadedMinutesAgo(60 * 24 * 365);
+
+    assertThat(CachePolicy.NONE.isFresh(entry, NOW), equalTo(true));
+    assertThat(CachePolicy.NONE.isDueForRefresh(entry, NOW), equalTo(false));
+  }
+
+  private static CacheEntry<String> loadedMinutesAgo(long minutes) {
+    return new CacheEntry<>("value", NOW - minutes * MINUTE);
+  }
+}
@@ -0,0 +1,27 @@
+package com.learning.ftp.common.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+class CacheStatsControllerTest {
+  private final ApplicationContextRunner contextRunner =
+      new ApplicationContextRunner().withUserConfiguration(CacheStatsController.class);
+
+  @Test
+  void givenCachesEnabled_whenStatsEndpointNotSet_thenNoEndpoint() {
+    contextRunner
+        .withPropertyValues("cache.enable=true")
+        .run(context -> assertThat(context).doesNotHaveBean(CacheStatsController.class));
+  }
+
+  @Test
+  void givenStatsEndpointSet_whenCachesEnabled_thenEndpointServed() {
+    contextRunner
+        .withPropertyValues("cache.enable=true", "cache.stats-endpoint=true")
+        .run(context -> assertThat(context).hasSingleBean(CacheStatsController.class));
+    contextRunner
+        .withPropertyValues("cache.stats-endpoint=true")
+        .run(context -> assertThat(context).doesNotHaveBean(CacheStatsController.class));
+  }
+}
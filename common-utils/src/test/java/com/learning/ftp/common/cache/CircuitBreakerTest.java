@@ -0,0 +1,229 @@
+package com.learning.ftp.common.cache;
+
+import static com.learning.ftp.common.cache.AbstractCacheTest.awaitUntil;
+import com.learning.ftp.common.cache.CacheProperties.CircuitBreakerSpec;
+import com.learning.ftp.common.cache.CircuitBreaker.State;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+import org.redisson.client.RedisException;
+
+class CircuitBreakerTest {
+  private static final Duration OPEN_DURATION = Duration.ofMillis(200);
+  private static final long FAST = MILLISECONDS.toNanos(1);
+
+  private final CircuitBreaker breaker = new CircuitBreaker("users", spec(3));
+
+  @Test
+  void givenFailuresBelowThreshold_whenSuccess_thenStaysClosed() {
+    breaker.onFailure();
+    breaker.onFailure();
+    breaker.onSuccess(FAST);
+    breaker.onFailure();
+    breaker.onFailure();
+
+    assertThat(breaker.getState(), equalTo(State.CLOSED));
+    assertThat(breaker.tryAcquire(), equalTo(true));
+  }
+
+  @Test
+  void givenConsecutiveFailures_whenThresholdReached_thenOpenAndCallsRejected() {
+    failTimes(3);
+
+    assertThat(breaker.getState(), equalTo(State.OPEN));
+    assertThat(breaker.tryAcquire(), equalTo(false));
+    assertThat(breaker.isCallPermitted(), equalTo(false));
+  }
+
+  @Test
+  void givenSlowCalls_whenThresholdReached_thenOpen() {
+    breaker.onSuccess(SECONDS.toNanos(1));
+    breaker.onSuccess(SECONDS.toNanos(1));
+    breaker.onSuccess(SECONDS.toNanos(1));
+
+    assertThat(breaker.getState(), equalTo(State.OPEN));
+  }
+
+  @Test
+  void givenOpenDurationPassed_whenTryAcquire_thenOneProbeAndSuccessCloses() throws Exception {
+    failTimes(3);
+    awaitUntil(breaker::isCallPermitted);
+
+    assertThat(breaker.tryAcquire(), equalTo(true));
+    assertThat(breaker.getState(), equalTo(State.HALF_OPEN));
+    assertThat(breaker.tryAcquire(), equalTo(false));
+
+    breaker.onSuccess(FAST);
+    assertThat(breaker.getState(), equalTo(State.CLOSED));
+    assertThat(breaker.tryAcquire(), equalTo(true));
+  }
+
+  @Test
+  void givenProbe_whenFails_thenOpenAgain() throws Exception {
+    failTimes(3);
+    awaitUntil(breaker::isCallPermitted);
+    breaker.tryAcquire();
+
+    breaker.onFailure();
+
+    assertThat(breaker.getState(), equalTo(State.OPEN));
+    assertThat(breaker.tryAcquire(), equalTo(false));
+  }
+
+  @Test
+  void givenProbeNeverReporting_whenOpenDurationPassedAgain_thenNextProbe() throws Exception {
+    failTimes(3);
+    awaitUntil(breaker::isCallPermitted);
+    breaker.tryAcquire();
+
+    awaitUntil(breaker::isCallPermitted);
+
+    assertThat(breaker.tryAcquire(), equalTo(true));
+    assertThat(breaker.getState(), equalTo(State.HALF_OPEN));
+  }
+
+  @Test
+  void givenZeroThreshold_whenFailures_thenNeverOpens() {
+    var disabled = new CircuitBreaker("users", spec(0));
+
+    for (int i = 0; i < 10; ++i) {
+      disabled.onFailure();
+    }
+
+    assertThat(disabled.getState(), equalTo(State.CLOSED));
+  }
+
+  @Test
+  void givenRedisDown_whenBreakerOpens_thenCacheLoadsWithoutCallingRedis() {
+    var cache =
+        new AbstractCache() {
+          @Override
+          protected CircuitBreakerSpec circuitBreakerSpec(String cacheName) {
+            return spec(2);
+          }
+        };
+    var users = new FakeRMap<String>("users");
+    users.setDown(true);
+
+    assertThrows(RedisException.class, () -> cache.computeIfAbsent("1", () -> "a", users.proxy()));
+    assertThrows(RedisException.class, () -> cache.computeIfAbsent("1", () -> "a", users.proxy()));
+
+    assertThat(cache.computeIfAbsent("1", () -> "loaded", users.proxy()), equalTo("loaded"));
+    assertThat(cache.getCircuitBreaker("users").getState(), equalTo(State.OPEN));
+    assertThat(cache.getStats("users").getShortCircuits(), equalTo(1L));
+  }
+
+  @Test
+  void givenRedisDown_whenOnlySafeOperate_thenBreakerOpensAndRedisSkipped() {
+    var cache = breakingCache();
+    var calls = new AtomicInteger();
+    Supplier<Optional<String>> failing =
+        () -> {
+          calls.incrementAndGet();
+          throw new RedisException("Redis is down");
+        };
+
+    assertThat(cache.safeOperate("users", failing), equalTo(Optional.empty()));
+    assertThat(cache.safeOperate("users", failing), equalTo(Optional.empty()));
+    assertThat(cache.getCircuitBreaker("users").getState(), equalTo(State.OPEN));
+
+    assertThat(cache.safeOperate("users", failing), equalTo(Optional.empty()));
+    assertThat(calls.get(), equalTo(2));
+    assertThat(cache.getStats("users").getShortCircuits(), equalTo(1L));
+  }
+
+  @Test
+  void givenSlowOperations_whenOnlySafeOperate_thenBreakerOpens() {
+    var cache = breakingCache();
+    Supplier<Optional<String>> slow =
+        () -> {
+          sleep(Duration.ofMillis(300));
+          return Optional.of("slow");
+        };
+
+    cache.safeOperate("users", slow);
+    cache.safeOperate("users", slow);
+
+    assertThat(cache.getCircuitBreaker("users").getState(), equalTo(State.OPEN));
+  }
+
+  @Test
+  void givenOpenDurationPassed_whenSafeOperate_thenOneProbeClosesBreaker() throws Exception {
+    var cache = breakingCache();
+    cache.safeOperate("users", () -> failWithRedis());
+    cache.safeOperate("users", () -> failWithRedis());
+    var breaker = cache.getCircuitBreaker("users");
+    awaitUntil(breaker::isCallPermitted);
+    var probing = new CountDownLatch(1);
+    var release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Optional<String>> probe =
+          executor.submit(
+              () ->
+                  cache.safeOperate(
+                      "users",
+                      () -> {
+                        probing.countDown();
+                        AbstractCacheTest.await(release);
+                        return Optional.of("probed");
+                      }));
+      AbstractCacheTest.await(probing);
+
+      assertThat(breaker.getState(), equalTo(State.HALF_OPEN));
+      assertThat(
+          cache.safeOperate("users", () -> Optional.of("second")), equalTo(Optional.empty()));
+      release.countDown();
+      assertThat(probe.get(5, SECONDS), equalTo(Optional.of("probed")));
+      assertThat(breaker.getState(), equalTo(State.CLOSED));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static AbstractCache breakingCache() {
+    return new AbstractCache() {
+      @Override
+      protected CircuitBreakerSpec circuitBreakerSpec(String cacheName) {
+        return spec(2);
+      }
+    };
+  }
+
+  private static Optional<String> failWithRedis() {
+    throw new RedisException("Redis is down");
+  }
+
+  private static void sleep(Duration duration) {
+    try {
+      Thread.sleep(duration.toMillis());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void failTimes(int times) {
+    for (int i = 0; i < times; ++i) {
+      breaker.onFailure();
+    }
+  }
+
+  private static CircuitBreakerSpec spec(int failureThreshold) {
+    var spec = new CircuitBreakerSpec();
+    spec.setFailureThreshold(failureThreshold);
+    spec.setSlowCallThreshold(Duration.ofMillis(250));
+    spec.setOpenDuration(OPEN_DURATION);
+    return spec;
+  }
+}
@@ -0,0 +1,57 @@
+package com.learning.ftp.common.cache;
+
+import static com.learning.ftp.common.cache.ProtobufCodecTest.decode;
+import static com.learning.ftp.common.cache.ProtobufCodecTest.roundTrip;
+import com.google.protobuf.StringValue;
+import io.netty.buffer.ByteBuf;
+import java.io.IOException;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+import org.redisson.client.codec.StringCodec;
+
+class CompressionCodecTest {
+  private static final int THRESHOLD = 64;
+
+  private final CompressionCodec codec = new CompressionCodec(new StringCodec(), THRESHOLD);
+
+  @Test
+  void givenValueBelowThreshold_whenEncoded_thenStoredRaw() throws IOException {
+    ByteBuf encoded = codec.getValueEncoder().encode("small");
+
+    assertThat(encoded.getByte(0), equalTo((byte) 0));
+    assertThat(encoded.readableBytes(), equalTo(1 + "small".length()));
+    assertThat(decode(codec, encoded), equalTo("small"));
+  }
+
+  @Test
+  void givenValueFromThreshold_whenEncoded_thenDeflatedAndReadBack() throws IOException {
+    String value = "compressible ".repeat(100);
+    ByteBuf encoded = codec.getValueEncoder().encode(value);
+
+    assertThat(encoded.getByte(0), equalTo((byte) 1));
+    assertThat(encoded.getInt(1), equalTo(value.length()));
+    assertThat(encoded.readableBytes(), lessThan(value.length() / 4));
+    assertThat(decode(codec, encoded), equalTo(value));
+  }
+
+  @Test
+  void givenCompressedProtoCodec_whenRoundTrip_thenEqualValue() throws IOException {
+    var compressed = new CompressionCodec(new ProtobufCodec(), THRESHOLD);
+    var value = StringValue.of("proto ".repeat(50));
+
+    assertThat(roundTrip(compressed, value), equalTo(value));
+    assertThat(roundTrip(compressed, "plain"), equalTo("plain"));
+  }
+
+  @Test
+  void givenTruncatedCompressedValue_whenDecoded_thenFails() throws IOException {
+    ByteBuf encoded = codec.getValueEncoder().encode("truncated ".repeat(100));
+    ByteBuf truncated = encoded.retainedSlice(0, encoded.readableBytes() / 2);
+    encoded.release();
+
+    assertThrows(IOException.class, () -> decode(codec, truncated));
+  }
+}
@@ -0,0 +1,174 @@
+package com.learning.ftp.common.cache;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.redisson.api.RLock;
+import org.redisson.api.RMap;
+import org.redisson.client.RedisException;
+import org.redisson.misc.RedissonPromise;
+
+/**
+ * An {@link RMap} over a map in memory for the cache tests. The calls fail with a {@link
+ * RedisException} while the map is down; the operations the caches do not use are unsupported. The
+ * lock of a key is shared by the caches using the map, like by the pods using Redis, and a lock
+ * taken without a lease is held until it is unlocked, like with the watchdog.
+ */
+@SuppressWarnings("unchecked")
+class FakeRMap<V> implements InvocationHandler {
+  private final String name;
+  private final Map<String, V> values = new ConcurrentHashMap<>();
+  private final AtomicInteger reads = new AtomicInteger();
+  private final Map<String, FakeLock> locks = new ConcurrentHashMap<>();
+  private volatile boolean isDown;
+
+  FakeRMap(String name) {
+    this.name = name;
+  }
+
+  RMap<String, V> proxy() {
+    return (RMap<String, V>)
+        Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {RMap.class}, this);
+  }
+
+  /** The values as stored, the asynchronous writes complete right away. */
+  Map<String, V> getValues() {
+    return values;
+  }
+
+  /** The reads made through the map, {@code get} and {@code getAll} alike. */
+  int getReads() {
+    return reads.get();
+  }
+
+  /** The callers waiting for the lock of the key. */
+  int getLockWaiters(String key) {
+    return lock(key).getWaiters();
+  }
+
+  void setDown(boolean isDown) {
+    this.isDown = isDown;
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) {
+    switch (method.getName()) {
+      case "getName":
+        return name;
+      case "toString":
+        return "FakeRMap " + name;
+      case "hashCode":
+        return System.identityHashCode(proxy);
+      case "equals":
+        return proxy == args[0];
+      default:
+        break;
+    }
+    if (isDown) {
+      throw new RedisException("Redis is down");
+    }
+    switch (method.getName()) {
+      case "getLock":
+        FakeLock lock = lock((String) args[0]);
+        return Proxy.newProxyInstance(
+            getClass().getClassLoader(), new Class<?>[] {RLock.class}, lock);
+      case "get":
+        reads.incrementAndGet();
+        return values.get((String) args[0]);
+      case "getAll":
+        reads.incrementAndGet();
+        Map<String, V> found = new LinkedHashMap<>();
+        ((Collection<String>) args[0])
+            .stream()
+            .filter(values::containsKey)
+            .forEach(key -> found.put(key, values.get(key)));
+        return found;
+      case "fastPut":
+        return values.put((String) args[0], (V) args[1]) == null;
+      case "putAsync":
+      case "fastPutAsync":
+        values.put((String) args[0], (V) args[1]);
+        return RedissonPromise.newSucceededFuture(null);
+      case "putAllAsync":
+        values.putAll((Map<String, V>) args[0]);
+        return RedissonPromise.newSucceededFuture(null);
+      case "fastRemove":
+        long removed = 0;
+        for (Object key : (Object[]) args[0]) {
+          removed += values.remove(key) != null ? 1 : 0;
+        }
+        return removed;
+      case "delete":
+        values.clear();
+        return true;
+      default:
+        throw new UnsupportedOperationException(method.getName());
+    }
+  }
+
+  private FakeLock lock(String key) {
+    return locks.computeIfAbsent(key, k -> new FakeLock());
+  }
+
+  /** A lock held by a thread until it is unlocked or its lease ends. */
+  private static class FakeLock implements InvocationHandler {
+    private Thread owner;
+    private long expiresAt;
+    private int waiters;
+
+    @Override
+    public synchronized Object invoke(Object proxy, Method method, Object[] args)
+        throws InterruptedException {
+      switch (method.getName()) {
+        case "tryLock":
+          TimeUnit unit = (TimeUnit) args[args.length - 1];
+          long lease = args.length == 3 ? unit.toNanos((Long) args[1]) : -1;
+          return tryLock(unit.toNanos((Long) args[0]), lease);
+        case "isHeldByCurrentThread":
+          return isHeld();
+        case "unlock":
+          if (!isHeld()) {
+            throw new IllegalMonitorStateException("Lock not held");
+          }
+          owner = null;
+          notifyAll();
+          return null;
+        default:
+          throw new UnsupportedOperationException(method.getName());
+      }
+    }
+
+    private boolean tryLock(long waitNanos, long leaseNanos) throws InterruptedException {
+      long deadline = System.nanoTime() + waitNanos;
+      ++waiters;
+      try {
+        while (owner != null && System.nanoTime() - expiresAt < 0) {
+          long remaining = Math.min(deadline, expiresAt) - System.nanoTime();
+          if (System.nanoTime() - deadline >= 0) {
+            return false;
+          }
+          TimeUnit.NANOSECONDS.timedWait(this, Math.max(remaining, 1));
+        }
+      } finally {
+        --waiters;
+      }
+      owner = Thread.currentThread();
+      expiresAt = System.nanoTime() + (leaseNanos < 0 ? Long.MAX_VALUE / 2 : leaseNanos);
+      return true;
+    }
+
+    private synchronized int getWaiters() {
+      return waiters;
+    }
+
+    private boolean isHeld() {
+      return owner == Thread.currentThread() && System.nanoTime() - expiresAt < 0;
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package com.learning.ftp.common.cache;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.redisson.api.RTopic;
+import org.redisson.api.listener.MessageListener;
+import org.redisson.api.listener.StatusListener;
+import org.redisson.misc.RedissonPromise;
+
+/**
+ * An {@link RTopic} delivering the messages to its listeners on the publishing thread, for the
+ * near cache tests. The operations the caches do not use are unsupported.
+ */
+@SuppressWarnings({"unchecked", "rawtypes"})
+class FakeRTopic implements InvocationHandler {
+  private static final String CHANNEL = "invalidations";
+
+  private final AtomicInteger listenerIds = new AtomicInteger();
+  private final Map<Integer, MessageListener> messageListeners = new ConcurrentHashMap<>();
+  private final Map<Integer, StatusListener> statusListeners = new ConcurrentHashMap<>();
+
+  RTopic proxy() {
+    return (RTopic)
+        Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {RTopic.class}, this);
+  }
+
+  /** Deliver a message as if published by another pod. */
+  void deliver(String message) {
+    messageListeners.values().forEach(listener -> listener.onMessage(CHANNEL, message));
+  }
+
+  /** Tell the listeners the topic was subscribed again after a lost connection. */
+  void resubscribe() {
+    statusListeners.values().forEach(listener -> listener.onSubscribe(CHANNEL));
+  }
+
+  int getListenerCount() {
+    return messageListeners.size() + statusListeners.size();
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) {
+    switch (method.getName()) {
+      case "addListener":
+        int id = listenerIds.incrementAndGet();
+        if (args.length == 2) {
+          messageListeners.put(id, (MessageListener) args[1]);
+        } else {
+          statusListeners.put(id, (StatusListener) args[0]);
+        }
+        return id;
+      case "removeListener":
+        for (Object listenerId : (Object[]) args[0]) {
+          messageListeners.remove(listenerId);
+          statusListeners.remove(listenerId);
+        }
+        return null;
+      case "publishAsync":
+        deliver((String) args[0]);
+        return RedissonPromise.newSucceededFuture((long) messageListeners.size());
+      case "hashCode":
+        return System.identityHashCode(proxy);
+      case "equals":
+        return proxy == args[0];
+      case "toString":
+        return "FakeRTopic";
+      default:
+        throw new UnsupportedOperationException(method.getName());
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package com.learning.ftp.common.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+  private final LatencyHistogram histogram = new LatencyHistogram();
+
+  @Test
+  void givenNoDuration_whenRead_thenEmpty() {
+    assertThat(histogram.getCount(), equalTo(0L));
+    assertThat(histogram.getMaxMillis(), equalTo(0.0));
+    assertThat(histogram.getBuckets().get("+Inf"), equalTo(0L));
+    assertThat(histogram.getBuckets().size(), equalTo(14));
+  }
+
+  @Test
+  void givenDurations_whenGetBuckets_thenCumulativeUpToEachBound() {
+    histogram.record(MILLISECONDS.toNanos(1));
+    histogram.record(MILLISECONDS.toNanos(3));
+    histogram.record(MILLISECONDS.toNanos(5));
+    histogram.record(MILLISECONDS.toNanos(700));
+    histogram.record(SECONDS.toNanos(20));
+
+    Map<String, Long> buckets = histogram.getBuckets();
+
+    assertThat(buckets, equalTo(expectedBuckets(1, 1, 3, 3, 3, 3, 3, 3, 3, 4, 4, 4, 4, 5)));
+  }
+
+  @Test
+  void givenFractionOfMillisAboveBound_whenRecord_thenCountedInNextBound() {
+    histogram.record(1_900_000);
+    histogram.record(MILLISECONDS.toNanos(2) + 1);
+
+    assertThat(histogram.getBuckets().get("1"), equalTo(0L));
+    assertThat(histogram.getBuckets().get("2"), equalTo(1L));
+    assertThat(histogram.getBuckets().get("5"), equalTo(2L));
+  }
+
+  @Test
+  void givenDurations_whenRead_thenCountTotalAndMax() {
+    histogram.record(MILLISECONDS.toNanos(2));
+    histogram.record(1_500_000);
+    histogram.record(MILLISECONDS.toNanos(10));
+
+    assertThat(histogram.getCount(), equalTo(3L));
+    assertThat(histogram.getTotalMillis(), closeTo(13.5, 1e-9));
+    assertThat(histogram.getMaxMillis(), closeTo(10.0, 1e-9));
+  }
+
+  private static Map<String, Long> expectedBuckets(long... counts) {
+    String[] bounds = {
+      "1", "2", "5", "10", "25", "50", "100", "250", "500", "1000", "2500", "5000", "10000", "+Inf"
+    };
+    Map<String, Long> result = new LinkedHashMap<>();
+    for (int i = 0; i < bounds.length; ++i) {
+      result.put(bounds[i], counts[i]);
+    }
+    return result;
+  }
+}
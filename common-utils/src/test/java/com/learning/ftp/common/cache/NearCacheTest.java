@@ -0,0 +1,88 @@
+package com.learning.ftp.common.cache;
+
+import com.learning.ftp.common.cache.CacheProperties.NearCacheSpec;
+import java.time.Duration;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.fail;
+import org.junit.jupiter.api.Test;
+
+class NearCacheTest {
+  private final AbstractCache cache = new AbstractCache() {};
+  private final FakeRMap<String> users = new FakeRMap<>("users");
+  private final FakeRTopic topic = new FakeRTopic();
+  private final NearCache<String> nearCache =
+      new NearCache<>(users.proxy(), topic.proxy(), new NearCacheSpec(), value -> 1);
+
+  @Test
+  void givenLoadedValue_whenComputeNear_thenNextCallServedLocally() {
+    assertThat(cache.computeNear("1", () -> "loaded", nearCache), equalTo("loaded"));
+    assertThat(cache.computeNear("1", () -> fail("loaded"), nearCache), equalTo("loaded"));
+
+    assertThat(users.getReads(), equalTo(1));
+    assertThat(cache.getStats("users").getNearHits(), equalTo(1L));
+  }
+
+  @Test
+  void givenInvalidationDuringLoad_whenComputeNear_thenValueNotKeptLocally() {
+    String value =
+        cache.computeNear(
+            "1",
+            () -> {
+              topic.deliver("other-pod|1");
+              return "old";
+            },
+            nearCache);
+
+    assertThat(value, equalTo("old"));
+    assertThat(nearCache.getLocal("1"), nullValue());
+  }
+
+  @Test
+  void givenInvalidationBeforeRead_whenPutLocal_thenValueKeptLocally() {
+    topic.deliver("other-pod|1");
+    long sequence = nearCache.getInvalidationSequence();
+
+    nearCache.putLocal("1", "read", sequence);
+
+    assertThat(nearCache.getLocal("1"), equalTo("read"));
+  }
+
+  @Test
+  void givenMessages_whenReceived_thenOnlyOtherPodsInvalidate() {
+    nearCache.put("1", "mine");
+    nearCache.put("2", "mine too");
+
+    topic.deliver("other-pod|1");
+
+    assertThat(nearCache.getLocal("1"), nullValue());
+    assertThat(nearCache.getLocal("2"), equalTo("mine too"));
+  }
+
+  @Test
+  void givenLocalValues_whenResubscribedOrAllInvalidated_thenLocalDropped() {
+    nearCache.put("1", "a");
+    topic.resubscribe();
+    assertThat(nearCache.getLocalSize(), equalTo(0L));
+
+    nearCache.put("2", "b");
+    topic.deliver("other-pod|*");
+    assertThat(nearCache.getLocalSize(), equalTo(0L));
+  }
+
+  @Test
+  void givenLocalValues_whenClose_thenListenersRemovedAndLocalDropped() {
+    nearCache.put("1", "a");
+
+    nearCache.close();
+
+    assertThat(topic.getListenerCount(), equalTo(0));
+    assertThat(nearCache.getLocalSize(), equalTo(0L));
+  }
+
+  @Test
+  void givenDefaultSpec_whenCreated_thenLocalValuesExpire() {
+    assertThat(new NearCacheSpec().getExpireAfterWrite(), equalTo(Duration.ofMinutes(10)));
+  }
+}
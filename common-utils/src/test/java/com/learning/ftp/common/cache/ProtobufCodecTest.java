@@ -0,0 +1,86 @@
+package com.learning.ftp.common.cache;
+
+import com.google.protobuf.StringValue;
+import com.google.protobuf.Timestamp;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+import org.redisson.client.codec.Codec;
+
+class ProtobufCodecTest {
+  private static boolean notAMessageInitialized;
+
+  private final ProtobufCodec codec = new ProtobufCodec();
+
+  @Test
+  void givenMessage_whenEncodedAndDecoded_thenEqualMessage() throws IOException {
+    var timestamp = Timestamp.newBuilder().setSeconds(1_600_000_000L).setNanos(5).build();
+
+    assertThat(roundTrip(codec, timestamp), equalTo(timestamp));
+  }
+
+  @Test
+  void givenOtherValue_whenEncodedAndDecoded_thenReadByFallback() throws IOException {
+    var value = Map.of("key", List.of(1, 2));
+
+    assertThat(roundTrip(codec, value), equalTo(value));
+  }
+
+  @Test
+  void givenTypeNotAMessage_whenDecoded_thenRejectedWithoutInitializingIt() {
+    var error =
+        assertThrows(
+            IOException.class, () -> decode(codec, messageOfType(NotAMessage.class.getName())));
+
+    assertThat(error.getMessage(), containsString("is not a proto message"));
+    assertThat(notAMessageInitialized, equalTo(false));
+  }
+
+  @Test
+  void givenRegisteredMessages_whenDecoded_thenOnlyThoseRead() throws Exception {
+    var registered =
+        new ProtobufCodec(new ProtobufCodec().getFallback(), List.of(StringValue.class.getName()));
+    var copy = new ProtobufCodec(getClass().getClassLoader(), registered);
+    var value = StringValue.of("cached");
+
+    assertThat(roundTrip(copy, value), equalTo(value));
+    var error =
+        assertThrows(IOException.class, () -> roundTrip(copy, Timestamp.newBuilder().build()));
+    assertThat(error.getMessage(), containsString("is not a registered message type"));
+  }
+
+  static Object roundTrip(Codec codec, Object value) throws IOException {
+    return decode(codec, codec.getValueEncoder().encode(value));
+  }
+
+  static Object decode(Codec codec, ByteBuf buf) throws IOException {
+    try {
+      return codec.getValueDecoder().decode(buf, null);
+    } finally {
+      buf.release();
+    }
+  }
+
+  private static ByteBuf messageOfType(String type) {
+    byte[] name = type.getBytes(StandardCharsets.UTF_8);
+    ByteBuf buf = Unpooled.buffer();
+    buf.writeByte(1);
+    buf.writeShort(name.length);
+    buf.writeBytes(name);
+    return buf;
+  }
+
+  private static class NotAMessage {
+    static {
+      notAMessageInitialized = true;
+    }
+  }
+}
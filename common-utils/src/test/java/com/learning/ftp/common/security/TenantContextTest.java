@@ -0,0 +1,108 @@
+package com.learning.ftp.common.security;
+
+import static com.learning.ftp.common.security.BaseUser.USER_ATTR_COMPANY_SHORT_NAME;
+import com.learning.ftp.common.util.SecurityUtil;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import java.util.concurrent.atomic.AtomicReference;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+
+class TenantContextTest {
+  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+  @AfterEach
+  void cleanUp() {
+    executor.shutdownNow();
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  void givenNoTenantBound_whenGetTenant_thenCompanyOfUser() {
+    authenticate(user("alice", "acme"));
+
+    assertThat(TenantContext.getTenant(), equalTo("acme"));
+  }
+
+  @Test
+  void givenTenantBound_whenGetTenant_thenBoundTenantTakesPrecedence() {
+    authenticate(user("alice", "acme"));
+
+    try (var ignored = TenantContext.bind("globex")) {
+      assertThat(TenantContext.getTenant(), equalTo("globex"));
+    }
+    assertThat(TenantContext.getTenant(), equalTo("acme"));
+  }
+
+  @Test
+  void givenNestedScopes_whenClosed_thenPreviousTenantRestored() {
+    try (var outer = TenantContext.bind("acme")) {
+      try (var inner = TenantContext.bind("globex")) {
+        assertThat(TenantContext.getTenant(), equalTo("globex"));
+      }
+      assertThat(TenantContext.getTenant(), equalTo("acme"));
+    }
+    assertThat(TenantContext.getTenant(), nullValue());
+  }
+
+  @Test
+  void givenTaskWrapped_whenRunOnAnotherThread_thenTenantOfSubmitter() throws Exception {
+    Runnable task;
+    Callable<String> callable;
+    var seen = new AtomicReference<String>();
+    try (var ignored = TenantContext.bind("acme")) {
+      Runnable readTenant = () -> seen.set(TenantContext.getTenant());
+      task = TenantContext.wrap(readTenant);
+      callable = TenantContext.wrap(TenantContext::getTenant);
+    }
+
+    executor.submit(task).get(5, SECONDS);
+
+    assertThat(seen.get(), equalTo("acme"));
+    assertThat(executor.submit(callable).get(5, SECONDS), equalTo("acme"));
+    assertThat(executor.submit(TenantContext::getTenant).get(5, SECONDS), nullValue());
+  }
+
+  @Test
+  void givenImpersonation_whenClosed_thenUserAndTenantRestored() {
+    var alice = user("alice", "acme");
+    authenticate(alice);
+    var previous = SecurityContextHolder.getContext();
+
+    try (var requestTenant = TenantContext.bind("acme")) {
+      try (var ignored = TenantContext.impersonate(user("bob", "globex"))) {
+        assertThat(SecurityUtil.getCurrentUser().getName(), equalTo("bob"));
+        assertThat(TenantContext.getTenant(), equalTo("globex"));
+      }
+      assertThat(SecurityUtil.getCurrentUser(), sameInstance(alice));
+      assertThat(SecurityContextHolder.getContext(), sameInstance(previous));
+      assertThat(TenantContext.getTenant(), equalTo("acme"));
+    }
+  }
+
+  private static BaseUser user(String name, String company) {
+    return new BaseUser(
+        "realm",
+        "token",
+        null,
+        Set.of(),
+        Map.of("sub", name),
+        "sub",
+        Map.of(USER_ATTR_COMPANY_SHORT_NAME, company));
+  }
+
+  private static void authenticate(BaseUser user) {
+    SecurityContextHolder.getContext()
+        .setAuthentication(new OAuth2AuthenticationToken(user, Set.of(), "finbase"));
+  }
+}